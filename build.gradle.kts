@@ -81,3 +81,20 @@ val fatJar = tasks.register<Jar>("fatJar") {
     attributes["Implementation-Version"] = project.version
   }
 }
+
+// Native executable of the fat JAR (needs GraalVM: GRAALVM_HOME or native-image on PATH).
+// JSON is read and written by hand-written codecs, so no reflection config is needed;
+// bundled resources are listed in META-INF/native-image.
+tasks.register<Exec>("nativeImage") {
+  group = "build"
+  description = "Builds build/native/voxcompose with GraalVM native-image."
+  dependsOn(fatJar)
+  val graalHome = System.getenv("GRAALVM_HOME")
+  val nativeImage = if (graalHome != null) "$graalHome/bin/native-image" else "native-image"
+  val jar = fatJar.flatMap { it.archiveFile }
+  val output = layout.buildDirectory.file("native/voxcompose")
+  inputs.file(jar)
+  outputs.file(output)
+  doFirst { output.get().asFile.parentFile.mkdirs() }
+  commandLine(nativeImage, "--no-fallback", "-jar", jar.get().asFile.path, "-o", output.get().asFile.path)
+}
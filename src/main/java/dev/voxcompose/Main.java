@@ -7,6 +7,8 @@ import dev.voxcompose.io.InputReader;
 import dev.voxcompose.memory.MemoryManager;
 import dev.voxcompose.model.Capabilities;
 import dev.voxcompose.learning.LearningService;
+import dev.voxcompose.learning.UserProfile;
+import dev.voxcompose.text.MarkdownFormatter;
 
 import com.google.gson.*;
 import java.io.*;
@@ -51,13 +53,10 @@ public class Main {
         LearningService learner = LearningService.getInstance();
         Path vocabPath = Paths.get(System.getProperty("user.home"),
                                     ".config", "voxcompose", "vocabulary.txt");
-        learner.getProfile().exportVocabularyToFile(vocabPath);
+        int tokenBudget = UserProfile.getDefaultVocabularyTokens();
+        int termCount = learner.getProfile().exportVocabularyToFile(vocabPath, tokenBudget);
 
-        int termCount = learner.getProfile().getTechnicalVocabulary().size() +
-                       learner.getProfile().getCapitalizations().size() +
-                       learner.getProfile().getWordCorrections().size();
-
-        System.err.println("Exported " + termCount + " terms to " + vocabPath);
+        System.err.println("Exported " + termCount + " terms (~" + tokenBudget + " token budget) to " + vocabPath);
         System.exit(0);
       } catch (IOException e) {
         System.err.println("Error exporting vocabulary: " + e.getMessage());
@@ -74,6 +73,17 @@ public class Main {
       System.exit(2);
     }
 
+    // Offline learning from archived refinements
+    if (config.getLearnFromPath() != null) {
+      runLearnFrom(config.getLearnFromPath());
+      return;
+    }
+
+    // Streaming corrections-only mode: emit corrected text while stdin is still open
+    if (config.isStreamMode()) {
+      runStream(config);
+      return;
+    }
     
     // Read input efficiently
     String input;
@@ -92,6 +102,7 @@ public class Main {
     
     // Apply learned corrections even if refinement is disabled
     LearningService learner = LearningService.getInstance();
+    learner.setLearningFlushTimeoutMs(config.getLearnFlushMs());
     String corrected = learner.applyCorrections(input);
 
     String finalOut = corrected;  // Start with corrected version
@@ -101,10 +112,13 @@ public class Main {
     // Track whether we skip LLM refinement
     boolean skippedForDuration = false;
     boolean skippedByEnv = false;
+    boolean skippedByTier = false;
+    boolean skippedForValue = false;
+    LearningService.RefinementEstimate valueEstimate = null;
     
     // Check duration threshold if provided
     if (config.getInputDurationSeconds() > 0) {
-      int threshold = learner.getProfile().getMinDurationForRefinement();
+      int threshold = learner.getProfile().snapshot().getMinDurationForRefinement();
       if (config.getInputDurationSeconds() < threshold) {
         skippedForDuration = true;
         System.err.println("INFO: Skipping LLM refinement - duration " +
@@ -117,11 +131,28 @@ public class Main {
       skippedByEnv = true;
       System.err.println("INFO: LLM refinement disabled via VOX_REFINE");
     }
+    
+    // Lower tiers never call the LLM
+    if (config.getTier() != Configuration.Tier.LLM) {
+      skippedByTier = true;
+      System.err.println("INFO: Skipping LLM refinement - tier " + config.getTier().label());
+    }
+
+    // Skip the LLM when the transcript is unlikely to change enough to be worth the wait
+    if (!skippedForDuration && !skippedByEnv && !skippedByTier && config.isPredictEnabled()) {
+      valueEstimate = learner.estimateRefinementValue(input);
+      if (!valueEstimate.shouldRefine()) {
+        skippedForValue = true;
+        System.err.println(String.format(Locale.ROOT,
+            "INFO: Skipping LLM refinement - predicted value %.2f, needs %.2f (--no-predict to refine anyway)",
+            valueEstimate.score, valueEstimate.threshold));
+      }
+    }
 
     int memoryUsedCount = 0;
     String cacheKey = null;
 
-    if (!skippedForDuration && !skippedByEnv) {
+    if (!skippedForDuration && !skippedByEnv && !skippedByTier && !skippedForValue) {
       // Initialize cache if enabled
       if (config.isCacheEnabled()) {
         cache = new RefineCache(config.getCacheMaxSize(), config.getCacheTtlMs());
@@ -167,7 +198,7 @@ public class Main {
           finalOut = correctedCached;
           ok = true;
           System.out.print(finalOut);
-          writeOptionalOutputs(config, finalOut, ok, refineMs, memoryUsedCount);
+          writeOptionalOutputs(config, learner, finalOut, ok, refineMs, memoryUsedCount, valueEstimate);
           return;
         }
       }
@@ -191,10 +222,8 @@ public class Main {
           if (cache != null && cacheKey != null) {
             cache.put(cacheKey, finalOut);
           }
-          // Learn from this refinement (async)
-          if (!input.equals(finalOut)) {
-            learner.learnAsync(input, finalOut);
-          }
+          // Learn from this refinement (async), along with its latency and edit value
+          learner.learnAsync(input, corrected, finalOut, config.getInputDurationSeconds(), result.responseTimeMs);
         } else if (!result.success) {
           System.err.println(result.error != null ? result.error : "Refinement failed");
         }
@@ -207,6 +236,13 @@ public class Main {
       if (!input.equals(corrected)) {
         learner.learnAsync(input, corrected);
       }
+      if (config.getTier() == Configuration.Tier.FORMAT) {
+        if (isMarkdown(config.getFormat())) {
+          finalOut = MarkdownFormatter.format(corrected);
+        } else {
+          System.err.println("INFO: Format tier only produces markdown; leaving " + config.getFormat() + " unformatted");
+        }
+      }
       ok = true;
     }
 
@@ -218,20 +254,89 @@ public class Main {
     // Always print something to stdout
     System.out.print(finalOut);
     
+    // Save queued learning now rather than in the exit hook, so the sidecar counts it
+    learner.flushLearning();
+    
     // Write optional outputs
-    writeOptionalOutputs(config, finalOut, ok, refineMs, memoryUsedCount);
+    writeOptionalOutputs(config, learner, finalOut, ok, refineMs, memoryUsedCount, valueEstimate);
     
     // Cleanup
     OllamaClient.shutdown();
     
-    if (!ok && !skippedForDuration && !skippedByEnv) System.exit(1);
+    if (!ok && !skippedForDuration && !skippedByEnv && !skippedByTier && !skippedForValue) System.exit(1);
+  }
+
+  private static boolean isMarkdown(String format) {
+    return "markdown".equalsIgnoreCase(format) || "md".equalsIgnoreCase(format);
   }
   
+  /**
+   * Learn from a corpus of archived refinements, reporting progress on stderr.
+   */
+  private static void runLearnFrom(Path source) {
+    LearningService learner = LearningService.getInstance();
+    try {
+      LearningService.CorpusStats stats = learner.learnFromCorpus(source,
+          (done, total) -> System.err.println("INFO: Learned " + done + "/" + total + " pairs"));
+      System.err.println(String.format(Locale.ROOT,
+          "Learned from %d pairs (%d skipped) in %.1fs, %.0f pairs/s, %.1f MB/s: %d candidates, %d rules activated, %d active",
+          stats.pairs, stats.skipped, stats.elapsedMs / 1000.0, stats.pairsPerSecond(),
+          stats.elapsedMs > 0 ? stats.chars / 1000.0 / stats.elapsedMs : 0.0,
+          stats.candidates, stats.promoted, learner.getCorrectionCount()));
+    } catch (IOException e) {
+      System.err.println("Error learning from " + source + ": " + e.getMessage());
+      System.exit(1);
+    }
+  }
+
+  /**
+   * Correct stdin sentence by sentence, writing to stdout (and --out) as text arrives.
+   */
+  private static void runStream(Configuration config) {
+    LearningService learner = LearningService.getInstance();
+    Writer stdout = new OutputStreamWriter(System.out, StandardCharsets.UTF_8);
+    boolean ok = true;
+
+    try (Reader in = InputReader.openStdin();
+         Writer file = config.getOutPath() != null
+             ? Files.newBufferedWriter(Paths.get(config.getOutPath()), StandardCharsets.UTF_8) : null) {
+      learner.applyCorrections(in, file != null ? tee(stdout, file) : stdout);
+    } catch (IOException e) {
+      System.err.println("Error streaming input: " + e.getMessage());
+      ok = false;
+    }
+
+    writeSidecar(config, learner, ok, 0, 0, null);
+    if (!ok) System.exit(1);
+  }
+
+  private static Writer tee(Writer first, Writer second) {
+    return new Writer() {
+      @Override
+      public void write(char[] cbuf, int off, int len) throws IOException {
+        first.write(cbuf, off, len);
+        second.write(cbuf, off, len);
+      }
+
+      @Override
+      public void flush() throws IOException {
+        first.flush();
+        second.flush();
+      }
+
+      @Override
+      public void close() throws IOException {
+        flush();
+      }
+    };
+  }
+
   /**
    * Write optional output files (--out and --sidecar flags).
    */
-  private static void writeOptionalOutputs(Configuration config, String output, boolean success, 
-                                           long refineMs, int memoryUsedCount) {
+  private static void writeOptionalOutputs(Configuration config, LearningService learner, String output, boolean success,
+                                           long refineMs, int memoryUsedCount,
+                                           LearningService.RefinementEstimate valueEstimate) {
     // Write to output file if specified
     if (config.getOutPath() != null) {
       try {
@@ -241,7 +346,14 @@ public class Main {
       }
     }
     
-    // Write sidecar JSON if specified
+    writeSidecar(config, learner, success, refineMs, memoryUsedCount, valueEstimate);
+  }
+
+  /**
+   * Write the JSON sidecar if --sidecar was given.
+   */
+  private static void writeSidecar(Configuration config, LearningService learner, boolean success, long refineMs,
+                                   int memoryUsedCount, LearningService.RefinementEstimate valueEstimate) {
     if (config.getSidecarPath() != null) {
       try {
         JsonObject sidecar = new JsonObject();
@@ -251,8 +363,18 @@ public class Main {
         sidecar.addProperty("model_source", config.getModelSource());
         sidecar.addProperty("endpoint", config.getEndpoint());
         sidecar.addProperty("endpoint_source", config.getEndpointSource());
+        sidecar.addProperty("tier", config.getTier().label());
         sidecar.addProperty("refine_ms", refineMs);
         sidecar.addProperty("memory_items_used", memoryUsedCount);
+        if (valueEstimate != null) {
+          sidecar.addProperty("refine_value_score", valueEstimate.score);
+          sidecar.addProperty("refine_value_threshold", valueEstimate.threshold);
+          sidecar.addProperty("refine_value_decision", valueEstimate.decision());
+        }
+        LearningService.LearningStats learning = learner.getLearningStats();
+        sidecar.addProperty("learning_queue_depth", learning.queueDepth);
+        sidecar.addProperty("learning_dropped", learning.dropped);
+        sidecar.addProperty("learning_flush_ms", learning.lastFlushMs);
         if (cache != null) {
           RefineCache.CacheStats stats = cache.getStats();
           sidecar.addProperty("cache_hits", stats.valid);
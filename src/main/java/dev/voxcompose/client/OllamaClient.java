@@ -1,6 +1,5 @@
 package dev.voxcompose.client;
 
-import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import okhttp3.*;
@@ -14,7 +13,6 @@ import java.util.concurrent.TimeUnit;
  */
 public class OllamaClient {
     private static final MediaType JSON_MEDIA_TYPE = MediaType.parse("application/json");
-    private static final Gson GSON = new Gson();
     
     // Singleton OkHttpClient for connection reuse across all requests
     private static final OkHttpClient SHARED_CLIENT = new OkHttpClient.Builder()
@@ -61,7 +59,7 @@ public class OllamaClient {
         
         Request request = new Request.Builder()
             .url(endpoint)
-            .post(RequestBody.create(GSON.toJson(requestBody), JSON_MEDIA_TYPE))
+            .post(RequestBody.create(requestBody.toString(), JSON_MEDIA_TYPE))
             .build();
         
         long startTime = System.currentTimeMillis();
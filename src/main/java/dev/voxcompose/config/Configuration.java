@@ -9,6 +9,27 @@ import java.util.Locale;
  * Efficiently parses and stores all configuration values.
  */
 public class Configuration {
+    /**
+     * How much work a transcript gets: learned corrections only, corrections plus
+     * rule-based Markdown structure, or a full LLM refinement.
+     */
+    public enum Tier {
+        CORRECTIONS, FORMAT, LLM;
+        
+        static Tier parse(String name) {
+            for (Tier tier : values()) {
+                if (tier.name().equalsIgnoreCase(name.trim())) {
+                    return tier;
+                }
+            }
+            throw new IllegalArgumentException("Unknown tier: " + name + " (expected corrections, format or llm)");
+        }
+        
+        public String label() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+    
     // Configuration values
     private String model = "llama3.1";
     private String modelSource = "default";
@@ -21,11 +42,18 @@ public class Configuration {
     private String endpoint = null;
     private String endpointSource = "default";
     private boolean refineEnabled = true;
+    private boolean predictEnabled = true;
     private boolean showHelp = false;
     private boolean enableCache = false;
     private int cacheMaxSize = 100;
     private long cacheTtlMs = 3600000; // 1 hour default
     private int inputDurationSeconds = 0; // Audio duration from caller
+    private boolean streamMode = false;
+    private Tier tier = Tier.LLM;
+    private boolean tierFromFlag = false;
+    private long learnFlushMs = 2000;   // wait for queued learning on exit
+    private boolean learnFlushFromFlag = false;
+    private Path learnFromPath = null;   // corpus to learn from instead of refining stdin
     
     /**
      * Parse configuration from command-line arguments and environment variables.
@@ -114,6 +142,35 @@ public class Configuration {
                         inputDurationSeconds = Integer.parseInt(args[++i]);
                     }
                     break;
+                case "--stream":
+                    streamMode = true;
+                    break;
+                case "--no-predict":
+                    predictEnabled = false;
+                    break;
+                case "--tier":
+                    if (i + 1 < args.length) {
+                        Tier parsed = parseTier(args[++i], "--tier");
+                        if (parsed != null) {
+                            tier = parsed;
+                            tierFromFlag = true;
+                        }
+                    }
+                    break;
+                case "--learn-flush-ms":
+                    if (i + 1 < args.length) {
+                        Long parsed = parseFlushMs(args[++i], "--learn-flush-ms");
+                        if (parsed != null) {
+                            learnFlushMs = parsed;
+                            learnFlushFromFlag = true;
+                        }
+                    }
+                    break;
+                case "--learn-from":
+                    if (i + 1 < args.length) {
+                        learnFromPath = Paths.get(args[++i]);
+                    }
+                    break;
                 case "--help":
                 case "-h":
                     showHelp = true;
@@ -130,6 +187,32 @@ public class Configuration {
             refineEnabled = !(v.equals("0") || v.equals("false") || v.equals("no") || v.equals("off"));
         }
         
+        // VOX_PREDICT=0 turns off skipping on the predicted refinement value
+        String predictEnv = System.getenv("VOX_PREDICT");
+        if (predictEnv != null) {
+            String v = predictEnv.trim().toLowerCase(Locale.ROOT);
+            if (v.equals("0") || v.equals("false") || v.equals("no") || v.equals("off")) {
+                predictEnabled = false;
+            }
+        }
+        
+        // Refinement tier
+        String tierEnv = System.getenv("VOX_TIER");
+        if (!tierFromFlag && tierEnv != null && !tierEnv.isBlank()) {
+            Tier parsed = parseTier(tierEnv, "VOX_TIER");
+            if (parsed != null) {
+                tier = parsed;
+            }
+        }
+        
+        String flushEnv = System.getenv("VOX_LEARN_FLUSH_MS");
+        if (!learnFlushFromFlag && flushEnv != null && !flushEnv.isBlank()) {
+            Long parsed = parseFlushMs(flushEnv, "VOX_LEARN_FLUSH_MS");
+            if (parsed != null) {
+                learnFlushMs = parsed;
+            }
+        }
+        
         // Model configuration
         if (!"flag".equals(modelSource)) {
             String envModel = System.getenv("AI_AGENT_MODEL");
@@ -152,6 +235,38 @@ public class Configuration {
         }
     }
     
+    /**
+     * The named tier, or null with a warning if {@code value} is not a tier, so the
+     * environment or the default applies instead.
+     */
+    private Tier parseTier(String value, String source) {
+        try {
+            return Tier.parse(value);
+        } catch (IllegalArgumentException e) {
+            System.err.println("WARN: Ignoring unknown " + source + " '" + value.trim()
+                + "' (expected corrections, format or llm)");
+            return null;
+        }
+    }
+    
+    /**
+     * The flush wait in milliseconds, or null with a warning if {@code value} is not a
+     * number of zero or more.
+     */
+    private Long parseFlushMs(String value, String source) {
+        try {
+            long ms = Long.parseLong(value.trim());
+            if (ms >= 0) {
+                return ms;
+            }
+        } catch (NumberFormatException e) {
+            // Fall through to the warning
+        }
+        System.err.println("WARN: Ignoring invalid " + source + " '" + value.trim()
+            + "' (expected milliseconds, 0 or more)");
+        return null;
+    }
+    
     private String resolveEndpointBase() {
         String envApi = System.getenv("AI_AGENT_URL");
         String envOllama = System.getenv("OLLAMA_HOST");
@@ -200,6 +315,11 @@ public class Configuration {
             "  --cache-size <n>       Max cache entries (default: 100)",
             "  --cache-ttl-ms <ms>    Cache TTL in milliseconds (default: 3600000)",
             "  --duration <seconds>   Input audio duration (for threshold checking)",
+            "  --stream               Corrections only; write each sentence as stdin arrives",
+            "  --no-predict           Never skip the LLM on the predicted refinement value",
+            "  --tier <tier>          corrections, format (rule-based Markdown) or llm (default: llm)",
+            "  --learn-flush-ms <ms>  Max wait on exit for queued learning to save (default: 2000)",
+            "  --learn-from <path>    Learn from archived refinements (JSONL or directory) and exit",
             "  --export-vocabulary    Export learned vocabulary to ~/.config/voxcompose/vocabulary.txt",
             "  --version, -V          Print version and exit",
             "  --help, -h             Show this help and exit",
@@ -209,7 +329,11 @@ public class Configuration {
             "  AI_AGENT_URL           Base URL (or full /api/generate)",
             "  OLLAMA_HOST            Ollama base URL",
             "  VOX_REFINE             Set 0/false to disable refinement",
-            "  VOX_CACHE_ENABLED      Set 1 to enable caching"
+            "  VOX_PREDICT            Set 0/false for --no-predict",
+            "  VOX_TIER               Default refinement tier",
+            "  VOX_CACHE_ENABLED      Set 1 to enable caching",
+            "  VOX_LEARN_FLUSH_MS     Default for --learn-flush-ms",
+            "  VOX_VOCAB_TOKENS       Token budget for --export-vocabulary (default: 223)"
         );
     }
     
@@ -225,9 +349,14 @@ public class Configuration {
     public String getEndpoint() { return endpoint; }
     public String getEndpointSource() { return endpointSource; }
     public boolean isRefineEnabled() { return refineEnabled; }
+    public boolean isPredictEnabled() { return predictEnabled; }
     public boolean isShowHelp() { return showHelp; }
     public boolean isCacheEnabled() { return enableCache; }
     public int getCacheMaxSize() { return cacheMaxSize; }
     public long getCacheTtlMs() { return cacheTtlMs; }
     public int getInputDurationSeconds() { return inputDurationSeconds; }
+    public boolean isStreamMode() { return streamMode; }
+    public Tier getTier() { return tier; }
+    public long getLearnFlushMs() { return learnFlushMs; }
+    public Path getLearnFromPath() { return learnFromPath; }
 }
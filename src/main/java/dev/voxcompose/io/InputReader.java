@@ -18,6 +18,14 @@ public class InputReader {
         return readFromStream(System.in);
     }
     
+    /**
+     * Open stdin as a UTF-8 reader for incremental processing. Reads return as soon
+     * as some input is available, and partial multi-byte sequences are carried over.
+     */
+    public static Reader openStdin() {
+        return new InputStreamReader(System.in, StandardCharsets.UTF_8);
+    }
+    
     /**
      * Read all input from a stream efficiently.
      */
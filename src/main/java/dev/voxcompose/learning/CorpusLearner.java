@@ -0,0 +1,191 @@
+package dev.voxcompose.learning;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Offline learning from an archive of (transcript, refinement) pairs.
+ *
+ * <p>A corpus is a JSONL file with one {@code {"input": ..., "refined": ...}} object per
+ * line ({@code raw}/{@code output} are accepted too), or a directory holding such files
+ * and transcript {@code .txt} files next to a refined {@code .md} of the same name.
+ * Pairs are tallied in parallel on the common ForkJoinPool, each worker counting
+ * candidate corrections on its own, and the tallies are merged once at the end.
+ */
+final class CorpusLearner {
+    private static final String[] INPUT_FIELDS = {"input", "raw"};
+    private static final String[] REFINED_FIELDS = {"refined", "output"};
+    // Progress is reported about this many times over a run
+    private static final int PROGRESS_STEPS = 100;
+
+    record Pair(String input, String refined) {
+    }
+
+    record Corpus(List<Pair> pairs, int skipped, long chars) {
+    }
+
+    private CorpusLearner() {
+    }
+
+    /**
+     * Read every pair from a JSONL file or a directory. Malformed lines, pairs with a
+     * missing side and pairs the refinement left unchanged are skipped and counted.
+     */
+    static Corpus read(Path source) throws IOException {
+        List<Pair> pairs = new ArrayList<>();
+        int[] skipped = new int[1];
+        if (Files.isDirectory(source)) {
+            List<Path> files;
+            try (Stream<Path> walk = Files.walk(source)) {
+                files = walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+            }
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(".jsonl")) {
+                    readJsonl(file, pairs, skipped);
+                } else if (name.endsWith(".txt")) {
+                    Path refined = file.resolveSibling(name.substring(0, name.length() - 4) + ".md");
+                    if (Files.isRegularFile(refined)) {
+                        add(Files.readString(file, StandardCharsets.UTF_8),
+                            Files.readString(refined, StandardCharsets.UTF_8), pairs, skipped);
+                    }
+                }
+            }
+        } else {
+            readJsonl(source, pairs, skipped);
+        }
+
+        long chars = 0;
+        for (Pair pair : pairs) {
+            chars += pair.input().length();
+        }
+        return new Corpus(pairs, skipped[0], chars);
+    }
+
+    private static void readJsonl(Path file, List<Pair> pairs, int[] skipped) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    JsonElement element = JsonParser.parseString(line);
+                    if (!element.isJsonObject()) {
+                        skipped[0]++;
+                        continue;
+                    }
+                    JsonObject object = element.getAsJsonObject();
+                    add(field(object, INPUT_FIELDS), field(object, REFINED_FIELDS), pairs, skipped);
+                } catch (JsonParseException | IllegalStateException e) {
+                    skipped[0]++;
+                }
+            }
+        }
+    }
+
+    private static String field(JsonObject object, String[] names) {
+        for (String name : names) {
+            JsonElement value = object.get(name);
+            if (value != null && value.isJsonPrimitive()) {
+                return value.getAsString();
+            }
+        }
+        return null;
+    }
+
+    private static void add(String input, String refined, List<Pair> pairs, int[] skipped) {
+        if (input == null || refined == null || input.isBlank() || input.trim().equals(refined.trim())) {
+            skipped[0]++;
+        } else {
+            pairs.add(new Pair(input.trim(), refined.trim()));
+        }
+    }
+
+    /**
+     * Run {@code extract} over every pair in parallel and merge the per-worker tallies.
+     * The merge keeps encounter order, so the result does not depend on scheduling.
+     */
+    static Tally tally(List<Pair> pairs, BiConsumer<Pair, Tally> extract, LearningService.CorpusProgress progress) {
+        int total = pairs.size();
+        int step = Math.max(1, total / PROGRESS_STEPS);
+        AtomicInteger done = new AtomicInteger();
+        return IntStream.range(0, total).parallel().collect(Tally::new, (tally, i) -> {
+            extract.accept(pairs.get(i), tally);
+            int finished = done.incrementAndGet();
+            if (progress != null && (finished % step == 0 || finished == total)) {
+                progress.report(finished, total);
+            }
+        }, Tally::merge);
+    }
+
+    /**
+     * Candidate corrections with how often each was seen, and the fillers dropped.
+     */
+    static final class Tally {
+        // wrong -> right -> sightings, in first-seen order
+        private final Map<String, Map<String, Integer>> corrections = new LinkedHashMap<>();
+        private final Set<String> fillers = new LinkedHashSet<>();
+
+        void addCorrection(String wrong, String right) {
+            corrections.computeIfAbsent(wrong, key -> new LinkedHashMap<>()).merge(right, 1, Integer::sum);
+        }
+
+        void addFiller(String filler) {
+            fillers.add(filler);
+        }
+
+        void merge(Tally other) {
+            for (Map.Entry<String, Map<String, Integer>> entry : other.corrections.entrySet()) {
+                Map<String, Integer> rights = corrections.computeIfAbsent(entry.getKey(), key -> new LinkedHashMap<>());
+                entry.getValue().forEach((right, count) -> rights.merge(right, count, Integer::sum));
+            }
+            fillers.addAll(other.fillers);
+        }
+
+        int candidates() {
+            return corrections.size();
+        }
+
+        /**
+         * Each candidate's most frequent replacement with all its sightings at once, ties
+         * going to the replacement seen first, then the fillers.
+         */
+        List<ProfileChange> changes(long now) {
+            List<ProfileChange> changes = new ArrayList<>();
+            for (Map.Entry<String, Map<String, Integer>> entry : corrections.entrySet()) {
+                String best = null;
+                int bestCount = 0;
+                for (Map.Entry<String, Integer> right : entry.getValue().entrySet()) {
+                    if (right.getValue() > bestCount) {
+                        best = right.getKey();
+                        bestCount = right.getValue();
+                    }
+                }
+                changes.add(new ProfileChange.Correction(entry.getKey(), best, bestCount, now));
+            }
+            for (String filler : fillers) {
+                changes.add(new ProfileChange.Filler(filler));
+            }
+            return changes;
+        }
+    }
+}
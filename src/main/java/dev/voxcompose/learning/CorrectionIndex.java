@@ -0,0 +1,133 @@
+package dev.voxcompose.learning;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.CRC32;
+
+/**
+ * Versioned sidecar file holding a compiled {@link CorrectionMatcher}.
+ *
+ * <p>The file is keyed by a SHA-256 hash of the profile JSON it was compiled from.
+ * Loading memory-maps the file and copies the flat arrays out, so a short CLI run
+ * skips recompiling the rules whenever learned_profile.json has not changed.
+ *
+ * <pre>
+ * int magic | int version | byte[32] profile hash | int payload length | long crc32 | payload
+ * </pre>
+ */
+final class CorrectionIndex {
+    static final String FILE_NAME = "corrections.idx";
+
+    private static final int MAGIC = 0x5658434D; // "VXCM"
+    private static final int FORMAT_VERSION = 2;
+    private static final int HASH_BYTES = 32;
+    private static final int HEADER_BYTES = 2 * Integer.BYTES + HASH_BYTES + Integer.BYTES + Long.BYTES;
+
+    private final Path path;
+
+    CorrectionIndex(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Index file that lives next to the given profile.
+     */
+    static CorrectionIndex forProfile(Path profilePath) {
+        return new CorrectionIndex(profilePath.resolveSibling(FILE_NAME));
+    }
+
+    /**
+     * Content hash used to key the index.
+     */
+    static byte[] hash(byte[] profileBytes) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(profileBytes);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Load the matcher compiled for the given profile hash.
+     *
+     * @return the matcher, or null if the file is missing, stale, from another format version or corrupt
+     */
+    CorrectionMatcher load(byte[] profileHash) {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES) {
+                return null;
+            }
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buf.getInt() != MAGIC || buf.getInt() != FORMAT_VERSION) {
+                return null;
+            }
+            byte[] storedHash = new byte[HASH_BYTES];
+            buf.get(storedHash);
+            if (!MessageDigest.isEqual(storedHash, profileHash)) {
+                return null;
+            }
+            int length = buf.getInt();
+            long checksum = buf.getLong();
+            if (length != size - HEADER_BYTES) {
+                return null;
+            }
+            ByteBuffer payload = buf.slice();
+            if (crc(payload) != checksum) {
+                return null;
+            }
+            return CorrectionMatcher.decode(payload);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Ignoring correction index: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Write the matcher for the given profile hash, replacing any previous index atomically.
+     */
+    void save(byte[] profileHash, CorrectionMatcher matcher) {
+        try {
+            int length = matcher.encodedSize();
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            matcher.encode(payload);
+            payload.flip();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(FORMAT_VERSION).put(profileHash).putInt(length).putLong(crc(payload));
+            header.flip();
+
+            Files.createDirectories(path.getParent());
+            Path tmp = Files.createTempFile(path.getParent(), FILE_NAME, ".tmp");
+            try {
+                try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                    while (header.hasRemaining() || payload.hasRemaining()) {
+                        channel.write(new ByteBuffer[] {header, payload});
+                    }
+                }
+                Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Failed to save correction index: " + e.getMessage());
+        }
+    }
+
+    private static long crc(ByteBuffer payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,456 @@
+package dev.voxcompose.learning;
+
+import dev.voxcompose.text.TokenSpans;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compiled matcher that applies all learned word corrections, capitalizations and
+ * phrase rules in a single left-to-right pass over the text.
+ *
+ * <p>Rules live in a character trie keyed on case-folded text, stored as flat arrays.
+ * A run of spaces or tabs is walked as one {@code ' '} edge, so a phrase rule such as
+ * "get hub" spans any horizontal whitespace between its tokens; line breaks are matched
+ * literally. The trie is only walked from token starts that sit on a word boundary, and
+ * a match is only accepted when it also ends on one. Word corrections and capitalizations
+ * must cover exactly their key, so they behave like the per-rule {@code \bkey\b}
+ * replacements they supersede. Overlapping matches are resolved leftmost-longest; for the
+ * same key, word corrections win over capitalizations and capitalizations over phrases.
+ */
+final class CorrectionMatcher {
+    static final byte WORD = 0;
+    static final byte CAPITALIZATION = 1;
+    static final byte PHRASE = 2;
+
+    private static final CorrectionMatcher EMPTY = new Builder().build();
+
+    // Trie in compressed-row form: the children of node n are
+    // edgeLabel/edgeTarget[edgeStart[n] .. edgeStart[n + 1]), sorted by label.
+    private final int[] edgeStart;
+    private final char[] edgeLabel;
+    private final int[] edgeTarget;
+    private final int[] nodeRule;   // first rule ending at a node, or -1
+
+    private final String[] ruleKey;
+    private final String[] ruleValue;
+    private final byte[] ruleKind;
+    private final int[] ruleNext;   // next rule ending at the same node, or -1
+
+    private final char[] mentioned;  // distinct edge labels, sorted, for mentions()
+
+    private CorrectionMatcher(int[] edgeStart, char[] edgeLabel, int[] edgeTarget, int[] nodeRule,
+                              String[] ruleKey, String[] ruleValue, byte[] ruleKind, int[] ruleNext) {
+        this.edgeStart = edgeStart;
+        this.edgeLabel = edgeLabel;
+        this.edgeTarget = edgeTarget;
+        this.nodeRule = nodeRule;
+        this.ruleKey = ruleKey;
+        this.ruleValue = ruleValue;
+        this.ruleKind = ruleKind;
+        this.ruleNext = ruleNext;
+        this.mentioned = distinct(edgeLabel);
+    }
+
+    static CorrectionMatcher compile(Map<String, String> wordCorrections, Map<String, String> capitalizations) {
+        return compile(wordCorrections, capitalizations, Map.of());
+    }
+
+    /**
+     * Compile word corrections (case-sensitive), capitalizations and phrase rules (both
+     * case-insensitive). A word correction or phrase whose replacement is itself subject
+     * to a capitalization gets the capitalized form, as it did when the two stages ran
+     * one after the other.
+     */
+    static CorrectionMatcher compile(Map<String, String> wordCorrections, Map<String, String> capitalizations,
+                                     Map<String, String> phrases) {
+        if (wordCorrections.isEmpty() && capitalizations.isEmpty() && phrases.isEmpty()) {
+            return EMPTY;
+        }
+
+        Builder capitalizationsOnly = new Builder();
+        for (Map.Entry<String, String> entry : capitalizations.entrySet()) {
+            capitalizationsOnly.add(entry.getKey(), entry.getValue(), CAPITALIZATION);
+        }
+        CorrectionMatcher capitalizer = capitalizationsOnly.build();
+
+        Builder builder = new Builder();
+        for (Map.Entry<String, String> entry : wordCorrections.entrySet()) {
+            builder.add(entry.getKey(), capitalizer.apply(entry.getValue()), WORD);
+        }
+        for (Map.Entry<String, String> entry : capitalizations.entrySet()) {
+            builder.add(entry.getKey(), entry.getValue(), CAPITALIZATION);
+        }
+        for (Map.Entry<String, String> entry : phrases.entrySet()) {
+            builder.add(entry.getKey(), capitalizer.apply(entry.getValue()), PHRASE);
+        }
+        return builder.build();
+    }
+
+    boolean isEmpty() {
+        return ruleKey.length == 0;
+    }
+
+    /**
+     * Whether any rule key contains the character (case-folded, with spaces and tabs
+     * standing for {@code ' '}). A character no key contains is never part of a match.
+     */
+    boolean mentions(char c) {
+        return Arrays.binarySearch(mentioned, label(c)) >= 0;
+    }
+
+    private static char[] distinct(char[] labels) {
+        char[] sorted = labels.clone();
+        Arrays.sort(sorted);
+        int n = 0;
+        for (char label : sorted) {
+            if (n == 0 || sorted[n - 1] != label) {
+                sorted[n++] = label;
+            }
+        }
+        return Arrays.copyOf(sorted, n);
+    }
+
+    int ruleCount() {
+        return ruleKey.length;
+    }
+
+    /**
+     * Number of bytes {@link #encode} will write.
+     */
+    int encodedSize() {
+        long size = 3L * Integer.BYTES
+            + (long) Integer.BYTES * edgeStart.length
+            + (long) (Character.BYTES + Integer.BYTES) * edgeLabel.length
+            + (long) Integer.BYTES * nodeRule.length
+            + (long) (Byte.BYTES + Integer.BYTES) * ruleKind.length;
+        for (int r = 0; r < ruleKey.length; r++) {
+            size += 2L * Integer.BYTES + (long) Character.BYTES * (ruleKey[r].length() + ruleValue[r].length());
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Correction matcher too large to encode: " + size + " bytes");
+        }
+        return (int) size;
+    }
+
+    /**
+     * Write the flat arrays to a buffer; {@link #decode} reads them back without rebuilding the trie.
+     */
+    void encode(ByteBuffer buf) {
+        buf.putInt(nodeRule.length).putInt(edgeLabel.length).putInt(ruleKey.length);
+        buf.asIntBuffer().put(edgeStart);
+        buf.position(buf.position() + Integer.BYTES * edgeStart.length);
+        buf.asCharBuffer().put(edgeLabel);
+        buf.position(buf.position() + Character.BYTES * edgeLabel.length);
+        buf.asIntBuffer().put(edgeTarget);
+        buf.position(buf.position() + Integer.BYTES * edgeTarget.length);
+        buf.asIntBuffer().put(nodeRule);
+        buf.position(buf.position() + Integer.BYTES * nodeRule.length);
+        buf.put(ruleKind);
+        buf.asIntBuffer().put(ruleNext);
+        buf.position(buf.position() + Integer.BYTES * ruleNext.length);
+        for (int r = 0; r < ruleKey.length; r++) {
+            putString(buf, ruleKey[r]);
+            putString(buf, ruleValue[r]);
+        }
+    }
+
+    static CorrectionMatcher decode(ByteBuffer buf) {
+        int nodeCount = buf.getInt();
+        int edgeCount = buf.getInt();
+        int ruleCount = buf.getInt();
+        if (nodeCount < 1 || edgeCount != nodeCount - 1 || ruleCount < 0) {
+            throw new IllegalArgumentException("Corrupt correction matcher header");
+        }
+
+        int[] edgeStart = getInts(buf, nodeCount + 1);
+        char[] edgeLabel = new char[edgeCount];
+        buf.asCharBuffer().get(edgeLabel);
+        buf.position(buf.position() + Character.BYTES * edgeCount);
+        int[] edgeTarget = getInts(buf, edgeCount);
+        int[] nodeRule = getInts(buf, nodeCount);
+        byte[] ruleKind = new byte[ruleCount];
+        buf.get(ruleKind);
+        int[] ruleNext = getInts(buf, ruleCount);
+        String[] ruleKey = new String[ruleCount];
+        String[] ruleValue = new String[ruleCount];
+        for (int r = 0; r < ruleCount; r++) {
+            ruleKey[r] = getString(buf);
+            ruleValue[r] = getString(buf);
+        }
+
+        return new CorrectionMatcher(edgeStart, edgeLabel, edgeTarget, nodeRule,
+            ruleKey, ruleValue, ruleKind, ruleNext);
+    }
+
+    private static int[] getInts(ByteBuffer buf, int count) {
+        int[] values = new int[count];
+        buf.asIntBuffer().get(values);
+        buf.position(buf.position() + Integer.BYTES * count);
+        return values;
+    }
+
+    private static void putString(ByteBuffer buf, String s) {
+        buf.putInt(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            buf.putChar(s.charAt(i));
+        }
+    }
+
+    private static String getString(ByteBuffer buf) {
+        int length = buf.getInt();
+        if (length < 0 || length > buf.remaining() / Character.BYTES) {
+            throw new IllegalArgumentException("Corrupt correction matcher string");
+        }
+        char[] chars = new char[length];
+        buf.asCharBuffer().get(chars);
+        buf.position(buf.position() + Character.BYTES * chars.length);
+        return new String(chars);
+    }
+
+    /**
+     * Apply every rule to the text. Returns the input unchanged when nothing matches.
+     */
+    String apply(String text) {
+        if (text == null || text.isEmpty() || isEmpty()) {
+            return text;
+        }
+
+        TokenSpans tokens = TokenSpans.tokenize(text);
+        StringBuilder out = null;
+        int copied = 0;
+        int i = 0;
+
+        while (i < tokens.size()) {
+            long match = match(tokens, i);
+            if (match < 0) {
+                i++;
+                continue;
+            }
+            if (out == null) {
+                out = new StringBuilder(text.length() + 16);
+            }
+            int end = (int) (match >>> 32);
+            out.append(text, copied, tokens.start(i)).append(replacement((int) match));
+            copied = tokens.start(end);
+            i = end;
+        }
+
+        if (out == null) {
+            return text;
+        }
+        return out.append(text, copied, text.length()).toString();
+    }
+
+    /**
+     * Find the longest rule that starts at token {@code first}.
+     *
+     * @return {@code (endToken << 32) | rule} where endToken is exclusive, or -1 if no rule matches
+     */
+    long match(TokenSpans tokens, int first) {
+        if (isEmpty() || !tokens.startsOnBoundary(first)) {
+            return -1;
+        }
+
+        CharSequence text = tokens.text();
+        int node = 0;
+        long best = -1;
+
+        for (int t = first; t < tokens.size(); t++) {
+            if (tokens.isSpace(t) && !hasLineBreak(text, tokens.start(t), tokens.end(t))) {
+                node = child(node, ' ');
+            } else {
+                for (int p = tokens.start(t); p < tokens.end(t) && node >= 0; p++) {
+                    node = child(node, label(text.charAt(p)));
+                }
+            }
+            if (node < 0) {
+                return best;
+            }
+            // Inside a token there is never a word boundary, so matches can only end on token edges
+            if (nodeRule[node] >= 0 && tokens.endsOnBoundary(t)) {
+                int rule = acceptedRule(text, tokens.start(first), tokens.end(t), nodeRule[node]);
+                if (rule >= 0) {
+                    best = ((long) (t + 1) << 32) | rule;
+                }
+            }
+        }
+        return best;
+    }
+
+    String replacement(int rule) {
+        return ruleValue[rule];
+    }
+
+    private int acceptedRule(CharSequence text, int start, int end, int rule) {
+        for (; rule >= 0; rule = ruleNext[rule]) {
+            byte kind = ruleKind[rule];
+            if (kind == PHRASE) {
+                return rule;
+            }
+            // Whitespace was collapsed on the way here; word rules need the exact text
+            String key = ruleKey[rule];
+            if (end - start == key.length() && regionEquals(text, start, key, kind == CAPITALIZATION)) {
+                return rule;
+            }
+        }
+        return -1;
+    }
+
+    private int child(int node, char label) {
+        int lo = edgeStart[node];
+        int hi = edgeStart[node + 1] - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            char c = edgeLabel[mid];
+            if (c < label) {
+                lo = mid + 1;
+            } else if (c > label) {
+                hi = mid - 1;
+            } else {
+                return edgeTarget[mid];
+            }
+        }
+        return -1;
+    }
+
+    private static boolean regionEquals(CharSequence text, int start, String key, boolean fold) {
+        for (int k = 0; k < key.length(); k++) {
+            char c = text.charAt(start + k);
+            char expected = key.charAt(k);
+            if (fold ? TokenSpans.fold(c) != TokenSpans.fold(expected) : c != expected) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static char label(char c) {
+        return isLineBreak(c) || !Character.isWhitespace(c) ? TokenSpans.fold(c) : ' ';
+    }
+
+    private static boolean isLineBreak(char c) {
+        return c == '\n' || c == '\r';
+    }
+
+    private static boolean hasLineBreak(CharSequence text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (isLineBreak(text.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Collects rules into a pointer-based trie, then flattens it breadth-first.
+     */
+    private static final class Builder {
+        private final List<TreeMap<Character, Integer>> children = new ArrayList<>();
+        private final List<Integer> firstRule = new ArrayList<>();
+        private final List<String> keys = new ArrayList<>();
+        private final List<String> values = new ArrayList<>();
+        private final List<Byte> kinds = new ArrayList<>();
+        private final List<Integer> next = new ArrayList<>();
+
+        Builder() {
+            newNode();
+        }
+
+        private int newNode() {
+            children.add(new TreeMap<>());
+            firstRule.add(-1);
+            return children.size() - 1;
+        }
+
+        void add(String key, String value, byte kind) {
+            if (key == null || key.isEmpty() || value == null) {
+                return;
+            }
+            int node = 0;
+            int runEnd = 0;
+            for (int i = 0; i < key.length(); i++) {
+                char c = label(key.charAt(i));
+                if (Character.isWhitespace(c) && i >= runEnd) {
+                    // A run of spaces and tabs is one edge, as in match(); runs with line breaks are literal
+                    runEnd = i + 1;
+                    while (runEnd < key.length() && Character.isWhitespace(key.charAt(runEnd))) {
+                        runEnd++;
+                    }
+                    if (!hasLineBreak(key, i, runEnd)) {
+                        i = runEnd - 1;
+                    }
+                }
+                Integer child = children.get(node).get(c);
+                if (child == null) {
+                    child = newNode();
+                    children.get(node).put(c, child);
+                }
+                node = child;
+            }
+
+            int rule = keys.size();
+            keys.add(key);
+            values.add(value);
+            kinds.add(kind);
+            next.add(-1);
+
+            // Keep insertion order within a node so word corrections stay ahead of capitalizations
+            int head = firstRule.get(node);
+            if (head < 0) {
+                firstRule.set(node, rule);
+            } else {
+                while (next.get(head) >= 0) {
+                    head = next.get(head);
+                }
+                next.set(head, rule);
+            }
+        }
+
+        CorrectionMatcher build() {
+            int nodeCount = children.size();
+            int edgeCount = nodeCount - 1;
+
+            int[] order = new int[nodeCount];     // BFS position -> builder node
+            int[] position = new int[nodeCount];  // builder node -> BFS position
+            int tail = 1;
+            for (int head = 0; head < tail; head++) {
+                for (int child : children.get(order[head]).values()) {
+                    position[child] = tail;
+                    order[tail++] = child;
+                }
+            }
+
+            int[] edgeStart = new int[nodeCount + 1];
+            char[] edgeLabel = new char[edgeCount];
+            int[] edgeTarget = new int[edgeCount];
+            int[] nodeRule = new int[nodeCount];
+            int edge = 0;
+            for (int p = 0; p < nodeCount; p++) {
+                int node = order[p];
+                edgeStart[p] = edge;
+                nodeRule[p] = firstRule.get(node);
+                for (Map.Entry<Character, Integer> e : children.get(node).entrySet()) {
+                    edgeLabel[edge] = e.getKey();
+                    edgeTarget[edge] = position[e.getValue()];
+                    edge++;
+                }
+            }
+            edgeStart[nodeCount] = edge;
+
+            int ruleCount = keys.size();
+            byte[] ruleKind = new byte[ruleCount];
+            int[] ruleNext = new int[ruleCount];
+            for (int r = 0; r < ruleCount; r++) {
+                ruleKind[r] = kinds.get(r);
+                ruleNext[r] = next.get(r);
+            }
+
+            return new CorrectionMatcher(edgeStart, edgeLabel, edgeTarget, nodeRule,
+                keys.toArray(new String[0]), values.toArray(new String[0]), ruleKind, ruleNext);
+        }
+    }
+}
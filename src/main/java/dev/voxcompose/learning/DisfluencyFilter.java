@@ -0,0 +1,323 @@
+package dev.voxcompose.learning;
+
+import dev.voxcompose.text.TermDictionary;
+import dev.voxcompose.text.TokenSpans;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Removes spoken disfluencies before corrections run: filler words ("um", "uh"),
+ * discourse fillers set off by commas ("you know,"), cut-off false starts ("I wen- I
+ * went") and immediate repeats ("the the").
+ *
+ * <p>Each pass is one scan over the tokens. Nothing reaches across a sentence end or a
+ * line break, so text cut after either gives the same result piece by piece.
+ */
+final class DisfluencyFilter {
+    // Always removed
+    private static final String[] FILLERS = {
+        "um", "umm", "uh", "uhh", "uhm", "erm", "hmm", "hm", "mm", "mhm"
+    };
+    // Removed only between commas or at a sentence start, and followed by a comma;
+    // "er" and "ah" are also words ("the er diagram", "say ah")
+    private static final String[] COMMA_FILLERS = {"you know", "i mean", "like", "er", "ah"};
+    // Words after a suspended hyphen ("pre- and post-processing")
+    private static final String[] SUSPENDED_HYPHEN_JOINS = {"and", "or", "to"};
+    // Repeats that are usually meant ("I knew that that was it", "we had had enough")
+    private static final String[] ALLOWED_REPEATS = {"that", "had", "is", "do", "very", "really", "no", "bye", "so", "ha"};
+
+    private final TermDictionary fillers;
+    private final String[][] commaFillers;
+    private final TermDictionary allowedRepeats;
+
+    private DisfluencyFilter(TermDictionary fillers, String[][] commaFillers) {
+        this.fillers = fillers;
+        this.commaFillers = commaFillers;
+        this.allowedRepeats = new TermDictionary(ALLOWED_REPEATS.length);
+        for (String word : ALLOWED_REPEATS) {
+            allowedRepeats.add(word);
+        }
+    }
+
+    /**
+     * Build a filter from the defaults plus learned fillers. A learned filler that is a
+     * real word ("basically") is only removed where a comma sets it off.
+     */
+    static DisfluencyFilter of(Collection<String> learned, WordSegmenter segmenter) {
+        TermDictionary fillers = new TermDictionary(FILLERS.length + learned.size());
+        for (String word : FILLERS) {
+            fillers.add(word);
+        }
+        List<String[]> commaFillers = new ArrayList<>();
+        for (String phrase : COMMA_FILLERS) {
+            commaFillers.add(phrase.split(" "));
+        }
+        for (String filler : learned) {
+            String[] words = filler.trim().toLowerCase().split("\\s+");
+            if (words[0].isEmpty()) {
+                continue;
+            }
+            if (words.length == 1 && !segmenter.isKnown(words[0], 0, words[0].length())) {
+                fillers.add(words[0]);
+            } else {
+                commaFillers.add(words);
+            }
+        }
+        return new DisfluencyFilter(fillers, commaFillers.toArray(new String[0][]));
+    }
+
+    String apply(String text) {
+        if (text == null || text.isEmpty()) {
+            return text;
+        }
+        return collapseRepeats(removeFillers(text));
+    }
+
+    /**
+     * Drop fillers and false starts together with the space after them, or the space
+     * before them at the end of a clause.
+     */
+    private String removeFillers(String text) {
+        TokenSpans tokens = TokenSpans.tokenize(text);
+        StringBuilder out = null;
+        int copied = 0;
+        // "Um, the build" -> "The build": the word after removed fillers that began a sentence
+        int capitalizeToken = -1;
+
+        for (int i = 0; i < tokens.size(); i++) {
+            if (!tokens.isWord(i)) {
+                continue;
+            }
+            int after = falseStartEnd(tokens, i);
+            if (after < 0) {
+                after = fillerEnd(tokens, i, out, copied);
+            }
+            if (after < 0) {
+                if (i == capitalizeToken && Character.isLowerCase(text.charAt(tokens.start(i)))) {
+                    out.append(text, copied, tokens.start(i));
+                    out.append(Character.toUpperCase(text.charAt(tokens.start(i))));
+                    copied = tokens.start(i) + 1;
+                }
+                continue;
+            }
+
+            if (out == null) {
+                out = new StringBuilder(text.length());
+            }
+            out.append(text, copied, tokens.start(i));
+            // Carried over a run of fillers ("Um, uh, so")
+            boolean capitalize = i == capitalizeToken
+                || Character.isUpperCase(text.charAt(tokens.start(i))) && atSentenceStart(out, out.length());
+            // Nothing but spaces follows: end the text where the words end, so "it works, um"
+            // gives "it works" with or without trailing whitespace
+            boolean atEnd = after == tokens.size() || after == tokens.size() - 1 && isHorizontalSpace(tokens, after);
+            if (!atEnd && isHorizontalSpace(tokens, after)) {
+                after++;
+            } else {
+                if (atEnd) {
+                    after = tokens.size();
+                }
+                int end = out.length();
+                while (end > 0 && (atEnd ? Character.isWhitespace(out.charAt(end - 1))
+                        : isHorizontalSpace(out.charAt(end - 1)))) {
+                    end--;
+                }
+                // "it works, um." -> "it works."
+                if (end > 0 && out.charAt(end - 1) == ',' && (after == tokens.size() || isClauseEnd(tokens, after))) {
+                    end--;
+                }
+                out.setLength(end);
+            }
+            copied = after < tokens.size() ? tokens.start(after) : text.length();
+            capitalizeToken = capitalize && after < tokens.size() && tokens.isWord(after) ? after : -1;
+            i = after - 1;
+        }
+
+        if (out == null) {
+            return text;
+        }
+        return out.append(text, copied, text.length()).toString();
+    }
+
+    /**
+     * Token after a cut-off word such as "wen-" in "I wen- I went", or -1. The speaker
+     * must start again: the next word extends the cut-off one ("wen- went") or repeats
+     * the word before it ("we sh- we need"). An em dash is a pause, not a cut-off.
+     */
+    private static int falseStartEnd(TokenSpans tokens, int i) {
+        if (i + 3 >= tokens.size() || tokens.length(i + 1) != 1 || !isHyphen(tokens.text().charAt(tokens.start(i + 1)))
+                || !isHorizontalSpace(tokens, i + 2) || !tokens.isWord(i + 3) || hasDigit(tokens, i)) {
+            return -1;
+        }
+        // Not the tail of a hyphenated word ("follow-up- ")
+        if (i >= 1 && tokens.length(i - 1) == 1 && isDash(tokens.text().charAt(tokens.start(i - 1)))) {
+            return -1;
+        }
+        for (String join : SUSPENDED_HYPHEN_JOINS) {
+            if (tokens.equalsIgnoreCase(i + 3, join)) {
+                return -1;
+            }
+        }
+        CharSequence text = tokens.text();
+        boolean extended = tokens.length(i + 3) >= tokens.length(i)
+            && regionMatchesFolded(text, tokens.start(i + 3), tokens.start(i), tokens.length(i));
+        boolean repeated = i >= 2 && isHorizontalSpace(tokens, i - 1) && tokens.isWord(i - 2)
+            && tokens.equalsIgnoreCase(i - 2, tokens, i + 3);
+        return extended || repeated ? i + 2 : -1;
+    }
+
+    private static boolean regionMatchesFolded(CharSequence text, int a, int b, int length) {
+        for (int k = 0; k < length; k++) {
+            if (TokenSpans.fold(text.charAt(a + k)) != TokenSpans.fold(text.charAt(b + k))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Token after a filler starting at word {@code i} (including a comma right after
+     * it), or -1.
+     */
+    private int fillerEnd(TokenSpans tokens, int i, StringBuilder out, int copied) {
+        CharSequence text = tokens.text();
+        if (fillers.findFolded(text, tokens.start(i), tokens.end(i)) >= 0) {
+            return isComma(tokens, i + 1) ? i + 2 : i + 1;
+        }
+
+        for (String[] words : commaFillers) {
+            int last = matchWords(tokens, i, words);
+            if (last < 0 || !isComma(tokens, last + 1)) {
+                continue;
+            }
+            // Set off on the left too: a comma or the start of a sentence
+            int p = tokens.start(i);
+            while (p > copied && isHorizontalSpace(text.charAt(p - 1))) {
+                p--;
+            }
+            boolean setOff = p > copied
+                ? text.charAt(p - 1) == ',' || isSentenceEnd(text.charAt(p - 1))
+                : out == null || atSentenceStart(out, out.length());
+            if (setOff) {
+                return last + 2;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Index of the last token of {@code words} matched from token {@code i}, or -1.
+     */
+    private static int matchWords(TokenSpans tokens, int i, String[] words) {
+        int j = i;
+        for (int k = 0; k < words.length; k++) {
+            if (j >= tokens.size() || !tokens.isWord(j) || !tokens.equalsIgnoreCase(j, words[k])) {
+                return -1;
+            }
+            if (k + 1 < words.length) {
+                if (j + 1 >= tokens.size() || !isHorizontalSpace(tokens, j + 1)) {
+                    return -1;
+                }
+                j += 2;
+            }
+        }
+        return j;
+    }
+
+    /**
+     * Collapse a word repeated across a space ("the the" -> "the"), keeping the first.
+     */
+    private String collapseRepeats(String text) {
+        TokenSpans tokens = TokenSpans.tokenize(text);
+        StringBuilder out = null;
+        int copied = 0;
+
+        for (int i = 0; i < tokens.size(); i++) {
+            if (!tokens.isWord(i) || !repeatsAt(tokens, i, i) || hasDigit(tokens, i)
+                    || allowedRepeats.findFolded(text, tokens.start(i), tokens.end(i)) >= 0) {
+                continue;
+            }
+            int j = i + 2;
+            while (repeatsAt(tokens, i, j)) {
+                j += 2;
+            }
+            if (out == null) {
+                out = new StringBuilder(text.length());
+            }
+            out.append(text, copied, tokens.end(i));
+            copied = tokens.end(j);
+            i = j;
+        }
+
+        if (out == null) {
+            return text;
+        }
+        return out.append(text, copied, text.length()).toString();
+    }
+
+    /**
+     * Whether word {@code i} appears again right after word {@code j}.
+     */
+    private static boolean repeatsAt(TokenSpans tokens, int i, int j) {
+        return j + 2 < tokens.size() && isHorizontalSpace(tokens, j + 1) && tokens.isWord(j + 2)
+            && tokens.equalsIgnoreCase(i, tokens, j + 2);
+    }
+
+    private static boolean hasDigit(TokenSpans tokens, int i) {
+        for (int p = tokens.start(i); p < tokens.end(i); p++) {
+            if (Character.isDigit(tokens.text().charAt(p))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean atSentenceStart(CharSequence text, int end) {
+        int p = end - 1;
+        while (p >= 0 && isHorizontalSpace(text.charAt(p))) {
+            p--;
+        }
+        return p < 0 || isSentenceEnd(text.charAt(p));
+    }
+
+    private static boolean isComma(TokenSpans tokens, int i) {
+        return i < tokens.size() && tokens.length(i) == 1 && tokens.text().charAt(tokens.start(i)) == ',';
+    }
+
+    private static boolean isClauseEnd(TokenSpans tokens, int i) {
+        if (tokens.isSpace(i)) {
+            return !isHorizontalSpace(tokens, i);   // a line break
+        }
+        char c = tokens.text().charAt(tokens.start(i));
+        return c == '.' || c == '!' || c == '?' || c == ',' || c == ';' || c == ':';
+    }
+
+    private static boolean isHorizontalSpace(TokenSpans tokens, int i) {
+        if (!tokens.isSpace(i)) {
+            return false;
+        }
+        for (int p = tokens.start(i); p < tokens.end(i); p++) {
+            if (!isHorizontalSpace(tokens.text().charAt(p))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isHorizontalSpace(char c) {
+        return Character.isWhitespace(c) && c != '\n' && c != '\r';
+    }
+
+    private static boolean isSentenceEnd(char c) {
+        return c == '.' || c == '!' || c == '?' || c == '\n' || c == '\r';
+    }
+
+    private static boolean isDash(char c) {
+        return c == '-' || c == '–' || c == '—';
+    }
+
+    private static boolean isHyphen(char c) {
+        return c == '-' || c == '–';
+    }
+}
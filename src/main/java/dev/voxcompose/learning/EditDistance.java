@@ -0,0 +1,183 @@
+package dev.voxcompose.learning;
+
+/**
+ * Bounded edit distances for short tokens.
+ *
+ * <p>Strings of up to 64 characters use the bit-parallel algorithm of Myers as
+ * formulated by Hyyrö: one column of the DP matrix is a pair of 64-bit delta vectors,
+ * so each character of the text costs a handful of word operations. Longer strings use
+ * a DP restricted to the diagonal band that can stay within the bound. Both stop as soon
+ * as the bound can no longer be met, and scratch space is kept per thread, so a call
+ * allocates nothing.
+ */
+final class EditDistance {
+    private static final int WORD_BITS = 64;
+    private static final int ASCII = 128;
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private EditDistance() {
+    }
+
+    /**
+     * Levenshtein distance, or {@code max + 1} once it is known to exceed {@code max}.
+     */
+    static int levenshtein(CharSequence a, CharSequence b, int max) {
+        return distance(a, b, max, false);
+    }
+
+    /**
+     * Edit distance with adjacent transpositions counted as one edit ("kuberentes"),
+     * or {@code max + 1} once it is known to exceed {@code max}.
+     */
+    static int withTranspositions(CharSequence a, CharSequence b, int max) {
+        return distance(a, b, max, true);
+    }
+
+    private static int distance(CharSequence a, CharSequence b, int max, boolean transpositions) {
+        // The pattern is the shorter string, so the bit-parallel path covers more pairs
+        if (a.length() > b.length()) {
+            CharSequence swap = a;
+            a = b;
+            b = swap;
+        }
+        int m = a.length();
+        int n = b.length();
+        if (n - m > max) {
+            return max + 1;
+        }
+        if (m == 0) {
+            return n;
+        }
+        return m <= WORD_BITS
+            ? bitParallel(a, b, max, transpositions, SCRATCH.get())
+            : banded(a, b, max, transpositions, SCRATCH.get());
+    }
+
+    private static int bitParallel(CharSequence a, CharSequence b, int max, boolean transpositions, Scratch scratch) {
+        int m = a.length();
+        int n = b.length();
+        long[] peq = scratch.peq;
+        for (int i = 0; i < m; i++) {
+            char c = a.charAt(i);
+            if (c < ASCII) {
+                peq[c] |= 1L << i;
+            }
+        }
+
+        long last = 1L << (m - 1);
+        long vp = m == WORD_BITS ? -1L : (1L << m) - 1;
+        long vn = 0;
+        long d0 = 0;
+        long previousEq = 0;
+        int score = m;
+        try {
+            for (int j = 0; j < n; j++) {
+                long eq = match(peq, a, b.charAt(j));
+                long x = eq | vn;
+                if (transpositions) {
+                    // Hyyrö's extension: a match here on the diagonal a transposition skips
+                    x |= (~d0 & eq) << 1 & previousEq;
+                    previousEq = eq;
+                }
+                d0 = ((vp + (eq & vp)) ^ vp) | x;
+                long hp = vn | ~(d0 | vp);
+                long hn = vp & d0;
+                if ((hp & last) != 0) {
+                    score++;
+                } else if ((hn & last) != 0) {
+                    score--;
+                }
+                // The last row changes by at most one per remaining column
+                if (score - (n - j - 1) > max) {
+                    return max + 1;
+                }
+                hp = hp << 1 | 1;
+                hn <<= 1;
+                vp = hn | ~(d0 | hp);
+                vn = hp & d0;
+            }
+            return Math.min(score, max + 1);
+        } finally {
+            for (int i = 0; i < m; i++) {
+                char c = a.charAt(i);
+                if (c < ASCII) {
+                    peq[c] = 0;
+                }
+            }
+        }
+    }
+
+    private static long match(long[] peq, CharSequence pattern, char c) {
+        if (c < ASCII) {
+            return peq[c];
+        }
+        long bits = 0;
+        for (int i = 0; i < pattern.length(); i++) {
+            if (pattern.charAt(i) == c) {
+                bits |= 1L << i;
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * Row-by-row DP that only fills cells within {@code max} of the diagonal.
+     */
+    private static int banded(CharSequence a, CharSequence b, int max, boolean transpositions, Scratch scratch) {
+        int m = a.length();
+        int n = b.length();
+        int over = max + 1;
+        int[] previous2 = scratch.row(0, n + 1);
+        int[] previous = scratch.row(1, n + 1);
+        int[] current = scratch.row(2, n + 1);
+        for (int j = 0; j <= n; j++) {
+            previous[j] = Math.min(j, over);
+        }
+
+        for (int i = 1; i <= m; i++) {
+            int from = Math.max(1, i - max);
+            int to = Math.min(n, i + max);
+            current[0] = Math.min(i, over);
+            if (from > 1) {
+                current[from - 1] = over;
+            }
+            int rowMin = current[0];
+            char ca = a.charAt(i - 1);
+            for (int j = from; j <= to; j++) {
+                char cb = b.charAt(j - 1);
+                int value = previous[j - 1] + (ca == cb ? 0 : 1);
+                value = Math.min(value, previous[j] + 1);
+                value = Math.min(value, current[j - 1] + 1);
+                if (transpositions && i > 1 && j > 1 && ca == b.charAt(j - 2) && a.charAt(i - 2) == cb) {
+                    value = Math.min(value, previous2[j - 2] + 1);
+                }
+                current[j] = Math.min(value, over);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (to < n) {
+                current[to + 1] = over;
+            }
+            if (rowMin > max) {
+                return over;
+            }
+            int[] recycled = previous2;
+            previous2 = previous;
+            previous = current;
+            current = recycled;
+        }
+        return previous[n];
+    }
+
+    private static final class Scratch {
+        final long[] peq = new long[ASCII];
+        final int[][] rows = new int[3][0];
+
+        int[] row(int index, int length) {
+            if (rows[index].length < length) {
+                rows[index] = new int[Math.max(length, rows[index].length * 2)];
+            }
+            return rows[index];
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package dev.voxcompose.learning;
+
+import dev.voxcompose.text.TermDictionary;
+import dev.voxcompose.text.TokenSpans;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Symmetric-delete (SymSpell) index for finding vocabulary terms within a small
+ * edit distance of a mis-typed or mis-heard word.
+ *
+ * <p>Every term is stored under all strings obtained by deleting up to
+ * {@link #MAX_DISTANCE} characters from its case-folded prefix. A lookup generates the
+ * same deletes for the query and probes the hash table for each, so its cost depends
+ * on the word length, not on the vocabulary size. Candidates are then checked with a
+ * bounded edit distance.
+ *
+ * <p>A word that is the term plus an inflection ("helms", "rusty"), or a short word that
+ * only differs from the term in its last letter ("docket" for "Docker"), is taken to be
+ * a different word rather than a mishearing.
+ */
+final class FuzzyIndex {
+    static final int MAX_DISTANCE = 2;
+
+    // Only this many leading characters are used for deletes (the SymSpell prefix trick)
+    private static final int PREFIX_LENGTH = 7;
+    private static final int MIN_WORD_LENGTH = 4;
+    private static final int MIN_LENGTH_FOR_TWO_EDITS = 8;
+    private static final String[] INFLECTIONS = {"s", "es", "y", "ed", "er", "et", "ing"};
+
+    private final String[] targets;      // term id -> term as learned ("Kubernetes")
+    private final String[] keys;         // term id -> folded term ("kubernetes")
+    private final TermDictionary deletes;
+    private final int[] postingHead;     // delete id -> first posting, or -1
+    private final int[] postingTerm;
+    private final int[] postingNext;
+
+    private FuzzyIndex(String[] targets, String[] keys, TermDictionary deletes,
+                       int[] postingHead, int[] postingTerm, int[] postingNext) {
+        this.targets = targets;
+        this.keys = keys;
+        this.deletes = deletes;
+        this.postingHead = postingHead;
+        this.postingTerm = postingTerm;
+        this.postingNext = postingNext;
+    }
+
+    @SafeVarargs
+    static FuzzyIndex build(Collection<String>... sources) {
+        TermDictionary terms = new TermDictionary();
+        String[] targets = new String[16];
+        for (Collection<String> source : sources) {
+            for (String term : source) {
+                if (term == null || term.length() < MIN_WORD_LENGTH) {
+                    continue;
+                }
+                int before = terms.size();
+                int id = terms.add(term.toLowerCase());
+                if (id == before) {
+                    if (id >= targets.length) {
+                        targets = Arrays.copyOf(targets, targets.length * 2);
+                    }
+                    targets[id] = term;
+                }
+            }
+        }
+
+        int termCount = terms.size();
+        String[] keys = new String[termCount];
+        TermDictionary deletes = new TermDictionary(termCount * 8);
+        int[] head = new int[Math.max(16, termCount * 8)];
+        int[] postingTerm = new int[head.length];
+        int[] postingNext = new int[head.length];
+        int postings = 0;
+        Arrays.fill(head, -1);
+
+        StringBuilder scratch = new StringBuilder();
+        for (int id = 0; id < termCount; id++) {
+            keys[id] = terms.term(id);
+            String prefix = keys[id].substring(0, Math.min(PREFIX_LENGTH, keys[id].length()));
+            int[] seen = new int[8];
+            int seenCount = 0;
+            for (String variant : deleteVariants(prefix, scratch)) {
+                int deleteId = deletes.add(variant);
+                // The same delete can come from several positions ("aab" minus either 'a')
+                boolean duplicate = false;
+                for (int s = 0; s < seenCount && !duplicate; s++) {
+                    duplicate = seen[s] == deleteId;
+                }
+                if (duplicate) {
+                    continue;
+                }
+                if (seenCount == seen.length) {
+                    seen = Arrays.copyOf(seen, seen.length * 2);
+                }
+                seen[seenCount++] = deleteId;
+
+                if (deleteId >= head.length) {
+                    int size = head.length;
+                    head = Arrays.copyOf(head, size * 2);
+                    Arrays.fill(head, size, head.length, -1);
+                }
+                if (postings == postingTerm.length) {
+                    postingTerm = Arrays.copyOf(postingTerm, postings * 2);
+                    postingNext = Arrays.copyOf(postingNext, postings * 2);
+                }
+                postingTerm[postings] = id;
+                postingNext[postings] = head[deleteId];
+                head[deleteId] = postings++;
+            }
+        }
+
+        return new FuzzyIndex(Arrays.copyOf(targets, termCount), keys, deletes, head, postingTerm, postingNext);
+    }
+
+    boolean isEmpty() {
+        return targets.length == 0;
+    }
+
+    /**
+     * Find the one vocabulary term closest to {@code text[start, end)}.
+     *
+     * @return the term as learned, or null if there is no candidate within the allowed
+     *         distance, its similarity is below {@code minSimilarity}, or two terms tie
+     */
+    String lookup(CharSequence text, int start, int end, double minSimilarity) {
+        int length = end - start;
+        if (isEmpty() || length < MIN_WORD_LENGTH) {
+            return null;
+        }
+        int maxDistance = length >= MIN_LENGTH_FOR_TWO_EDITS ? MAX_DISTANCE : 1;
+
+        StringBuilder word = new StringBuilder(length);
+        for (int i = start; i < end; i++) {
+            word.append(TokenSpans.fold(text.charAt(i)));
+        }
+        String prefix = word.substring(0, Math.min(PREFIX_LENGTH, length));
+
+        int best = -1;
+        int bestDistance = Integer.MAX_VALUE;
+        boolean tied = false;
+        int[] checked = new int[8];
+        int checkedCount = 0;
+
+        for (String variant : deleteVariants(prefix, new StringBuilder())) {
+            int deleteId = deletes.find(variant);
+            if (deleteId < 0) {
+                continue;
+            }
+            for (int p = postingHead[deleteId]; p >= 0; p = postingNext[p]) {
+                int id = postingTerm[p];
+                if (contains(checked, checkedCount, id)) {
+                    continue;
+                }
+                if (checkedCount == checked.length) {
+                    checked = Arrays.copyOf(checked, checkedCount * 2);
+                }
+                checked[checkedCount++] = id;
+                if (isOtherWord(word, keys[id])) {
+                    continue;
+                }
+
+                int distance = distance(word, keys[id], maxDistance);
+                if (distance > maxDistance || distance > bestDistance) {
+                    continue;
+                }
+                if (distance == bestDistance) {
+                    tied = true;
+                } else {
+                    best = id;
+                    bestDistance = distance;
+                    tied = false;
+                }
+            }
+        }
+
+        if (best < 0 || tied || bestDistance == 0) {
+            return null;
+        }
+        double similarity = 1.0 - (double) bestDistance / Math.max(length, keys[best].length());
+        return similarity >= minSimilarity ? targets[best] : null;
+    }
+
+    /**
+     * Whether {@code word} is an inflection of {@code key}, or is short and differs from
+     * it only at the end.
+     */
+    private static boolean isOtherWord(CharSequence word, String key) {
+        int shared = 0;
+        int limit = Math.min(word.length(), key.length());
+        while (shared < limit && word.charAt(shared) == key.charAt(shared)) {
+            shared++;
+        }
+        if (shared == key.length()) {
+            String ending = word.subSequence(shared, word.length()).toString();
+            for (String inflection : INFLECTIONS) {
+                if (inflection.equals(ending)) {
+                    return true;
+                }
+            }
+        }
+        return word.length() < MIN_LENGTH_FOR_TWO_EDITS && shared >= limit - 1;
+    }
+
+    /**
+     * The prefix itself plus every string with one or two characters deleted.
+     */
+    private static String[] deleteVariants(String prefix, StringBuilder scratch) {
+        int n = prefix.length();
+        String[] variants = new String[1 + n + n * (n - 1) / 2];
+        int count = 0;
+        variants[count++] = prefix;
+        for (int i = 0; i < n; i++) {
+            scratch.setLength(0);
+            scratch.append(prefix, 0, i).append(prefix, i + 1, n);
+            String one = scratch.toString();
+            variants[count++] = one;
+            for (int j = i; j < n - 1; j++) {
+                scratch.setLength(0);
+                scratch.append(one, 0, j).append(one, j + 1, n - 1);
+                variants[count++] = scratch.toString();
+            }
+        }
+        return variants;
+    }
+
+    private static boolean contains(int[] values, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Edit distance with adjacent transpositions counted as one edit ("kuberentes"),
+     * or {@code max + 1} once it is known to exceed {@code max}.
+     */
+    static int distance(CharSequence a, CharSequence b, int max) {
+        return EditDistance.withTranspositions(a, b, max);
+    }
+}
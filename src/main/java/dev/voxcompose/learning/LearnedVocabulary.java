@@ -0,0 +1,41 @@
+package dev.voxcompose.learning;
+
+/**
+ * Lookup structures derived from the profile's learned vocabulary. They are rebuilt
+ * together whenever the profile changes and are read-only afterwards, so one instance
+ * can be shared by parallel correction passes.
+ */
+final class LearnedVocabulary {
+    final WordSegmenter segmenter;
+    final FuzzyIndex fuzzy;
+    final PhoneticIndex phonetic;
+    final DisfluencyFilter disfluencies;
+
+    private LearnedVocabulary(WordSegmenter segmenter, FuzzyIndex fuzzy, PhoneticIndex phonetic,
+                              DisfluencyFilter disfluencies) {
+        this.segmenter = segmenter;
+        this.fuzzy = fuzzy;
+        this.phonetic = phonetic;
+        this.disfluencies = disfluencies;
+    }
+
+    static LearnedVocabulary of(ProfileSnapshot profile) {
+        WordSegmenter segmenter = WordSegmenter.withVocabulary(profile.getTechnicalVocabulary(),
+            profile.getCapitalizations().values(), profile.getWordCorrections().values(),
+            profile.getPhraseCorrections().values());
+        // Near misses are corrected towards terms the user cares about, not every correction target
+        FuzzyIndex fuzzy = FuzzyIndex.build(profile.getTechnicalVocabulary(), profile.getCapitalizations().values());
+        PhoneticIndex phonetic = PhoneticIndex.build(profile.getTechnicalVocabulary(),
+            profile.getCapitalizations().values());
+        DisfluencyFilter disfluencies = DisfluencyFilter.of(profile.getFillerWords(), segmenter);
+        return new LearnedVocabulary(segmenter, fuzzy, phonetic, disfluencies);
+    }
+
+    /**
+     * Whether a correction can join two words across spaces ("engine x" -> "nginx"),
+     * so text must not be cut at a plain run of spaces.
+     */
+    boolean joinsWords() {
+        return !phonetic.isEmpty();
+    }
+}
@@ -1,32 +1,95 @@
 package dev.voxcompose.learning;
 
+import dev.voxcompose.text.TokenSpans;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
+import java.io.Reader;
+import java.io.Writer;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
-import java.util.regex.Pattern;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
 
 /**
  * Service for learning from refinements and applying corrections.
  */
-public class LearningService {
+public final class LearningService {
     private static final Path PROFILE_PATH = Paths.get(
         System.getProperty("user.home"), ".config", "voxcompose", "learned_profile.json"
     );
     
     private static final int MIN_WORD_LENGTH = 3;
     private static final double MIN_SIMILARITY = 0.5;
+    // A near miss in the text must be closer: one edit in five letters, two in ten
+    private static final double MIN_NEAR_MISS_SIMILARITY = 0.8;
+    private static final int MAX_FILLER_LENGTH = 6;
     
-    private UserProfile profile;
+    // Learning: largest changed run learned as one correction, and the diff's edit budget
+    private static final int MAX_HUNK_WORDS = 3;
+    private static final int MAX_DIFF_EDITS = 512;
+    
+    // Inputs at least this long (chars) are corrected in parallel chunks
+    private static final int PARALLEL_THRESHOLD = 64 * 1024;
+    private static final int PARALLEL_CHUNK = 16 * 1024;
+    
+    // Streaming read size, and how much text may wait for a sentence end
+    private static final int STREAM_READ_SIZE = 4096;
+    private static final int MAX_STREAM_PENDING = 16 * STREAM_READ_SIZE;
+    
+    // How long an exiting process waits for queued learning to be saved
+    public static final long DEFAULT_FLUSH_TIMEOUT_MS = 2000;
+    
+    private final Path profilePath;
+    private final ProfileStore store;
+    private final CorrectionIndex correctionIndex;
+    private volatile LearningWorker worker;   // created on first use, see worker()
+    private volatile UserProfile profile;
     private static LearningService instance;
     
+    // Changes applied since the last save, appended to the journal by the next one
+    // (guarded by this)
+    private final List<ProfileChange> unsaved = new ArrayList<>();
+    private final AtomicBoolean compacting = new AtomicBoolean();
+    
+    // Compiled corrections, rebuilt only when the profile's rules change
+    private volatile Revised<CorrectionMatcher> matcher;
+    private volatile Revised<LearnedVocabulary> vocabulary;
+    
+    // Hash of the profile file on disk and the profile revision it corresponds to
+    private volatile Revised<byte[]> profileHash;
+    
     public LearningService() {
+        this(PROFILE_PATH);
+    }
+    
+    LearningService(Path profilePath) {
+        this.profilePath = profilePath;
+        this.store = new ProfileStore(profilePath);
+        this.correctionIndex = CorrectionIndex.forProfile(profilePath);
         loadProfile();
     }
     
+    /**
+     * The background learning worker. It is created here rather than in the constructor,
+     * which would hand its callbacks a service that is not fully built yet.
+     */
+    private LearningWorker worker() {
+        LearningWorker current = worker;
+        if (current == null) {
+            synchronized (this) {
+                current = worker;
+                if (current == null) {
+                    current = new LearningWorker(this::learnBatch, this::saveProfile, LearningWorker.DEFAULT_CAPACITY,
+                        LearningWorker.DEFAULT_DEBOUNCE_MS, DEFAULT_FLUSH_TIMEOUT_MS);
+                    worker = current;
+                }
+            }
+        }
+        return current;
+    }
+    
     public static synchronized LearningService getInstance() {
         if (instance == null) {
             instance = new LearningService();
@@ -35,15 +98,15 @@ public class LearningService {
     }
     
     /**
-     * Load profile from disk or create new one.
+     * Load the profile snapshot and replay its journal, or start a new profile.
      */
     private void loadProfile() {
         try {
-            if (Files.exists(PROFILE_PATH)) {
-                String json = new String(Files.readAllBytes(PROFILE_PATH), StandardCharsets.UTF_8);
-                profile = UserProfile.fromJson(json);
-            } else {
-                profile = new UserProfile();
+            ProfileStore.Stored loaded = store.load();
+            profile = loaded.profile();
+            profileHash = new Revised<>(loaded.key(), loaded.revision());
+            if (loaded.compactionDue()) {
+                compactInBackground();
             }
         } catch (IOException e) {
             System.err.println("Failed to load profile: " + e.getMessage());
@@ -52,122 +115,929 @@ public class LearningService {
     }
     
     /**
-     * Save profile to disk.
+     * Append the changes made since the last save to the profile journal. If another
+     * process saved in between, the stored profile is rebuilt from disk with these
+     * changes replayed onto it, and it replaces the profile in memory.
      */
-    private void saveProfile() {
+    private synchronized void saveProfile() {
+        ProfileStore.Stored saved;
         try {
-            Files.createDirectories(PROFILE_PATH.getParent());
-            Files.write(PROFILE_PATH, profile.toJson().getBytes(StandardCharsets.UTF_8));
+            saved = store.save(profile, unsaved);
         } catch (IOException e) {
             System.err.println("Failed to save profile: " + e.getMessage());
+            return;
+        }
+        profile = saved.profile();
+        profileHash = new Revised<>(saved.key(), saved.revision());
+        unsaved.clear();
+        saveIndex();
+        if (saved.compactionDue()) {
+            compactInBackground();
+        }
+    }
+    
+    /**
+     * Keep the compiled index in step with the stored profile so the next run can map it.
+     */
+    private void saveIndex() {
+        Revised<CorrectionMatcher> current = matcher;
+        Revised<byte[]> saved = profileHash;
+        if (current != null && current.revision() == saved.revision()) {
+            correctionIndex.save(saved.value(), current.value());
+        } else {
+            getMatcher();
+        }
+    }
+    
+    private void compactInBackground() {
+        if (compacting.compareAndSet(false, true)) {
+            ForkJoinPool.commonPool().execute(() -> {
+                try {
+                    compactProfile();
+                } finally {
+                    compacting.set(false);
+                }
+            });
+        }
+    }
+    
+    /**
+     * Fold the journal into a new profile snapshot.
+     */
+    synchronized void compactProfile() {
+        if (!unsaved.isEmpty()) {
+            saveProfile();
+        }
+        try {
+            byte[] key = store.compact(profile);
+            if (key != null) {
+                profileHash = new Revised<>(key, profile.getRevision());
+                saveIndex();
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to compact profile: " + e.getMessage());
         }
     }
     
     /**
-     * Apply learned corrections to input text.
+     * Remove disfluencies and apply learned corrections to input text. Long transcripts
+     * are split into chunks that are corrected on the common ForkJoinPool; the result is
+     * the same as correcting the whole text on one thread.
      */
     public String applyCorrections(String input) {
         if (input == null || input.isEmpty()) {
             return input;
         }
         
-        String corrected = input;
+        CorrectionMatcher rules = getMatcher();
+        LearnedVocabulary vocabulary = getVocabulary();
+        input = vocabulary.disfluencies.apply(input);
+        if (input.length() >= PARALLEL_THRESHOLD && ForkJoinPool.getCommonPoolParallelism() > 1) {
+            return correctParallel(input, PARALLEL_CHUNK, rules, vocabulary);
+        }
+        return correct(input, true, rules, vocabulary);
+    }
+    
+    /**
+     * Parallel correction with an explicit chunk size, regardless of input length.
+     */
+    String applyCorrectionsParallel(String input, int chunkSize) {
+        if (input == null || input.isEmpty()) {
+            return input;
+        }
+        LearnedVocabulary vocabulary = getVocabulary();
+        return correctParallel(vocabulary.disfluencies.apply(input), chunkSize, getMatcher(), vocabulary);
+    }
+    
+    /**
+     * Apply learned corrections to text as it arrives, writing and flushing each
+     * completed sentence or line. Text is cut only where no correction can span the
+     * cut, so the output is the same as {@code applyCorrections} on the trimmed input.
+     * Text with no sentence end for {@code MAX_STREAM_PENDING} chars is cut before a
+     * word instead.
+     */
+    public void applyCorrections(Reader in, Writer out) throws IOException {
+        CorrectionMatcher rules = getMatcher();
+        LearnedVocabulary vocabulary = getVocabulary();
+        StringBuilder pending = new StringBuilder();
+        char[] buffer = new char[STREAM_READ_SIZE];
+        String heldSpace = "";
+        boolean started = false;
+        boolean sentenceStart = true;
+        
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            int from = 0;
+            if (!started) {
+                // Leading whitespace is trimmed, as for buffered input
+                while (from < read && buffer[from] <= ' ') {
+                    from++;
+                }
+                started = from < read;
+            }
+            pending.append(buffer, from, read - from);
+            
+            // Disfluency removal reaches across spaces ("the the"), so text is only cut at sentence ends
+            int cut = lastStreamCut(pending, rules);
+            if (cut <= 0 && pending.length() > MAX_STREAM_PENDING) {
+                // No sentence end in sight: cut before a word instead, so memory stays bounded
+                cut = lastWordStart(pending, rules, vocabulary);
+            }
+            if (cut <= 0) {
+                continue;
+            }
+            
+            StringBuilder corrected = new StringBuilder(cut + 16);
+            String piece = vocabulary.disfluencies.apply(pending.substring(0, cut));
+            sentenceStart = correct(piece, sentenceStart, rules, vocabulary, corrected);
+            pending.delete(0, cut);
+            
+            // Trailing whitespace waits for more text so the output ends trimmed
+            int end = trimmedLength(corrected);
+            if (end > 0) {
+                out.write(heldSpace);
+                out.append(corrected, 0, end);
+                out.flush();
+                heldSpace = corrected.substring(end);
+            } else {
+                heldSpace += corrected;
+            }
+        }
         
-        // Apply word corrections
-        for (Map.Entry<String, String> entry : profile.getWordCorrections().entrySet()) {
-            String pattern = "\\b" + Pattern.quote(entry.getKey()) + "\\b";
-            corrected = corrected.replaceAll(pattern, entry.getValue());
+        StringBuilder last = new StringBuilder(pending.length() + 16);
+        correct(vocabulary.disfluencies.apply(pending.toString()), sentenceStart, rules, vocabulary, last);
+        int end = trimmedLength(last);
+        if (end > 0) {
+            out.write(heldSpace);
+            out.append(last, 0, end);
+        }
+        out.flush();
+    }
+    
+    /**
+     * Length without trailing whitespace, using the same test as {@link String#trim()}.
+     */
+    private static int trimmedLength(CharSequence text) {
+        int end = text.length();
+        while (end > 0 && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+    
+    /**
+     * Offset just after the last sentence end (. ! ? or newline) that no rule key contains, or -1.
+     */
+    private static int lastStreamCut(CharSequence text, CorrectionMatcher rules) {
+        for (int p = text.length() - 1; p >= 0; p--) {
+            char c = text.charAt(p);
+            if (isSentenceEnd(c) && !rules.mentions(c)) {
+                return p + 1;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Start of the last word after whitespace, preferring whitespace no correction can
+     * span, or -1. Text cut here may lose a repeat or correction across the cut.
+     */
+    private static int lastWordStart(CharSequence text, CorrectionMatcher rules, LearnedVocabulary vocabulary) {
+        int fallback = -1;
+        for (int p = text.length() - 1; p > 0; p--) {
+            if (!TokenSpans.isWordChar(text.charAt(p)) || TokenSpans.isWordChar(text.charAt(p - 1))) {
+                continue;
+            }
+            boolean whitespace = false;
+            boolean safe = false;
+            int q = p - 1;
+            for (; q >= 0 && !TokenSpans.isWordChar(text.charAt(q)); q--) {
+                char c = text.charAt(q);
+                whitespace |= Character.isWhitespace(c);
+                safe |= !canSpan(c, rules, vocabulary);
+            }
+            if (q < 0 || !whitespace) {
+                continue;
+            }
+            if (safe) {
+                return p;
+            }
+            if (fallback < 0) {
+                fallback = p;
+            }
+        }
+        return fallback;
+    }
+    
+    private static String correctParallel(String input, int chunkSize, CorrectionMatcher rules, LearnedVocabulary vocabulary) {
+        int[] bounds = chunkBounds(input, chunkSize, rules, vocabulary);
+        if (bounds.length <= 2) {
+            return correct(input, true, rules, vocabulary);
+        }
+        
+        String[] parts = new String[bounds.length - 1];
+        IntStream.range(0, parts.length).parallel().forEach(k -> {
+            int from = bounds[k];
+            parts[k] = correct(input.substring(from, bounds[k + 1]), startsSentence(input, from), rules, vocabulary);
+        });
+        return String.join("", parts);
+    }
+    
+    /**
+     * Chunk boundaries, including 0 and the input length. Each inner boundary is the
+     * start of a word after a whitespace run that no correction can span, so chunks are
+     * corrected independently. Sentence ends are preferred over plain whitespace.
+     */
+    private static int[] chunkBounds(String input, int chunkSize, CorrectionMatcher rules,
+                                     LearnedVocabulary vocabulary) {
+        List<Integer> bounds = new ArrayList<>();
+        bounds.add(0);
+        int from = 0;
+        while (input.length() - from > chunkSize) {
+            int target = from + chunkSize;
+            int cut = findBoundary(input, target, Math.min(input.length(), target + chunkSize / 2), true,
+                rules, vocabulary);
+            if (cut < 0) {
+                cut = findBoundary(input, target, input.length(), false, rules, vocabulary);
+            }
+            if (cut < 0) {
+                break;
+            }
+            bounds.add(cut);
+            from = cut;
         }
+        bounds.add(input.length());
         
-        // Apply capitalizations
-        for (Map.Entry<String, String> entry : profile.getCapitalizations().entrySet()) {
-            String pattern = "\\b(?i)" + Pattern.quote(entry.getKey()) + "\\b";
-            corrected = corrected.replaceAll(pattern, entry.getValue());
+        int[] result = new int[bounds.size()];
+        for (int k = 0; k < result.length; k++) {
+            result[k] = bounds.get(k);
+        }
+        return result;
+    }
+    
+    private static int findBoundary(String text, int from, int to, boolean sentenceOnly, CorrectionMatcher rules,
+                                    LearnedVocabulary vocabulary) {
+        for (int p = Math.max(from, 1); p < to; p++) {
+            if (!TokenSpans.isWordChar(text.charAt(p)) || TokenSpans.isWordChar(text.charAt(p - 1))) {
+                continue;
+            }
+            // Matches start and end on word boundaries, so one that touches this run covers
+            // all of it; a single character that no correction can span rules that out.
+            boolean whitespace = false;
+            boolean sentence = false;
+            boolean safe = false;
+            int q = p - 1;
+            for (; q >= 0 && !TokenSpans.isWordChar(text.charAt(q)); q--) {
+                char c = text.charAt(q);
+                whitespace |= Character.isWhitespace(c);
+                sentence |= isSentenceEnd(c);
+                safe |= !canSpan(c, rules, vocabulary);
+            }
+            if (q >= 0 && whitespace && safe && (sentence || !sentenceOnly)) {
+                return p;
+            }
+        }
+        return -1;
+    }
+    
+    private static boolean canSpan(char c, CorrectionMatcher rules, LearnedVocabulary vocabulary) {
+        return rules.mentions(c) || vocabulary.joinsWords() && isHorizontalSpace(c);
+    }
+    
+    private static boolean isHorizontalSpace(char c) {
+        return Character.isWhitespace(c) && c != '\n' && c != '\r';
+    }
+    
+    /**
+     * Whether a chunk starting at {@code start} begins a sentence, as seen by a
+     * single pass over the whole text.
+     */
+    private static boolean startsSentence(String text, int start) {
+        int p = start - 1;
+        for (; p >= 0 && !TokenSpans.isWordChar(text.charAt(p)); p--) {
+            if (isSentenceEnd(text.charAt(p))) {
+                return true;
+            }
         }
+        return p < 0;
+    }
+    
+    private static String correct(String input, boolean sentenceStart, CorrectionMatcher rules, LearnedVocabulary vocabulary) {
+        StringBuilder out = new StringBuilder(input.length() + 16);
+        correct(input, sentenceStart, rules, vocabulary, out);
+        return out.toString();
+    }
+    
+    /**
+     * Correct one piece of text into {@code out}.
+     *
+     * @return whether the text following this piece starts a sentence
+     */
+    private static boolean correct(CharSequence input, boolean sentenceStart, CorrectionMatcher rules,
+                                   LearnedVocabulary vocabulary, StringBuilder out) {
+        TokenSpans tokens = TokenSpans.tokenize(input);
+        int[] cuts = new int[WordSegmenter.maxCuts()];
         
-        // Fix common concatenations
-        corrected = fixCommonConcatenations(corrected);
+        int i = 0;
+        while (i < tokens.size()) {
+            // Word corrections and capitalizations (may span several tokens)
+            long match = rules.match(tokens, i);
+            if (match >= 0) {
+                out.append(rules.replacement((int) match));
+                i = (int) (match >>> 32);
+                sentenceStart = false;
+                continue;
+            }
+            
+            if (tokens.isWord(i)) {
+                String soundAlike = soundAlikePair(tokens, i, vocabulary);
+                if (soundAlike != null) {
+                    out.append(soundAlike);
+                    i += 3;
+                    sentenceStart = false;
+                    continue;
+                }
+                appendWord(tokens.text(), tokens.start(i), tokens.end(i), sentenceStart, vocabulary, cuts, out);
+                sentenceStart = false;
+            } else {
+                tokens.appendTo(i, out);
+                sentenceStart |= endsSentence(tokens, i);
+            }
+            i++;
+        }
         
-        return corrected;
+        return sentenceStart;
+    }
+    
+    /**
+     * Get the compiled matcher for the current profile rules. When the profile still
+     * matches the file on disk the matcher is mapped from the correction index, and
+     * compiled and written back only if the index is missing or stale.
+     */
+    private CorrectionMatcher getMatcher() {
+        ProfileSnapshot rules = profile.snapshot();
+        Revised<CorrectionMatcher> current = matcher;
+        if (current != null && current.revision() == rules.getRevision()) {
+            return current.value();
+        }
+        Revised<byte[]> saved = profileHash;
+        boolean matchesDisk = saved != null && saved.revision() == rules.getRevision();
+        CorrectionMatcher compiled = matchesDisk ? correctionIndex.load(saved.value()) : null;
+        if (compiled == null) {
+            compiled = CorrectionMatcher.compile(rules.getWordCorrections(), rules.getCapitalizations(),
+                rules.getPhraseCorrections());
+            if (matchesDisk) {
+                correctionIndex.save(saved.value(), compiled);
+            }
+        }
+        matcher = new Revised<>(compiled, rules.getRevision());
+        return compiled;
     }
     
     /**
-     * Fix common word concatenations.
+     * Get the vocabulary indexes for the current profile, rebuilding them if the profile changed.
      */
-    private String fixCommonConcatenations(String text) {
-        // Common patterns
-        String[] suffixes = {"would", "should", "could", "will", "have", "been", "into", "with", "to"};
+    private LearnedVocabulary getVocabulary() {
+        ProfileSnapshot terms = profile.snapshot();
+        Revised<LearnedVocabulary> current = vocabulary;
+        if (current != null && current.revision() == terms.getRevision()) {
+            return current.value();
+        }
+        LearnedVocabulary built = LearnedVocabulary.of(terms);
+        vocabulary = new Revised<>(built, terms.getRevision());
+        return built;
+    }
+    
+    /**
+     * Append one word that no rule matched: split it if it is a run-together word like
+     * "pushto", or replace it with a learned term it is a near miss of ("kuberentes").
+     */
+    private static void appendWord(CharSequence text, int start, int end, boolean sentenceStart,
+                                   LearnedVocabulary vocabulary, int[] cuts, StringBuilder out) {
+        WordSegmenter segmenter = vocabulary.segmenter;
+        int count = hasSplittableCase(text, start, end) ? segmenter.segment(text, start, end, cuts) : 0;
         
-        for (String suffix : suffixes) {
-            // Pattern: word+suffix without space (case insensitive)
-            String pattern = "(?i)\\b([a-zA-Z]+)(" + suffix + ")\\b";
-            text = text.replaceAll(pattern, "$1 $2");
+        // A capitalized word mid-sentence is usually a name; only split it after a leading "I",
+        // and never take it for a near miss ("Jess" is not a misheard "Jest")
+        boolean name = Character.isUpperCase(text.charAt(start)) && !sentenceStart;
+        if (count > 0 && name && !(cuts[0] == start + 1 && text.charAt(start) == 'I')) {
+            count = 0;
         }
         
-        // Fix specific known issues
-        text = text.replaceAll("\\bpushto\\b", "push to");
-        text = text.replaceAll("\\bcommitthis\\b", "commit this");
-        text = text.replaceAll("\\bgithub\\b", "GitHub");
-        text = text.replaceAll("\\bjson\\b", "JSON");
+        if (count == 0 && !name && !segmenter.isKnown(text, start, end)) {
+            String nearMiss = vocabulary.fuzzy.lookup(text, start, end, MIN_NEAR_MISS_SIMILARITY);
+            if (nearMiss == null && isAlphabetic(text, start, end)) {
+                nearMiss = vocabulary.phonetic.lookup(text, start, end);
+                // Sounding alike is not enough for one word: "catalin" is not "Kotlin"
+                if (nearMiss != null && !isNearMiss(text, start, end, nearMiss)) {
+                    nearMiss = null;
+                }
+            }
+            if (nearMiss != null) {
+                out.append(nearMiss);
+                return;
+            }
+        }
         
-        return text;
+        int pieceStart = start;
+        for (int k = 0; k < count; k++) {
+            fixKnownTerms(text, pieceStart, cuts[k], out);
+            out.append(' ');
+            pieceStart = cuts[k];
+        }
+        fixKnownTerms(text, pieceStart, end, out);
+    }
+    
+    /**
+     * Whether {@code text[start, end)} is within {@link #MIN_NEAR_MISS_SIMILARITY} of
+     * {@code term}, ignoring case.
+     */
+    private static boolean isNearMiss(CharSequence text, int start, int end, String term) {
+        String word = text.subSequence(start, end).toString().toLowerCase(Locale.ROOT);
+        int maxDistance = (int) Math.floor((1 - MIN_NEAR_MISS_SIMILARITY) * Math.max(word.length(), term.length()));
+        return FuzzyIndex.distance(word, term.toLowerCase(Locale.ROOT), maxDistance) <= maxDistance;
+    }
+    
+    /**
+     * Mixed-case words such as "GitHub" or "VoxCore" are never split.
+     */
+    private static boolean hasSplittableCase(CharSequence text, int start, int end) {
+        for (int i = start + 1; i < end; i++) {
+            if (Character.isUpperCase(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * A learned term that word {@code i} and the next word sound like together
+     * ("engine x" -> "nginx"), or null. At least one of the two must be unknown, and
+     * both must be letters that sound like something, so a number next to a term
+     * ("2 redis") is never merged into it.
+     */
+    private static String soundAlikePair(TokenSpans tokens, int i, LearnedVocabulary vocabulary) {
+        int second = i + 2;
+        if (second >= tokens.size() || !tokens.isSpace(i + 1) || !tokens.isWord(second)
+                || hasLineBreak(tokens, i + 1)
+                || !isSounded(tokens, i) || !isSounded(tokens, second)
+                || isKnown(tokens, i, vocabulary) && isKnown(tokens, second, vocabulary)) {
+            return null;
+        }
+        return vocabulary.phonetic.lookup(tokens.text(), tokens.start(i), tokens.end(second));
+    }
+    
+    private static boolean isSounded(TokenSpans tokens, int i) {
+        CharSequence text = tokens.text();
+        return isAlphabetic(text, tokens.start(i), tokens.end(i))
+            && !PhoneticIndex.key(text, tokens.start(i), tokens.end(i)).isEmpty();
+    }
+    
+    private static boolean isAlphabetic(CharSequence text, int start, int end) {
+        for (int p = start; p < end; p++) {
+            if (!Character.isLetter(text.charAt(p))) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static boolean isKnown(TokenSpans tokens, int i, LearnedVocabulary vocabulary) {
+        return vocabulary.segmenter.isKnown(tokens.text(), tokens.start(i), tokens.end(i));
+    }
+    
+    private static boolean hasLineBreak(TokenSpans tokens, int i) {
+        CharSequence text = tokens.text();
+        for (int p = tokens.start(i); p < tokens.end(i); p++) {
+            if (text.charAt(p) == '\n' || text.charAt(p) == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private static boolean endsSentence(TokenSpans tokens, int i) {
+        CharSequence text = tokens.text();
+        for (int p = tokens.start(i); p < tokens.end(i); p++) {
+            if (isSentenceEnd(text.charAt(p))) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private static boolean isSentenceEnd(char c) {
+        return c == '.' || c == '!' || c == '?' || c == '\n';
+    }
+    
+    private static void fixKnownTerms(CharSequence text, int start, int end, StringBuilder out) {
+        if (wordEquals(text, start, end, "github")) {
+            out.append("GitHub");
+        } else if (wordEquals(text, start, end, "json")) {
+            out.append("JSON");
+        } else {
+            out.append(text, start, end);
+        }
+    }
+    
+    private static boolean wordEquals(CharSequence text, int start, int end, String s) {
+        if (end - start != s.length()) {
+            return false;
+        }
+        for (int k = 0; k < s.length(); k++) {
+            if (text.charAt(start + k) != s.charAt(k)) {
+                return false;
+            }
+        }
+        return true;
     }
     
     /**
-     * Learn from a refinement (async).
+     * Learn from a refinement in the background. Events are applied in batches by a
+     * single learning thread and saved once the queue goes quiet; if learning falls
+     * behind, the event is dropped and counted in {@link #getLearningStats()}.
      */
     public void learnAsync(String input, String refined) {
-        CompletableFuture.runAsync(() -> learn(input, refined));
+        if (input == null || refined == null || input.equals(refined)) {
+            return;
+        }
+        worker().submit(input, refined);
+    }
+    
+    /**
+     * Learn from an LLM refinement in the background and record its response time and
+     * how much it changed the locally corrected text, which tunes the duration threshold
+     * (see {@link UserProfile#recordRefinement}). Unchanged refinements are recorded too.
+     */
+    public void learnAsync(String input, String corrected, String refined, int durationSeconds, long responseTimeMs) {
+        if (input == null || corrected == null || refined == null) {
+            return;
+        }
+        worker().submit(input, refined, new LearningWorker.Measurement(durationSeconds, responseTimeMs,
+            editValue(corrected, refined), RefinementPredictor.features(input, getVocabulary())));
+    }
+    
+    /**
+     * Predict, from cheap features of the raw transcript, whether an LLM pass would be
+     * worth running. The predictor is calibrated by every refinement passed to
+     * {@link #learnAsync(String, String, String, int, long)}.
+     */
+    public RefinementEstimate estimateRefinementValue(String input) {
+        ProfileSnapshot current = profile.snapshot();
+        double score = current.scoreRefinementValue(RefinementPredictor.features(input, getVocabulary()));
+        double threshold = current.getRefinementValueThreshold();
+        boolean explore = score < threshold
+            && ThreadLocalRandom.current().nextDouble() < RefinementPredictor.EXPLORATION_RATE;
+        return new RefinementEstimate(score, threshold, explore);
+    }
+    
+    /**
+     * Share of words a refinement inserted or deleted: 0 when it kept every word (case
+     * included), 1 when it kept none.
+     */
+    static double editValue(String before, String after) {
+        TokenSpans beforeTokens = TokenSpans.tokenize(before);
+        TokenSpans afterTokens = TokenSpans.tokenize(after);
+        int[] beforeWords = wordTokens(beforeTokens);
+        int[] afterWords = wordTokens(afterTokens);
+        int total = beforeWords.length + afterWords.length;
+        if (total == 0) {
+            return 0;
+        }
+        Map<String, Integer> ids = new HashMap<>();
+        int[] match = TokenDiff.align(wordIds(beforeTokens, beforeWords, ids), wordIds(afterTokens, afterWords, ids),
+            MAX_DIFF_EDITS);
+        if (match == null) {
+            return 1;
+        }
+        int kept = 0;
+        for (int j : match) {
+            if (j >= 0) {
+                kept++;
+            }
+        }
+        return (double) (total - 2 * kept) / total;
+    }
+    
+    /**
+     * Wait, up to the flush timeout, until queued learning is applied and saved.
+     *
+     * @return false if the timeout ran out first
+     */
+    public boolean flushLearning() {
+        return worker().flush();
+    }
+    
+    /**
+     * Longest time {@link #flushLearning()} and the exit hook wait for queued learning.
+     */
+    public void setLearningFlushTimeoutMs(long timeoutMs) {
+        worker().setFlushTimeoutMs(timeoutMs);
+    }
+    
+    public LearningStats getLearningStats() {
+        return worker().stats();
     }
     
     /**
-     * Learn from a refinement.
+     * Learn from a refinement and save the profile right away.
      */
     public void learn(String input, String refined) {
         if (input == null || refined == null || input.equals(refined)) {
             return;
         }
-        
-        // Extract corrections
-        List<Correction> corrections = extractCorrections(input, refined);
-        
-        // Add to profile
-        for (Correction c : corrections) {
-            profile.addCorrection(c.wrong, c.right);
+        synchronized (this) {
+            apply(changes(input, refined, null));
+            saveProfile();
+        }
+    }
+    
+    private synchronized void learnBatch(List<LearningWorker.Event> events) {
+        // Readers see the whole batch at once
+        List<ProfileChange> changes = new ArrayList<>();
+        for (LearningWorker.Event event : events) {
+            changes.addAll(changes(event.input(), event.refined(), event.measurement()));
         }
+        apply(changes);
+    }
+    
+    /**
+     * Apply changes to the profile, publishing one snapshot, and keep them for the next
+     * save.
+     *
+     * @return how many correction rules they activated
+     */
+    private synchronized int apply(List<ProfileChange> changes) {
+        UserProfile target = profile;
+        int[] activated = new int[1];
+        target.update(() -> {
+            for (ProfileChange change : changes) {
+                if (change.applyTo(target)) {
+                    activated[0]++;
+                }
+            }
+        });
+        unsaved.addAll(changes);
+        return activated[0];
+    }
+    
+    /**
+     * What one refinement teaches the profile.
+     */
+    private List<ProfileChange> changes(String input, String refined, LearningWorker.Measurement measurement) {
+        List<ProfileChange> changes = new ArrayList<>();
+        if (!input.equals(refined)) {
+            // A correction only becomes active after repeated sightings
+            long now = System.currentTimeMillis();
+            for (Correction c : extractCorrections(input, refined)) {
+                changes.add(new ProfileChange.Correction(c.wrong, c.right, 1, now));
+            }
+            for (String filler : extractFillers(input, refined)) {
+                changes.add(new ProfileChange.Filler(filler));
+            }
+        }
+        changes.add(ProfileChange.Refinement.of(input.length(), measurement));
+        return changes;
+    }
+    
+    /**
+     * Learn from an archive of refinements, a JSONL file or a directory (see
+     * {@link CorpusLearner}), and save the profile once. Pairs are diffed in parallel and
+     * every candidate is recorded with all its sightings, so a correction seen often
+     * enough across the corpus is active straight away.
+     */
+    public synchronized CorpusStats learnFromCorpus(Path source, CorpusProgress progress) throws IOException {
+        long started = System.nanoTime();
+        CorpusLearner.Corpus corpus = CorpusLearner.read(source);
         
-        // Update statistics
-        profile.updateStatistics(input.length(), System.currentTimeMillis());
+        // Built once up front; the profile does not change while pairs are tallied
+        getVocabulary();
+        CorpusLearner.Tally tally = CorpusLearner.tally(corpus.pairs(), (pair, counts) -> {
+            for (Correction c : extractCorrections(pair.input(), pair.refined())) {
+                counts.addCorrection(c.wrong, c.right);
+            }
+            for (String filler : extractFillers(pair.input(), pair.refined())) {
+                counts.addFiller(filler);
+            }
+        }, progress);
         
-        // Save profile
-        saveProfile();
+        int promoted = apply(tally.changes(System.currentTimeMillis()));
+        // One bulk import is better folded into the snapshot than left in the journal
+        compactProfile();
+        long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+        return new CorpusStats(corpus.pairs().size(), corpus.skipped(), corpus.chars(), tally.candidates(), promoted,
+            elapsedMs);
     }
     
     /**
-     * Extract corrections from input/refined pair.
+     * Extract corrections from input/refined pair. The word sequences are aligned with
+     * a token diff, so a word the refinement added or dropped does not shift every later
+     * pair. Each changed run becomes a correction if it is one word for one, one word
+     * for a few ("pushto" -> "push to") or a few for one ("get hub" -> "GitHub"); words
+     * that only changed case are learned as capitalizations.
      */
     private List<Correction> extractCorrections(String input, String refined) {
         List<Correction> corrections = new ArrayList<>();
         
-        // Simple word-level comparison
-        String[] inputWords = input.toLowerCase().split("\\s+");
-        String[] refinedWords = refined.toLowerCase().split("\\s+");
+        // Words only; punctuation is its own token so "github," pairs with "GitHub,"
+        TokenSpans inputTokens = TokenSpans.tokenize(input);
+        TokenSpans refinedTokens = TokenSpans.tokenize(refined);
+        int[] inputWords = wordTokens(inputTokens);
+        int[] refinedWords = wordTokens(refinedTokens);
         
-        // Use simple algorithm for now
-        int minLen = Math.min(inputWords.length, refinedWords.length);
+        Map<String, Integer> ids = new HashMap<>();
+        int[] match = TokenDiff.align(foldedIds(inputTokens, inputWords, ids), foldedIds(refinedTokens, refinedWords, ids),
+            MAX_DIFF_EDITS);
+        if (match == null) {
+            return corrections;
+        }
         
-        for (int i = 0; i < minLen; i++) {
-            String inputWord = inputWords[i];
-            String refinedWord = refinedWords[i];
-            
-            if (!inputWord.equals(refinedWord) && isValidCorrection(inputWord, refinedWord)) {
-                corrections.add(new Correction(inputWord, refinedWord));
+        int previousInput = -1;
+        int previousRefined = -1;
+        for (int i = 0; i <= inputWords.length; i++) {
+            if (i < inputWords.length && match[i] < 0) {
+                continue;
+            }
+            int j = i < inputWords.length ? match[i] : refinedWords.length;
+            addHunk(inputTokens, inputWords, previousInput + 1, i, refinedTokens, refinedWords, previousRefined + 1, j,
+                corrections);
+            if (i < inputWords.length) {
+                Correction capitalization = capitalization(inputTokens, inputWords[i], refinedTokens, refinedWords[j]);
+                if (capitalization != null) {
+                    corrections.add(capitalization);
+                }
             }
+            previousInput = i;
+            previousRefined = j;
         }
         
         return corrections;
     }
     
+    /**
+     * Turn the words {@code input[from, to)} that were replaced by
+     * {@code refined[refinedFrom, refinedTo)} into corrections.
+     */
+    private void addHunk(TokenSpans inputTokens, int[] inputWords, int from, int to,
+                         TokenSpans refinedTokens, int[] refinedWords, int refinedFrom, int refinedTo,
+                         List<Correction> corrections) {
+        int removed = to - from;
+        int added = refinedTo - refinedFrom;
+        if (removed == 0 || added == 0) {
+            return;
+        }
+        if (removed == added) {
+            for (int k = 0; k < removed; k++) {
+                String wrong = inputTokens.folded(inputWords[from + k]);
+                String right = learnedCasing(refinedTokens, refinedWords[refinedFrom + k], refinedWords[refinedFrom + k]);
+                if (isValidCorrection(wrong, right.toLowerCase())) {
+                    corrections.add(new Correction(wrong, right));
+                }
+            }
+        } else if ((removed == 1 || added == 1) && Math.max(removed, added) <= MAX_HUNK_WORDS) {
+            StringBuilder wrong = new StringBuilder();
+            for (int k = from; k < to; k++) {
+                if (k > from) {
+                    wrong.append(' ');
+                }
+                wrong.append(inputTokens.folded(inputWords[k]));
+            }
+            // Keep what sits between the refined words: "nodejs" -> "Node.js"
+            String right = learnedCasing(refinedTokens, refinedWords[refinedFrom], refinedWords[refinedTo - 1]);
+            if (right.indexOf('\n') < 0 && isValidCorrection(lettersOf(wrong), lettersOf(right).toLowerCase())) {
+                corrections.add(new Correction(wrong.toString(), right));
+            }
+        }
+    }
+    
+    /**
+     * A capitalization for a word the refinement only re-cased ("json" -> "JSON"), or
+     * null if it is just a capital at the start of a sentence or nothing was raised.
+     */
+    private static Correction capitalization(TokenSpans inputTokens, int inputToken,
+                                             TokenSpans refinedTokens, int refinedToken) {
+        String wrong = inputTokens.toString(inputToken);
+        String right = learnedCasing(refinedTokens, refinedToken, refinedToken);
+        if (wrong.equals(right) || wrong.length() < MIN_WORD_LENGTH) {
+            return null;
+        }
+        for (int k = 0; k < right.length(); k++) {
+            if (Character.isUpperCase(right.charAt(k)) && !Character.isUpperCase(wrong.charAt(k))) {
+                return new Correction(wrong.toLowerCase(), right);
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Refined text from word {@code first} to word {@code last}, with a capital that is
+     * only there because a sentence starts lowered again.
+     */
+    private static String learnedCasing(TokenSpans tokens, int first, int last) {
+        String text = tokens.text().subSequence(tokens.start(first), tokens.end(last)).toString();
+        if (!startsSentence(tokens, first) || text.length() < 2 || !Character.isUpperCase(text.charAt(0))) {
+            return text;
+        }
+        for (int k = 1; k < text.length(); k++) {
+            if (Character.isUpperCase(text.charAt(k))) {
+                return text;   // "GitHub", "JSON"
+            }
+        }
+        return Character.toLowerCase(text.charAt(0)) + text.substring(1);
+    }
+    
+    private static boolean startsSentence(TokenSpans tokens, int i) {
+        for (int p = i - 1; p >= 0; p--) {
+            if (tokens.isWord(p)) {
+                return false;
+            }
+            if (endsSentence(tokens, p)) {
+                return true;
+            }
+        }
+        return true;
+    }
+    
+    private static int[] wordTokens(TokenSpans tokens) {
+        int[] words = new int[tokens.size()];
+        int count = 0;
+        for (int i = 0; i < tokens.size(); i++) {
+            if (tokens.isWord(i)) {
+                words[count++] = i;
+            }
+        }
+        return Arrays.copyOf(words, count);
+    }
+    
+    private static int[] wordIds(TokenSpans tokens, int[] words, Map<String, Integer> ids) {
+        int[] result = new int[words.length];
+        for (int k = 0; k < words.length; k++) {
+            result[k] = ids.computeIfAbsent(tokens.toString(words[k]), key -> ids.size());
+        }
+        return result;
+    }
+    
+    private static int[] foldedIds(TokenSpans tokens, int[] words, Map<String, Integer> ids) {
+        int[] result = new int[words.length];
+        for (int k = 0; k < words.length; k++) {
+            result[k] = ids.computeIfAbsent(tokens.folded(words[k]), key -> ids.size());
+        }
+        return result;
+    }
+    
+    private static String lettersOf(CharSequence text) {
+        StringBuilder letters = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            if (TokenSpans.isWordChar(text.charAt(i))) {
+                letters.append(text.charAt(i));
+            }
+        }
+        return letters.toString();
+    }
+    
+    /**
+     * Interjections the refinement dropped: words made only of filler sounds ("umm",
+     * "mmhmm") that occur at least twice in the input, never in the refined text, and
+     * are not real words.
+     */
+    private List<String> extractFillers(String input, String refined) {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        TokenSpans inputTokens = TokenSpans.tokenize(input);
+        for (int i = 0; i < inputTokens.size(); i++) {
+            if (inputTokens.isWord(i) && inputTokens.length(i) <= MAX_FILLER_LENGTH) {
+                counts.merge(inputTokens.folded(i), 1, Integer::sum);
+            }
+        }
+        
+        Set<String> kept = new HashSet<>();
+        TokenSpans refinedTokens = TokenSpans.tokenize(refined);
+        for (int j = 0; j < refinedTokens.size(); j++) {
+            if (refinedTokens.isWord(j)) {
+                kept.add(refinedTokens.folded(j));
+            }
+        }
+        
+        WordSegmenter segmenter = getVocabulary().segmenter;
+        List<String> fillers = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            String word = entry.getKey();
+            if (entry.getValue() >= 2 && !kept.contains(word) && isFillerSound(word)
+                    && !segmenter.isKnown(word, 0, word.length()) && !profile.snapshot().getFillerWords().contains(word)) {
+                fillers.add(word);
+            }
+        }
+        return fillers;
+    }
+    
+    private static boolean isFillerSound(String word) {
+        for (int i = 0; i < word.length(); i++) {
+            if ("ahmuer".indexOf(word.charAt(i)) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
     /**
      * Check if a correction is valid.
      */
@@ -176,75 +1046,163 @@ public class LearningService {
             return false;
         }
         
-        // Check similarity
-        double similarity = calculateSimilarity(wrong, right);
-        if (similarity < MIN_SIMILARITY && !wrong.equalsIgnoreCase(right)) {
+        // Check similarity; mis-heard words may be spelled differently but sound the same
+        if (!isSimilar(wrong, right) && !PhoneticIndex.soundsAlike(wrong, right)) {
             return false;
         }
         
         // Don't correct numbers
-        if (wrong.matches("\\d+") || right.matches("\\d+")) {
+        if (isNumber(wrong) || isNumber(right)) {
             return false;
         }
         
         return true;
     }
     
-    /**
-     * Calculate string similarity (simple algorithm).
-     */
-    private double calculateSimilarity(String s1, String s2) {
-        if (s1.equalsIgnoreCase(s2)) {
-            return 1.0;
+    private static boolean isNumber(String s) {
+        if (s.isEmpty()) {
+            return false;
         }
-        
-        int maxLen = Math.max(s1.length(), s2.length());
-        int distance = levenshteinDistance(s1, s2);
-        return 1.0 - (double) distance / maxLen;
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) < '0' || s.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return true;
     }
     
     /**
-     * Calculate Levenshtein distance.
+     * Whether similarity (1 - edit distance / longer length) is at least
+     * {@link #MIN_SIMILARITY}. The distance is only computed up to that bound.
      */
-    private int levenshteinDistance(String s1, String s2) {
-        int[][] dp = new int[s1.length() + 1][s2.length() + 1];
-        
-        for (int i = 0; i <= s1.length(); i++) {
-            dp[i][0] = i;
-        }
-        
-        for (int j = 0; j <= s2.length(); j++) {
-            dp[0][j] = j;
-        }
-        
-        for (int i = 1; i <= s1.length(); i++) {
-            for (int j = 1; j <= s2.length(); j++) {
-                int cost = s1.charAt(i - 1) == s2.charAt(j - 1) ? 0 : 1;
-                dp[i][j] = Math.min(dp[i - 1][j] + 1,
-                           Math.min(dp[i][j - 1] + 1, dp[i - 1][j - 1] + cost));
-            }
+    private static boolean isSimilar(String s1, String s2) {
+        if (s1.equalsIgnoreCase(s2)) {
+            return true;
         }
         
-        return dp[s1.length()][s2.length()];
+        int maxLen = Math.max(s1.length(), s2.length());
+        int maxDistance = (int) Math.floor((1 - MIN_SIMILARITY) * maxLen);
+        return EditDistance.levenshtein(s1, s2, maxDistance) <= maxDistance;
     }
     
     // Static helper methods for easy access
     public static int getLearnedThreshold() {
-        return getInstance().profile.getMinDurationForRefinement();
+        return getInstance().profile.snapshot().getMinDurationForRefinement();
     }
     
     public int getCorrectionCount() {
-        return profile.getCorrectionsCount();
+        return profile.snapshot().getCorrectionsCount();
     }
     
     public int getTotalRefinements() {
-        return profile.getTotalRefinements();
+        return profile.snapshot().getTotalRefinements();
     }
     
+    /**
+     * The live profile, for writing. Readers on other threads should use its
+     * {@link UserProfile#snapshot()}.
+     */
     public UserProfile getProfile() {
         return profile;
     }
     
+    /**
+     * Background learning counters, for spotting when learning falls behind.
+     */
+    public static class LearningStats {
+        public final int queueDepth;
+        public final long dropped;
+        public final long processed;
+        public final long saves;
+        public final long lastFlushMs;
+        public final boolean lastFlushTimedOut;
+        
+        LearningStats(int queueDepth, long dropped, long processed, long saves, long lastFlushMs,
+                      boolean lastFlushTimedOut) {
+            this.queueDepth = queueDepth;
+            this.dropped = dropped;
+            this.processed = processed;
+            this.saves = saves;
+            this.lastFlushMs = lastFlushMs;
+            this.lastFlushTimedOut = lastFlushTimedOut;
+        }
+    }
+    
+    /**
+     * Receives corpus learning progress; may be called from several threads.
+     */
+    @FunctionalInterface
+    public interface CorpusProgress {
+        void report(int done, int total);
+    }
+    
+    /**
+     * Outcome of {@link #learnFromCorpus}.
+     */
+    public static class CorpusStats {
+        public final int pairs;
+        public final int skipped;
+        public final long chars;
+        public final int candidates;
+        public final int promoted;
+        public final long elapsedMs;
+        
+        CorpusStats(int pairs, int skipped, long chars, int candidates, int promoted, long elapsedMs) {
+            this.pairs = pairs;
+            this.skipped = skipped;
+            this.chars = chars;
+            this.candidates = candidates;
+            this.promoted = promoted;
+            this.elapsedMs = elapsedMs;
+        }
+        
+        public double pairsPerSecond() {
+            return elapsedMs > 0 ? pairs * 1000.0 / elapsedMs : pairs;
+        }
+    }
+    
+    /**
+     * Predicted chance that refining is worth it, and the threshold it is held to. A few
+     * estimates below the threshold are explored: refined anyway, so the predictor is
+     * calibrated on the kind of transcript it would otherwise always skip.
+     */
+    public static class RefinementEstimate {
+        public final double score;
+        public final double threshold;
+        public final boolean explore;
+        
+        RefinementEstimate(double score, double threshold, boolean explore) {
+            this.score = score;
+            this.threshold = threshold;
+            this.explore = explore;
+        }
+        
+        public boolean isWorthRefining() {
+            return score >= threshold;
+        }
+        
+        /**
+         * Whether to call the LLM: worth it, or picked for exploration.
+         */
+        public boolean shouldRefine() {
+            return isWorthRefining() || explore;
+        }
+        
+        /**
+         * "refine", "explore" or "skip", as the sidecar reports it.
+         */
+        public String decision() {
+            return isWorthRefining() ? "refine" : explore ? "explore" : "skip";
+        }
+    }
+    
+    /**
+     * A value derived from the profile, with the revision it was derived at. Kept in one
+     * field so readers never pair a value with another revision.
+     */
+    private record Revised<T>(T value, int revision) {
+    }
+    
     /**
      * Simple correction pair.
      */
@@ -0,0 +1,195 @@
+package dev.voxcompose.learning;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Single writer for learned corrections. Refinements are queued without blocking the
+ * caller; one daemon thread applies them in batches and saves the profile once the
+ * queue has been quiet for a debounce interval, instead of once per refinement.
+ *
+ * <p>The queue is bounded: when learning falls behind, new events are dropped and
+ * counted rather than piling up. {@link #flush} waits, up to a time limit, until
+ * everything queued so far is applied and saved; a shutdown hook calls it so an exiting
+ * JVM does not cut a save short.
+ */
+final class LearningWorker {
+    static final int DEFAULT_CAPACITY = 256;
+    static final long DEFAULT_DEBOUNCE_MS = 250;
+    private static final int MAX_BATCH = 64;
+    // A steady stream of events still saves at least this often
+    private static final int MAX_DEBOUNCES = 20;
+
+    /**
+     * What an LLM refinement cost and changed, for the adaptive threshold, and the
+     * predictor features of its input.
+     */
+    record Measurement(int durationSeconds, long responseTimeMs, double editValue, double[] features) {
+    }
+
+    record Event(String input, String refined, Measurement measurement, CountDownLatch flushed) {
+        boolean isFlush() {
+            return flushed != null;
+        }
+    }
+
+    private final Consumer<List<Event>> learner;
+    private final Runnable saver;
+    private final BlockingQueue<Event> queue;
+    private final long debounceMs;
+    private volatile long flushTimeoutMs;
+
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong saves = new AtomicLong();
+    private volatile long lastFlushMs;
+    private volatile boolean lastFlushTimedOut;
+    private Thread thread;
+
+    LearningWorker(Consumer<List<Event>> learner, Runnable saver, int capacity, long debounceMs, long flushTimeoutMs) {
+        this.learner = learner;
+        this.saver = saver;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.debounceMs = debounceMs;
+        this.flushTimeoutMs = flushTimeoutMs;
+    }
+
+    void setFlushTimeoutMs(long flushTimeoutMs) {
+        this.flushTimeoutMs = flushTimeoutMs;
+    }
+
+    /**
+     * Queue a refinement to learn from.
+     *
+     * @return false if the queue was full and the event was dropped
+     */
+    boolean submit(String input, String refined) {
+        return submit(input, refined, null);
+    }
+
+    boolean submit(String input, String refined, Measurement measurement) {
+        start();
+        if (queue.offer(new Event(input, refined, measurement, null))) {
+            return true;
+        }
+        dropped.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Wait until everything submitted so far has been learned and saved, for at most
+     * the configured flush timeout.
+     *
+     * @return false if the timeout ran out first
+     */
+    boolean flush() {
+        synchronized (this) {
+            if (thread == null) {
+                return true;
+            }
+        }
+        long started = System.nanoTime();
+        long deadline = started + TimeUnit.MILLISECONDS.toNanos(flushTimeoutMs);
+        Event marker = new Event(null, null, null, new CountDownLatch(1));
+        boolean done;
+        try {
+            done = queue.offer(marker, flushTimeoutMs, TimeUnit.MILLISECONDS)
+                && marker.flushed().await(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            done = false;
+        }
+        lastFlushMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        lastFlushTimedOut = !done;
+        return done;
+    }
+
+    LearningService.LearningStats stats() {
+        return new LearningService.LearningStats(queue.size(), dropped.get(), processed.get(), saves.get(),
+            lastFlushMs, lastFlushTimedOut);
+    }
+
+    private synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        thread = new Thread(this::run, "voxcompose-learning");
+        thread.setDaemon(true);
+        thread.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::flush, "voxcompose-learning-flush"));
+    }
+
+    private void run() {
+        List<Event> batch = new ArrayList<>(MAX_BATCH);
+        List<Event> learned = new ArrayList<>(MAX_BATCH);
+        boolean dirty = false;
+        long dirtySince = 0;
+        while (true) {
+            Event first;
+            try {
+                first = dirty ? queue.poll(debounceMs, TimeUnit.MILLISECONDS) : queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (first == null) {
+                // Quiet for a whole debounce interval
+                save();
+                dirty = false;
+                continue;
+            }
+
+            batch.add(first);
+            queue.drainTo(batch, MAX_BATCH - 1);
+            boolean flush = false;
+            for (Event event : batch) {
+                if (event.isFlush()) {
+                    flush = true;
+                } else {
+                    learned.add(event);
+                }
+            }
+            if (!learned.isEmpty()) {
+                try {
+                    learner.accept(learned);
+                    processed.addAndGet(learned.size());
+                    if (!dirty) {
+                        dirty = true;
+                        dirtySince = System.nanoTime();
+                    }
+                } catch (RuntimeException e) {
+                    System.err.println("Failed to learn from refinement: " + e.getMessage());
+                }
+            }
+            boolean overdue = dirty && System.nanoTime() - dirtySince
+                >= TimeUnit.MILLISECONDS.toNanos(debounceMs * MAX_DEBOUNCES);
+            if (flush || overdue) {
+                if (dirty) {
+                    save();
+                    dirty = false;
+                }
+                for (Event event : batch) {
+                    if (event.isFlush()) {
+                        event.flushed().countDown();
+                    }
+                }
+            }
+            batch.clear();
+            learned.clear();
+        }
+    }
+
+    private void save() {
+        try {
+            saver.run();
+            saves.incrementAndGet();
+        } catch (RuntimeException e) {
+            System.err.println("Failed to save profile: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package dev.voxcompose.learning;
+
+import dev.voxcompose.text.TermDictionary;
+import dev.voxcompose.text.TokenSpans;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Sound-alike index over the learned vocabulary, for speech-to-text mistakes such as
+ * "jason" -> "JSON" or "engine x" -> "nginx".
+ *
+ * <p>Keys are a Metaphone-style consonant skeleton: vowels are dropped, letters that
+ * sound alike share a code and repeats collapse, and anything that is not a letter is
+ * skipped, so "engine x" and "nginx" both become {@code NJNKS}. A lookup is one hash
+ * probe. Keys shared by two different terms are ambiguous and never match.
+ */
+final class PhoneticIndex {
+    private static final int MIN_KEY_LENGTH = 3;
+    private static final int AMBIGUOUS = -1;
+
+    private final TermDictionary keys;
+    private final String[] targets;     // key id -> term, or null if ambiguous
+
+    private PhoneticIndex(TermDictionary keys, String[] targets) {
+        this.keys = keys;
+        this.targets = targets;
+    }
+
+    @SafeVarargs
+    static PhoneticIndex build(Collection<String>... sources) {
+        TermDictionary keys = new TermDictionary();
+        String[] targets = new String[16];
+        int[] state = new int[16];   // 0 = unset, 1 = one term, AMBIGUOUS = several
+        for (Collection<String> source : sources) {
+            for (String term : source) {
+                if (term == null) {
+                    continue;
+                }
+                String key = key(term, 0, term.length());
+                if (key.length() < MIN_KEY_LENGTH) {
+                    continue;
+                }
+                int id = keys.add(key);
+                if (id >= targets.length) {
+                    targets = Arrays.copyOf(targets, targets.length * 2);
+                    state = Arrays.copyOf(state, state.length * 2);
+                }
+                if (state[id] == 0) {
+                    targets[id] = term;
+                    state[id] = 1;
+                } else if (!targets[id].equalsIgnoreCase(term)) {
+                    state[id] = AMBIGUOUS;
+                }
+            }
+        }
+        for (int id = 0; id < keys.size(); id++) {
+            if (state[id] == AMBIGUOUS) {
+                targets[id] = null;
+            }
+        }
+        return new PhoneticIndex(keys, Arrays.copyOf(targets, keys.size()));
+    }
+
+    boolean isEmpty() {
+        return keys.isEmpty();
+    }
+
+    /**
+     * The term that sounds like {@code text[start, end)}, or null if there is none, it
+     * is ambiguous, or the text already spells it (ignoring case and spaces).
+     */
+    String lookup(CharSequence text, int start, int end) {
+        if (isEmpty()) {
+            return null;
+        }
+        String key = key(text, start, end);
+        if (key.length() < MIN_KEY_LENGTH) {
+            return null;
+        }
+        int id = keys.find(key);
+        String target = id < 0 ? null : targets[id];
+        if (target == null || sameLetters(text, start, end, target)) {
+            return null;
+        }
+        return target;
+    }
+
+    static boolean soundsAlike(String a, String b) {
+        String key = key(a, 0, a.length());
+        return key.length() >= MIN_KEY_LENGTH && key.equals(key(b, 0, b.length()));
+    }
+
+    /**
+     * Phonetic key of the letters in {@code text[start, end)}.
+     */
+    static String key(CharSequence text, int start, int end) {
+        char[] w = new char[end - start];
+        int n = 0;
+        for (int i = start; i < end; i++) {
+            char c = TokenSpans.fold(text.charAt(i));
+            if (c >= 'a' && c <= 'z') {
+                w[n++] = c;
+            }
+        }
+
+        StringBuilder out = new StringBuilder(n);
+        int i = 0;
+        if (n >= 2 && ((w[0] == 'k' || w[0] == 'g' || w[0] == 'p') && w[1] == 'n'
+                || w[0] == 'w' && w[1] == 'r' || w[0] == 'a' && w[1] == 'e')) {
+            i = 1;   // silent first letter: knife, gnome, pneumatic, write, aerial
+        }
+        for (; i < n; i++) {
+            char c = w[i];
+            char prev = i > 0 ? w[i - 1] : 0;
+            char next = i + 1 < n ? w[i + 1] : 0;
+            char after = i + 2 < n ? w[i + 2] : 0;
+            if (c == prev && c != 'c') {
+                continue;
+            }
+            switch (c) {
+                case 'a', 'e', 'i', 'o', 'u' -> { }
+                case 'b' -> {
+                    if (!(prev == 'm' && i == n - 1)) {
+                        emit(out, 'B');
+                    }
+                }
+                case 'c' -> {
+                    if (next == 'h') {
+                        emit(out, prev == 's' ? 'K' : 'X');
+                        i++;
+                    } else if (next == 'i' && after == 'a') {
+                        emit(out, 'X');
+                    } else if (next == 'i' || next == 'e' || next == 'y') {
+                        emit(out, 'S');
+                    } else {
+                        emit(out, 'K');
+                    }
+                }
+                case 'd' -> {
+                    if (next == 'g' && (after == 'e' || after == 'i' || after == 'y')) {
+                        emit(out, 'J');
+                        i++;
+                    } else {
+                        emit(out, 'T');
+                    }
+                }
+                case 'g' -> {
+                    if (next == 'h') {
+                        if (i == 0) {
+                            emit(out, 'K');
+                        }
+                        i++;
+                    } else if (next == 'n' && (i + 2 == n || after == 'e' && i + 4 == n && w[i + 3] == 'd')) {
+                        // silent: sign, signed
+                    } else if (next == 'e' || next == 'i' || next == 'y') {
+                        emit(out, 'J');
+                    } else {
+                        emit(out, 'K');
+                    }
+                }
+                case 'h' -> {
+                    if (isVowel(next) && prev != 'c' && prev != 's' && prev != 'p' && prev != 't' && prev != 'g') {
+                        emit(out, 'H');
+                    }
+                }
+                case 'k' -> {
+                    if (prev != 'c') {
+                        emit(out, 'K');
+                    }
+                }
+                case 'p' -> {
+                    if (next == 'h') {
+                        emit(out, 'F');
+                        i++;
+                    } else {
+                        emit(out, 'P');
+                    }
+                }
+                case 'q' -> {
+                    emit(out, 'K');
+                    if (next == 'u') {
+                        emit(out, 'W');
+                        i++;
+                    }
+                }
+                case 's' -> {
+                    if (next == 'h') {
+                        emit(out, 'X');
+                        i++;
+                    } else if (next == 'i' && (after == 'o' || after == 'a')) {
+                        emit(out, 'X');
+                    } else {
+                        emit(out, 'S');
+                    }
+                }
+                case 't' -> {
+                    if (next == 'i' && (after == 'o' || after == 'a')) {
+                        emit(out, 'X');
+                    } else if (next == 'h') {
+                        emit(out, '0');
+                        i++;
+                    } else if (!(next == 'c' && after == 'h')) {
+                        emit(out, 'T');
+                    }
+                }
+                case 'v' -> emit(out, 'F');
+                case 'w', 'y' -> {
+                    if (isVowel(next)) {
+                        emit(out, Character.toUpperCase(c));
+                    }
+                }
+                case 'x' -> {
+                    if (i > 0) {
+                        emit(out, 'K');
+                    }
+                    emit(out, 'S');
+                }
+                case 'z' -> emit(out, 'S');
+                default -> emit(out, Character.toUpperCase(c));
+            }
+        }
+        return out.toString();
+    }
+
+    private static void emit(StringBuilder out, char code) {
+        if (out.isEmpty() || out.charAt(out.length() - 1) != code) {
+            out.append(code);
+        }
+    }
+
+    private static boolean isVowel(char c) {
+        return c == 'a' || c == 'e' || c == 'i' || c == 'o' || c == 'u';
+    }
+
+    private static boolean sameLetters(CharSequence text, int start, int end, String term) {
+        int t = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                continue;
+            }
+            if (t >= term.length() || TokenSpans.fold(c) != TokenSpans.fold(term.charAt(t++))) {
+                return false;
+            }
+        }
+        return t == term.length();
+    }
+}
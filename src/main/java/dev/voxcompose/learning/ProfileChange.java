@@ -0,0 +1,147 @@
+package dev.voxcompose.learning;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+/**
+ * One learning step on a {@link UserProfile}. Learning builds these, applies them to the
+ * profile in memory and appends them to the {@link ProfileStore} journal, which replays
+ * them on load. Each carries everything it needs, including its timestamp, so replaying
+ * it gives the same profile as applying it did.
+ */
+sealed interface ProfileChange {
+
+    /**
+     * Apply this change to {@code profile}.
+     *
+     * @return whether it activated a correction rule
+     */
+    boolean applyTo(UserProfile profile);
+
+    /**
+     * One journal line, without the newline.
+     */
+    JsonObject toJson();
+
+    /**
+     * The change a journal line holds, or null if the line is not a change.
+     */
+    static ProfileChange fromJson(JsonObject json) {
+        JsonElement type = json.get("type");
+        if (type == null || !type.isJsonPrimitive()) {
+            return null;
+        }
+        switch (type.getAsString()) {
+            case Correction.TYPE:
+                return new Correction(json.get("wrong").getAsString(), json.get("right").getAsString(),
+                    json.get("sightings").getAsInt(), json.get("at").getAsLong());
+            case Filler.TYPE:
+                return new Filler(json.get("word").getAsString());
+            case Refinement.TYPE:
+                JsonArray array = json.has("features") ? json.getAsJsonArray("features") : null;
+                double[] features = null;
+                if (array != null) {
+                    features = new double[array.size()];
+                    for (int i = 0; i < features.length; i++) {
+                        features[i] = array.get(i).getAsDouble();
+                    }
+                }
+                return new Refinement(json.get("length").getAsInt(), json.get("responseMs").getAsLong(),
+                    json.get("duration").getAsInt(), json.get("editValue").getAsDouble(), features);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * {@code sightings} sightings of {@code wrong} corrected to {@code right}.
+     */
+    record Correction(String wrong, String right, int sightings, long at) implements ProfileChange {
+        static final String TYPE = "correction";
+
+        @Override
+        public boolean applyTo(UserProfile profile) {
+            return profile.observeCorrection(wrong, right, sightings, at);
+        }
+
+        @Override
+        public JsonObject toJson() {
+            JsonObject json = new JsonObject();
+            json.addProperty("type", TYPE);
+            json.addProperty("wrong", wrong);
+            json.addProperty("right", right);
+            json.addProperty("sightings", sightings);
+            json.addProperty("at", at);
+            return json;
+        }
+    }
+
+    /**
+     * A filler the refinement dropped.
+     */
+    record Filler(String word) implements ProfileChange {
+        static final String TYPE = "filler";
+
+        @Override
+        public boolean applyTo(UserProfile profile) {
+            profile.addFillerWord(word);
+            return false;
+        }
+
+        @Override
+        public JsonObject toJson() {
+            JsonObject json = new JsonObject();
+            json.addProperty("type", TYPE);
+            json.addProperty("word", word);
+            return json;
+        }
+    }
+
+    /**
+     * Statistics of one refinement. {@code responseMs} is negative when the LLM call was
+     * not measured; {@code features} is null unless the predictor should be calibrated.
+     */
+    record Refinement(int length, long responseMs, int duration, double editValue, double[] features)
+            implements ProfileChange {
+        static final String TYPE = "refinement";
+
+        static Refinement of(int length, LearningWorker.Measurement measurement) {
+            if (measurement == null) {
+                return new Refinement(length, -1, 0, 0, null);
+            }
+            return new Refinement(length, measurement.responseTimeMs(), measurement.durationSeconds(),
+                measurement.editValue(), measurement.features());
+        }
+
+        @Override
+        public boolean applyTo(UserProfile profile) {
+            if (responseMs < 0) {
+                profile.updateStatistics(length);
+                return false;
+            }
+            profile.updateStatistics(length, responseMs);
+            profile.recordRefinement(duration, editValue);
+            profile.calibrateRefinementValue(features, editValue);
+            return false;
+        }
+
+        @Override
+        public JsonObject toJson() {
+            JsonObject json = new JsonObject();
+            json.addProperty("type", TYPE);
+            json.addProperty("length", length);
+            json.addProperty("responseMs", responseMs);
+            json.addProperty("duration", duration);
+            json.addProperty("editValue", editValue);
+            if (features != null) {
+                JsonArray array = new JsonArray(features.length);
+                for (double feature : features) {
+                    array.add(feature);
+                }
+                json.add("features", array);
+            }
+            return json;
+        }
+    }
+}
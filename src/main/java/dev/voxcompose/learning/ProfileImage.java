@@ -0,0 +1,143 @@
+package dev.voxcompose.learning;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Binary copy of the profile snapshot, learned_profile.json.bin, so a run can start
+ * without reading and binding the JSON.
+ *
+ * <p>The image records the size and modification time of the JSON it was written with
+ * and the JSON's SHA-256. Loading checks the JSON's attributes, memory-maps the image
+ * and copies the flat arrays out: rule and vocabulary tables come with their string
+ * arenas and hash tables ({@link dev.voxcompose.text.TermDictionary#encode}), so no
+ * term is hashed and no String is built until it is used. If the JSON was edited or the
+ * image is missing or corrupt, the JSON is loaded instead and stays the readable,
+ * editable record.
+ *
+ * <pre>
+ * int magic | int version | long json size | long json modified (ns) | byte[32] json hash
+ *   | int payload length | long crc32 | payload
+ * </pre>
+ */
+final class ProfileImage {
+    static final String SUFFIX = ".bin";
+
+    private static final int MAGIC = 0x56585046; // "VXPF"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HASH_BYTES = 32;
+    private static final int HEADER_BYTES = 2 * Integer.BYTES + 2 * Long.BYTES + HASH_BYTES + Integer.BYTES + Long.BYTES;
+
+    private final Path path;
+
+    /**
+     * A profile read from the image and the hash of the JSON it mirrors.
+     */
+    record Loaded(UserProfile profile, byte[] jsonHash) {
+    }
+
+    ProfileImage(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Image that lives next to the given profile.
+     */
+    static ProfileImage forProfile(Path profilePath) {
+        return new ProfileImage(profilePath.resolveSibling(profilePath.getFileName() + SUFFIX));
+    }
+
+    /**
+     * Load the profile if the image was written for a JSON file with these attributes.
+     *
+     * @return the profile, or null if the image is missing, stale, from another format version or corrupt
+     */
+    Loaded load(BasicFileAttributes json) {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES) {
+                return null;
+            }
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buf.getInt() != MAGIC || buf.getInt() != FORMAT_VERSION) {
+                return null;
+            }
+            if (buf.getLong() != json.size() || buf.getLong() != modified(json)) {
+                return null;
+            }
+            byte[] jsonHash = new byte[HASH_BYTES];
+            buf.get(jsonHash);
+            int length = buf.getInt();
+            long checksum = buf.getLong();
+            if (length != size - HEADER_BYTES) {
+                return null;
+            }
+            ByteBuffer payload = buf.slice();
+            if (crc(payload) != checksum) {
+                return null;
+            }
+            return new Loaded(UserProfile.decode(payload), jsonHash);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Ignoring profile image: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Write the image of {@code profile} for the JSON file with these attributes and
+     * hash, replacing any previous image atomically.
+     */
+    void save(BasicFileAttributes json, byte[] jsonHash, UserProfile profile) {
+        try {
+            long encoded = profile.encodedSize();
+            if (encoded > Integer.MAX_VALUE - HEADER_BYTES) {
+                throw new IllegalStateException("Profile too large for an image: " + encoded + " bytes");
+            }
+            int length = (int) encoded;
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            profile.encode(payload);
+            payload.flip();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(json.size()).putLong(modified(json)).put(jsonHash)
+                .putInt(length).putLong(crc(payload));
+            header.flip();
+
+            Path tmp = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+            try {
+                try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                    while (header.hasRemaining() || payload.hasRemaining()) {
+                        channel.write(new ByteBuffer[] {header, payload});
+                    }
+                }
+                Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Failed to save profile image: " + e.getMessage());
+        }
+    }
+
+    private static long modified(BasicFileAttributes json) {
+        return json.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+    }
+
+    private static long crc(ByteBuffer payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,131 @@
+package dev.voxcompose.learning;
+
+import dev.voxcompose.text.TermMap;
+import dev.voxcompose.text.TermSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable view of a {@link UserProfile} at one revision. The profile publishes a new
+ * snapshot after every change; readers take the current one without locking and can
+ * use it for as long as they like while learning carries on.
+ *
+ * <p>Rules and vocabulary are copied only when the profile's revision changed. A
+ * snapshot that only carries new statistics shares them with the one before.
+ */
+public final class ProfileSnapshot {
+    private final int revision;
+    private final Map<String, String> wordCorrections;
+    private final Map<String, String> capitalizations;
+    private final Map<String, String> phraseCorrections;
+    private final List<String> technicalVocabulary;
+    private final List<String> fillerWords;
+
+    private final int minDurationForRefinement;
+    private final double minEditValue;
+    private final double averageRefinementTime;
+    private final int totalRefinements;
+    private final double refinementValueThreshold;
+    private final double[] refinementValueWeights;
+
+    private ProfileSnapshot(int revision, Map<String, String> wordCorrections, Map<String, String> capitalizations,
+                            Map<String, String> phraseCorrections, List<String> technicalVocabulary,
+                            List<String> fillerWords, UserProfile profile) {
+        this.revision = revision;
+        this.wordCorrections = wordCorrections;
+        this.capitalizations = capitalizations;
+        this.phraseCorrections = phraseCorrections;
+        this.technicalVocabulary = technicalVocabulary;
+        this.fillerWords = fillerWords;
+        this.minDurationForRefinement = profile.getMinDurationForRefinement();
+        this.minEditValue = profile.getMinEditValue();
+        this.averageRefinementTime = profile.getAverageRefinementTime();
+        this.totalRefinements = profile.getTotalRefinements();
+        this.refinementValueThreshold = profile.getRefinementValueThreshold();
+        this.refinementValueWeights = profile.copyRefinementValueWeights();
+    }
+
+    /**
+     * Snapshot of {@code profile}, copying its rules unless {@code previous} already
+     * holds them at the same revision.
+     */
+    static ProfileSnapshot of(UserProfile profile, ProfileSnapshot previous) {
+        int revision = profile.getRevision();
+        if (previous != null && previous.revision == revision) {
+            return new ProfileSnapshot(revision, previous.wordCorrections, previous.capitalizations,
+                previous.phraseCorrections, previous.technicalVocabulary, previous.fillerWords, profile);
+        }
+        return new ProfileSnapshot(revision, copy(profile.wordCorrectionTable()), copy(profile.capitalizationTable()),
+            copy(profile.phraseCorrectionTable()), copy(profile.technicalVocabularyTable()),
+            copy(profile.fillerWordTable()), profile);
+    }
+
+    // Array copies: no term is rehashed, so even a large profile is snapshotted quickly
+    private static Map<String, String> copy(TermMap rules) {
+        return Collections.unmodifiableMap(rules.copy());
+    }
+
+    private static List<String> copy(TermSet terms) {
+        return terms.copy().asList();
+    }
+
+    /**
+     * The profile revision this snapshot was taken at.
+     */
+    public int getRevision() {
+        return revision;
+    }
+
+    public Map<String, String> getWordCorrections() {
+        return wordCorrections;
+    }
+
+    public Map<String, String> getCapitalizations() {
+        return capitalizations;
+    }
+
+    public Map<String, String> getPhraseCorrections() {
+        return phraseCorrections;
+    }
+
+    public List<String> getTechnicalVocabulary() {
+        return technicalVocabulary;
+    }
+
+    public List<String> getFillerWords() {
+        return fillerWords;
+    }
+
+    public int getCorrectionsCount() {
+        return wordCorrections.size() + capitalizations.size() + phraseCorrections.size();
+    }
+
+    public int getMinDurationForRefinement() {
+        return minDurationForRefinement;
+    }
+
+    public double getMinEditValue() {
+        return minEditValue;
+    }
+
+    public double getAverageRefinementTime() {
+        return averageRefinementTime;
+    }
+
+    public int getTotalRefinements() {
+        return totalRefinements;
+    }
+
+    public double getRefinementValueThreshold() {
+        return refinementValueThreshold;
+    }
+
+    /**
+     * Estimated chance that refining text with these {@link RefinementPredictor}
+     * features is worth it.
+     */
+    double scoreRefinementValue(double[] features) {
+        return RefinementPredictor.score(refinementValueWeights, features);
+    }
+}
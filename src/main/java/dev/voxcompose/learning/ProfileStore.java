@@ -0,0 +1,388 @@
+package dev.voxcompose.learning;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Stores the profile as a snapshot, learned_profile.json, plus a journal of the
+ * {@link ProfileChange}s made since, learned_profile.json.journal. Learning appends a few
+ * hundred bytes per refinement to the journal instead of rewriting the whole profile;
+ * loading replays the journal onto the snapshot, and once the journal holds
+ * {@value #COMPACT_ENTRIES} entries or {@value #COMPACT_BYTES} bytes it is compacted
+ * into a new snapshot.
+ *
+ * <p>The journal starts with a header naming the hash of the snapshot it applies to.
+ * Compaction renames a new snapshot into place and then a fresh journal, so a crash in
+ * between leaves a journal whose header no longer matches and which is ignored; a crash
+ * while appending leaves a torn last line, which is skipped and cut off by the next
+ * append. Snapshots are written to a temporary file, flushed and renamed, and mirrored
+ * by a {@link ProfileImage} that later runs load instead of the JSON.
+ *
+ * <p>Every read and write holds an exclusive lock on a {@code .lock} file next to the
+ * profile. If another process appended or compacted since this one last looked, the
+ * profile is rebuilt from disk and this process's unsaved changes are replayed onto it,
+ * so concurrent sessions add up.
+ *
+ * <p>The state is keyed by a hash chained over the snapshot and each journal line; with
+ * an empty journal it is the SHA-256 of the snapshot, as {@link CorrectionIndex} expects.
+ */
+final class ProfileStore {
+    static final String JOURNAL_SUFFIX = ".journal";
+    static final int COMPACT_ENTRIES = 1000;
+    static final long COMPACT_BYTES = 256 * 1024;
+
+    // FileChannel locks are held per process, so stores within one JVM queue here first
+    private static final Object IN_PROCESS = new Object();
+    private static final String BASE = "base";
+
+    private final Path path;
+    private final Path journalPath;
+    private final Path lockPath;
+    private final ProfileImage image;
+
+    // The files as this store last read or wrote them
+    private byte[] base;
+    private Object snapshotStamp;
+    private long journalLength;
+    private int journalEntries;
+    private byte[] key;
+    private boolean unreadable;
+
+    /**
+     * A profile as stored: the one in memory after a load or save (rebuilt from disk if
+     * another process had changed the files), its revision, the key of the stored state
+     * and whether the journal is due for {@link #compact}.
+     */
+    record Stored(UserProfile profile, int revision, byte[] key, boolean compactionDue) {
+    }
+
+    ProfileStore(Path path) {
+        this.path = path;
+        this.journalPath = path.resolveSibling(path.getFileName() + JOURNAL_SUFFIX);
+        this.lockPath = path.resolveSibling(path.getFileName() + ".lock");
+        this.image = ProfileImage.forProfile(path);
+    }
+
+    /**
+     * Load the snapshot and replay the journal onto it. A missing snapshot is an empty
+     * profile; an unreadable one is reported, treated as empty and replaced by the next
+     * save.
+     */
+    Stored load() throws IOException {
+        synchronized (IN_PROCESS) {
+            if (!Files.exists(path) && !Files.exists(journalPath)) {
+                return stored(new UserProfile());
+            }
+            return locked(this::rebuild);
+        }
+    }
+
+    /**
+     * Append {@code changes}, which {@code profile} already holds, to the journal, or
+     * write the first snapshot if there is none yet. If the files changed since this
+     * store last read or wrote them, the profile is rebuilt from disk and the changes are
+     * replayed onto it first.
+     */
+    Stored save(UserProfile profile, List<ProfileChange> changes) throws IOException {
+        return locked(() -> {
+            UserProfile latest = profile;
+            if (!isCurrent()) {
+                latest = rebuild().profile();
+                UserProfile merged = latest;
+                merged.update(() -> changes.forEach(change -> change.applyTo(merged)));
+            }
+            if (!Files.exists(path) || unreadable) {
+                writeSnapshot(latest);
+            } else if (!changes.isEmpty()) {
+                append(changes);
+            }
+            return stored(latest);
+        });
+    }
+
+    /**
+     * Write {@code profile} as the new snapshot and start an empty journal, if the files
+     * are still as this store last saw them and {@code profile} holds exactly what they
+     * do.
+     *
+     * @return the key of the compacted state, or null if the files had moved on
+     */
+    byte[] compact(UserProfile profile) throws IOException {
+        return locked(() -> {
+            if (!isCurrent()) {
+                return null;
+            }
+            writeSnapshot(profile);
+            return key;
+        });
+    }
+
+    private void writeSnapshot(UserProfile profile) throws IOException {
+        byte[] bytes = profile.toJson().getBytes(StandardCharsets.UTF_8);
+        Path parent = path.toAbsolutePath().getParent();
+        writeAtomically(parent, path, bytes);
+        base = CorrectionIndex.hash(bytes);
+        snapshotStamp = stamp();
+        image.save(Files.readAttributes(path, BasicFileAttributes.class), base, profile);
+        byte[] header = header(base);
+        writeAtomically(parent, journalPath, header);
+        key = base;
+        journalLength = header.length;
+        journalEntries = 0;
+        unreadable = false;
+    }
+
+    /**
+     * Run {@code action} holding both the in-process monitor and the lock file.
+     */
+    private <T> T locked(LockedAction<T> action) throws IOException {
+        synchronized (IN_PROCESS) {
+            Files.createDirectories(path.toAbsolutePath().getParent());
+            try (FileChannel channel = FileChannel.open(lockPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                FileLock lock = channel.lock();
+                try {
+                    return action.run();
+                } finally {
+                    lock.release();
+                }
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface LockedAction<T> {
+        T run() throws IOException;
+    }
+
+    private Stored stored(UserProfile profile) {
+        if (key == null) {
+            base = CorrectionIndex.hash(new byte[0]);
+            key = base;
+        }
+        boolean compactionDue = journalEntries >= COMPACT_ENTRIES || journalLength >= COMPACT_BYTES;
+        return new Stored(profile, profile.getRevision(), key, compactionDue);
+    }
+
+    /**
+     * Whether the snapshot is still the file this store last saw and the journal still
+     * has the length and base it last saw.
+     */
+    private boolean isCurrent() throws IOException {
+        if (base == null) {
+            return !Files.exists(path) && !Files.exists(journalPath);
+        }
+        if (!Objects.equals(snapshotStamp, stamp())) {
+            return false;
+        }
+        if (!Files.exists(journalPath)) {
+            // Only before the first append to a profile that predates the journal
+            return journalLength == 0;
+        }
+        if (Files.size(journalPath) != journalLength) {
+            return false;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(journalPath, StandardCharsets.UTF_8)) {
+            String header = reader.readLine();
+            return header != null && Arrays.equals(base, journalBase(header));
+        }
+    }
+
+    /**
+     * Read the snapshot, from its {@link ProfileImage} if that is current, and replay
+     * the journal written for it, remembering where the last whole entry ends.
+     */
+    private Stored rebuild() throws IOException {
+        UserProfile profile = readSnapshot();
+        snapshotStamp = stamp();
+        key = base;
+        journalLength = 0;
+        journalEntries = 0;
+
+        byte[] journal = Files.exists(journalPath) ? Files.readAllBytes(journalPath) : new byte[0];
+        int lineEnd = indexOf(journal, 0);
+        if (lineEnd >= 0 && Arrays.equals(base, journalBase(new String(journal, 0, lineEnd, StandardCharsets.UTF_8)))) {
+            journalLength = lineEnd + 1;
+            UserProfile target = profile;
+            target.update(() -> replay(target, journal));
+        }
+        return stored(profile);
+    }
+
+    /**
+     * The snapshot profile, setting {@link #base}. A JSON file without a current image
+     * is parsed and gets one for the next run.
+     */
+    private UserProfile readSnapshot() throws IOException {
+        unreadable = false;
+        if (!Files.exists(path)) {
+            base = CorrectionIndex.hash(new byte[0]);
+            return new UserProfile();
+        }
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        ProfileImage.Loaded loaded = image.load(attributes);
+        if (loaded != null) {
+            base = loaded.jsonHash();
+            return loaded.profile();
+        }
+
+        byte[] bytes = Files.readAllBytes(path);
+        base = CorrectionIndex.hash(bytes);
+        UserProfile profile = null;
+        if (bytes.length > 0) {
+            try {
+                profile = UserProfile.fromJson(new String(bytes, StandardCharsets.UTF_8));
+            } catch (JsonParseException e) {
+                System.err.println("Failed to load profile, replacing unreadable file: " + e.getMessage());
+                unreadable = true;
+            }
+        }
+        if (profile == null) {
+            return new UserProfile();
+        }
+        image.save(attributes, base, profile);
+        return profile;
+    }
+
+    private void replay(UserProfile profile, byte[] journal) {
+        int start = (int) journalLength;
+        int end;
+        while ((end = indexOf(journal, start)) >= 0) {
+            ProfileChange change = parse(new String(journal, start, end - start, StandardCharsets.UTF_8));
+            if (change == null) {
+                // A torn or foreign line; nothing after it is trusted
+                break;
+            }
+            change.applyTo(profile);
+            key = chain(key, journal, start, end);
+            journalEntries++;
+            journalLength = end + 1;
+            start = end + 1;
+        }
+    }
+
+    /**
+     * Identity of the snapshot file: a rename gives a new file key or modification time.
+     */
+    private Object stamp() throws IOException {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        return List.of(attributes.size(), attributes.lastModifiedTime(), Objects.toString(attributes.fileKey()));
+    }
+
+    private static ProfileChange parse(String line) {
+        try {
+            JsonElement element = JsonParser.parseString(line);
+            return element.isJsonObject() ? ProfileChange.fromJson(element.getAsJsonObject()) : null;
+        } catch (RuntimeException e) {
+            // A torn line fails to parse, a malformed entry in the field accessors
+            return null;
+        }
+    }
+
+    private void append(List<ProfileChange> changes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (journalLength == 0) {
+            out.writeBytes(header(base));
+        }
+        for (ProfileChange change : changes) {
+            byte[] line = change.toJson().toString().getBytes(StandardCharsets.UTF_8);
+            key = chain(key, line, 0, line.length);
+            out.write(line, 0, line.length);
+            out.write('\n');
+        }
+        byte[] bytes = out.toByteArray();
+        try (FileChannel channel = FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            // Cut off a torn entry a crash may have left
+            long position = journalLength;
+            channel.truncate(position);
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            channel.force(false);
+        }
+        journalLength += bytes.length;
+        journalEntries += changes.size();
+    }
+
+    private static byte[] header(byte[] base) {
+        JsonObject header = new JsonObject();
+        header.addProperty(BASE, HexFormat.of().formatHex(base));
+        return (header + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] journalBase(String line) {
+        try {
+            JsonElement element = JsonParser.parseString(line);
+            if (element.isJsonObject() && element.getAsJsonObject().has(BASE)) {
+                return HexFormat.of().parseHex(element.getAsJsonObject().get(BASE).getAsString());
+            }
+        } catch (JsonParseException | IllegalArgumentException | IllegalStateException e) {
+            // Not a header
+        }
+        return null;
+    }
+
+    private static byte[] chain(byte[] key, byte[] line, int start, int end) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(key);
+            digest.update(line, start, end - start);
+            return digest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static int indexOf(byte[] bytes, int from) {
+        for (int i = from; i < bytes.length; i++) {
+            if (bytes[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static void writeAtomically(Path parent, Path target, byte[] bytes) throws IOException {
+        Path temp = Files.createTempFile(parent, target.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+                out.force(true);
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
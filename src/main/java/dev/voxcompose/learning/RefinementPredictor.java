@@ -0,0 +1,149 @@
+package dev.voxcompose.learning;
+
+import dev.voxcompose.text.MarkdownFormatter;
+import dev.voxcompose.text.TokenSpans;
+
+/**
+ * Cheap local estimate of whether an LLM pass would be worth its latency, from a few
+ * features of the transcript. The score is a logistic model of the chance that the
+ * refinement changes at least the profile's minimum edit value; its weights start from
+ * a hand-set prior and are nudged by every refinement that does run.
+ */
+final class RefinementPredictor {
+    static final String[] FEATURE_NAMES = {
+        "disfluency", "sentence_variation", "run_on", "unknown_words", "structure_cues"
+    };
+    // Bias first, then one weight per feature. The bias alone scores 0.62, above the
+    // default threshold, so an uncalibrated profile refines everything it used to
+    static final double[] PRIOR_WEIGHTS = {0.5, 3.0, 1.0, 3.0, 2.0, 2.0};
+    /** Share of skips that refine anyway, so the weights keep seeing those cases. */
+    static final double EXPLORATION_RATE = 0.05;
+
+    private static final double LEARNING_RATE = 0.1;
+    private static final int RUN_ON_WORDS = 25;
+    private static final int MIN_UNKNOWN_LENGTH = 3;
+    private static final double DISFLUENCY_SATURATION = 0.2;   // share of words removed
+    private static final double VARIATION_SATURATION = 1.0;    // coefficient of variation
+    private static final int CUE_SATURATION = 2;
+
+    private RefinementPredictor() {
+    }
+
+    /**
+     * Features of a raw transcript, each scaled to [0, 1]:
+     * <ul>
+     *   <li>share of words disfluency removal drops</li>
+     *   <li>variation of sentence lengths (coefficient of variation)</li>
+     *   <li>share of words in sentences over {@value #RUN_ON_WORDS} words</li>
+     *   <li>share of words that are neither English nor learned</li>
+     *   <li>spoken structure cues ("first, ...", "new paragraph")</li>
+     * </ul>
+     */
+    static double[] features(String input, LearnedVocabulary vocabulary) {
+        double[] x = new double[FEATURE_NAMES.length];
+        TokenSpans tokens = TokenSpans.tokenize(input);
+        int words = 0;
+        int unknown = 0;
+        int runOnWords = 0;
+        int sentences = 0;
+        double sum = 0;
+        double sumSquares = 0;
+        int sentenceWords = 0;
+        for (int i = 0; i <= tokens.size(); i++) {
+            if (i == tokens.size() || endsSentence(tokens, i)) {
+                if (sentenceWords > 0) {
+                    sentences++;
+                    sum += sentenceWords;
+                    sumSquares += (double) sentenceWords * sentenceWords;
+                    if (sentenceWords > RUN_ON_WORDS) {
+                        runOnWords += sentenceWords;
+                    }
+                }
+                sentenceWords = 0;
+                continue;
+            }
+            if (!tokens.isWord(i)) {
+                continue;
+            }
+            words++;
+            sentenceWords++;
+            if (tokens.length(i) >= MIN_UNKNOWN_LENGTH && isLetters(tokens, i)
+                    && !vocabulary.segmenter.isKnown(tokens.text(), tokens.start(i), tokens.end(i))) {
+                unknown++;
+            }
+        }
+        if (words == 0) {
+            return x;
+        }
+
+        int kept = countWords(vocabulary.disfluencies.apply(input));
+        x[0] = saturate((double) (words - kept) / words, DISFLUENCY_SATURATION);
+        double mean = sum / sentences;
+        double variance = Math.max(0, sumSquares / sentences - mean * mean);
+        x[1] = saturate(Math.sqrt(variance) / mean, VARIATION_SATURATION);
+        x[2] = (double) runOnWords / words;
+        x[3] = (double) unknown / words;
+        x[4] = saturate(MarkdownFormatter.countCues(input), CUE_SATURATION);
+        return x;
+    }
+
+    /**
+     * Estimated chance, in [0, 1], that refining is worth it.
+     */
+    static double score(double[] weights, double[] features) {
+        double z = weights[0];
+        for (int k = 0; k < features.length; k++) {
+            z += weights[k + 1] * features[k];
+        }
+        return 1 / (1 + Math.exp(-z));
+    }
+
+    /**
+     * One stochastic gradient step of the log loss towards the observed outcome.
+     */
+    static void calibrate(double[] weights, double[] features, boolean worthIt) {
+        double error = (worthIt ? 1 : 0) - score(weights, features);
+        weights[0] += LEARNING_RATE * error;
+        for (int k = 0; k < features.length; k++) {
+            weights[k + 1] += LEARNING_RATE * error * features[k];
+        }
+    }
+
+    private static double saturate(double value, double full) {
+        return Math.max(0, Math.min(1, value / full));
+    }
+
+    private static int countWords(String text) {
+        TokenSpans tokens = TokenSpans.tokenize(text);
+        int words = 0;
+        for (int i = 0; i < tokens.size(); i++) {
+            if (tokens.isWord(i)) {
+                words++;
+            }
+        }
+        return words;
+    }
+
+    private static boolean endsSentence(TokenSpans tokens, int i) {
+        if (tokens.isWord(i)) {
+            return false;
+        }
+        for (int p = tokens.start(i); p < tokens.end(i); p++) {
+            char c = tokens.text().charAt(p);
+            if (c == '!' || c == '?' || c == '\n') {
+                return true;
+            }
+        }
+        // Not the dot in "Node.js" or "3.5"
+        return tokens.text().charAt(tokens.start(i)) == '.' && (i + 1 == tokens.size() || !tokens.isWord(i + 1));
+    }
+
+    private static boolean isLetters(TokenSpans tokens, int i) {
+        for (int p = tokens.start(i); p < tokens.end(i); p++) {
+            if (!Character.isLetter(tokens.text().charAt(p))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
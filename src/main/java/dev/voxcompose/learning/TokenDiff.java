@@ -0,0 +1,98 @@
+package dev.voxcompose.learning;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Myers O(ND) diff over token id sequences, used to line up a transcript with its
+ * refinement so that corrections are learned from the words that actually changed.
+ *
+ * <p>The common prefix and suffix are stripped first. The search keeps one frontier
+ * snapshot per edit, so time is O((N + M) * D) and memory O(D^2). It gives up once D
+ * exceeds the caller's budget, which keeps very different long texts cheap.
+ */
+final class TokenDiff {
+
+    private TokenDiff() {
+    }
+
+    /**
+     * Align {@code a} with {@code b} using the fewest insertions and deletions.
+     *
+     * @return for each index of {@code a}, the index of the equal token in {@code b} it
+     *         is aligned with, or -1 if it was deleted; null if more than
+     *         {@code maxEdits} edits are needed
+     */
+    static int[] align(int[] a, int[] b, int maxEdits) {
+        int n = a.length;
+        int m = b.length;
+        int[] match = new int[n];
+        Arrays.fill(match, -1);
+
+        int prefix = 0;
+        while (prefix < n && prefix < m && a[prefix] == b[prefix]) {
+            match[prefix] = prefix;
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < n - prefix && suffix < m - prefix && a[n - 1 - suffix] == b[m - 1 - suffix]) {
+            match[n - 1 - suffix] = m - 1 - suffix;
+            suffix++;
+        }
+
+        int rows = n - prefix - suffix;
+        int cols = m - prefix - suffix;
+        if (rows == 0 || cols == 0) {
+            return rows + cols <= maxEdits ? match : null;
+        }
+        int max = Math.min(rows + cols, maxEdits);
+        int offset = max + 1;
+        int[] v = new int[2 * max + 3];
+        List<int[]> trace = new ArrayList<>();
+
+        for (int d = 0; d <= max; d++) {
+            // Frontier before this round, for k in [-d-1, d+1]
+            trace.add(Arrays.copyOfRange(v, offset - d - 1, offset + d + 2));
+            for (int k = -d; k <= d; k += 2) {
+                int x;
+                if (k == -d || k != d && v[offset + k - 1] < v[offset + k + 1]) {
+                    x = v[offset + k + 1];
+                } else {
+                    x = v[offset + k - 1] + 1;
+                }
+                int y = x - k;
+                while (x < rows && y < cols && a[prefix + x] == b[prefix + y]) {
+                    x++;
+                    y++;
+                }
+                v[offset + k] = x;
+                if (x >= rows && y >= cols) {
+                    backtrack(trace, rows, cols, prefix, match);
+                    return match;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static void backtrack(List<int[]> trace, int rows, int cols, int prefix, int[] match) {
+        int x = rows;
+        int y = cols;
+        for (int d = trace.size() - 1; d >= 0; d--) {
+            int[] v = trace.get(d);
+            int base = d + 1;   // v[base + k] is the frontier on diagonal k
+            int k = x - y;
+            int previousK = k == -d || k != d && v[base + k - 1] < v[base + k + 1] ? k + 1 : k - 1;
+            int previousX = d == 0 ? 0 : v[base + previousK];
+            int previousY = d == 0 ? 0 : previousX - previousK;
+            while (x > previousX && y > previousY) {
+                x--;
+                y--;
+                match[prefix + x] = prefix + y;
+            }
+            x = previousX;
+            y = previousY;
+        }
+    }
+}
@@ -1,87 +1,536 @@
 package dev.voxcompose.learning;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.Strictness;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import dev.voxcompose.text.TermMap;
+import dev.voxcompose.text.TermSet;
 import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * User profile containing learned corrections and patterns.
  */
-public class UserProfile {
-    // Learned corrections
-    private Map<String, String> wordCorrections = new HashMap<>();
-    private Map<String, String> capitalizations = new HashMap<>();
-    private List<String> technicalVocabulary = new ArrayList<>();
+public final class UserProfile {
+    // Adaptive threshold tuning
+    private static final int DURATION_BUCKET_SECONDS = 5;
+    private static final int DURATION_BUCKETS = 13;        // the last one is 60s and over
+    private static final double VALUE_SMOOTHING = 0.2;
+    private static final int MIN_BUCKET_SAMPLES = 5;
+    private static final double MIN_EDIT_VALUE = 0.05;
+    private static final double REFERENCE_LATENCY_MS = 2000;
+    private static final int MIN_THRESHOLD_SECONDS = 3;
+    private static final int MAX_THRESHOLD_SECONDS = 60;
+    
+    // Revisions come from one counter, so a profile that replaces another (a merge with
+    // the file on disk) never reuses a revision and caches keyed by it stay correct
+    private static final AtomicInteger REVISIONS = new AtomicInteger();
+    private static final JsonCodec JSON_CODEC = new JsonCodec();
+    
+    // Learned corrections, packed into char arenas (same JSON shape as plain maps and lists)
+    private TermMap wordCorrections = new TermMap();
+    private TermMap capitalizations = new TermMap();
+    private TermSet technicalVocabulary = new TermSet();
+    private TermMap phraseCorrections = new TermMap();   // "get hub" -> "GitHub"
+    private TermSet fillerWords = new TermSet();          // removed before corrections ("umm")
+    
+    // How often each learned correction was seen, keyed like the rule it becomes
+    private Map<String, Observation> observations = new LinkedHashMap<>();
+    // Observations as decode() read them, decoded on first use (not persisted)
+    private transient byte[] encodedObservations;
     
     // Usage patterns
     private double averageInputLength = 0;
-    private double averageRefinementTime = 0;
+    private double averageRefinementTime = 0;   // LLM latency (ms), over timed refinements only
     private int totalRefinements = 0;
+    private int timedRefinements = 0;
     
     // Optimization thresholds
     private int minDurationForRefinement = 21;
     private double refinementValueThreshold = 0.6;
+    private double[] refinementValueWeights;   // see RefinementPredictor; null until calibrated
+    
+    // Adaptive threshold: smoothed edit value and sample count per clip-duration bucket
+    private double[] editValueByDuration;
+    private int[] refinementsByDuration;
+    
+    // Learned rule limits: sightings before a correction is applied, active rule cap, score half-life
+    private int minObservationsForRule = 2;
+    private int maxActiveRules = 2000;
+    private double ruleHalfLifeDays = 30;
     
     // Statistics
     private String lastUpdated;
     private int correctionsApplied = 0;
     private double accuracyImprovement = 0;
     
+    // Changes whenever the correction rules or vocabulary change (not persisted)
+    private transient int revision = REVISIONS.incrementAndGet();
+    
+    // What readers see: replaced, never changed, after each change (not persisted). The
+    // first one is taken here, once every field it reads is set
+    private final transient AtomicReference<ProfileSnapshot> snapshot = new AtomicReference<>(ProfileSnapshot.of(this, null));
+    private transient int updateDepth = 0;
+    
     public UserProfile() {
-        updateTimestamp();
+        this.lastUpdated = LocalDateTime.now().toString();
     }
     
-    public void addCorrection(String wrong, String right) {
-        if (wrong != null && right != null && !wrong.equals(right)) {
-            // Detect capitalization vs word correction
-            if (wrong.equalsIgnoreCase(right)) {
-                capitalizations.put(wrong.toLowerCase(), right);
-            } else {
-                wordCorrections.put(wrong, right);
+    /**
+     * Sightings of one correction. A different replacement for the same text starts
+     * the count again.
+     */
+    static class Observation {
+        String right;
+        int count;
+        long lastSeen;
+        
+        Observation() {
+        }
+        
+        Observation(String right, long lastSeen) {
+            this.right = right;
+            this.lastSeen = lastSeen;
+        }
+        
+        /**
+         * Sightings, halved for every {@code halfLifeDays} since the last one.
+         */
+        double score(long now, double halfLifeDays) {
+            double ageDays = Math.max(0, now - lastSeen) / 86_400_000.0;
+            return count * Math.pow(0.5, ageDays / halfLifeDays);
+        }
+    }
+    
+    /**
+     * Record that learning saw {@code wrong} corrected to {@code right}. The correction
+     * only becomes an active rule once it has been seen
+     * {@link #getMinObservationsForRule()} times in a row; once more than
+     * {@link #getMaxActiveRules()} rules are active, the ones with the lowest decayed
+     * sighting count are evicted.
+     *
+     * @return whether this sighting activated the rule
+     */
+    public boolean observeCorrection(String wrong, String right) {
+        return observeCorrection(wrong, right, System.currentTimeMillis());
+    }
+    
+    boolean observeCorrection(String wrong, String right, long now) {
+        return observeCorrection(wrong, right, 1, now);
+    }
+    
+    /**
+     * Record {@code sightings} sightings at once, as corpus learning does.
+     */
+    boolean observeCorrection(String wrong, String right, int sightings, long now) {
+        if (sightings <= 0 || wrong == null || right == null || right.isBlank()) {
+            return false;
+        }
+        String key = ruleKey(wrong);
+        if (key.isEmpty() || key.equals(right)) {
+            return false;
+        }
+        
+        Observation observation = observations().get(key);
+        if (observation == null || !observation.right.equals(right)) {
+            observation = new Observation(right, now);
+            observations().put(key, observation);
+        }
+        observation.count += sightings;
+        observation.lastSeen = now;
+        
+        updateDepth++;
+        try {
+            boolean promoted = false;
+            if (observation.count >= minObservationsForRule && !isActive(key, right)) {
+                putRule(key, right);
+                promoted = true;
+                evictRules(now);
             }
-            updateTimestamp();
+            evictObservations(now);
+            return promoted;
+        } finally {
+            updateDepth--;
+            changed();
+        }
+    }
+    
+    /**
+     * Add a rule that replaces {@code wrong}. Phrase corrections (text with a space) and
+     * capitalizations are stored under their rule key, lower-case with single spaces, so
+     * variants of the same text share one rule. A word correction keeps its case.
+     */
+    public void addCorrection(String wrong, String right) {
+        if (wrong == null || right == null) {
+            return;
+        }
+        String key = ruleKey(wrong);
+        if (key.isEmpty() || key.equals(right)) {
+            return;
+        }
+        if (key.indexOf(' ') >= 0) {
+            addPhraseCorrection(key, right);
+            return;
+        }
+        confirm(key, right);
+        // Detect capitalization vs word correction; word corrections match case-sensitively,
+        // so they keep the case they were given ("Kubernetis")
+        if (key.equalsIgnoreCase(right)) {
+            capitalizations.put(key, right);
+        } else {
+            wordCorrections.put(wrong.trim(), right);
+        }
+        revision = REVISIONS.incrementAndGet();
+        changed();
+    }
+    
+    /**
+     * Add a rule that replaces a run of tokens, such as "get hub" -> "GitHub". The phrase
+     * is matched case-insensitively across any spaces, so it is stored lower-case with
+     * single spaces.
+     */
+    public void addPhraseCorrection(String phrase, String replacement) {
+        if (phrase == null || replacement == null || replacement.isBlank()) {
+            return;
+        }
+        String key = String.join(" ", phrase.trim().toLowerCase().split("\\s+"));
+        if (!key.isEmpty() && !key.equals(replacement) && !replacement.equals(phraseCorrections.get(key))) {
+            confirm(key, replacement);
+            phraseCorrections.put(key, replacement);
+            revision = REVISIONS.incrementAndGet();
+            changed();
+        }
+    }
+    
+    /**
+     * Add a filler to remove from transcripts, on top of the built-in ones ("um", "uh").
+     * Stored lower-case with single spaces.
+     */
+    public void addFillerWord(String filler) {
+        if (filler == null || filler.isBlank()) {
+            return;
+        }
+        String key = String.join(" ", filler.trim().toLowerCase().split("\\s+"));
+        if (fillerWords.add(key)) {
+            revision = REVISIONS.incrementAndGet();
+            changed();
         }
     }
     
     public void addTechnicalTerm(String term) {
-        if (term != null && !technicalVocabulary.contains(term)) {
-            technicalVocabulary.add(term);
-            updateTimestamp();
+        if (term != null && technicalVocabulary.add(term)) {
+            revision = REVISIONS.incrementAndGet();
+            changed();
         }
     }
     
-    public void updateStatistics(int inputLength, long refinementTimeMs) {
+    /**
+     * Make sure an active rule has at least enough sightings to stay active.
+     */
+    private void confirm(String key, String right) {
+        Observation observation = observations().get(key);
+        if (observation == null || !observation.right.equals(right)) {
+            observation = new Observation(right, System.currentTimeMillis());
+            observations().put(key, observation);
+        }
+        observation.count = Math.max(observation.count, minObservationsForRule);
+    }
+    
+    private void putRule(String key, String right) {
+        if (key.indexOf(' ') >= 0) {
+            addPhraseCorrection(key, right);
+        } else {
+            addCorrection(key, right);
+        }
+    }
+    
+    private boolean isActive(String key, String right) {
+        if (key.indexOf(' ') >= 0) {
+            return right.equals(phraseCorrections.get(key));
+        }
+        return right.equals(key.equalsIgnoreCase(right) ? capitalizations.get(key) : wordCorrections.get(key));
+    }
+    
+    /**
+     * Lower-case with single spaces, the form rules are stored under.
+     */
+    private static String ruleKey(String text) {
+        return String.join(" ", text.trim().toLowerCase().split("\\s+"));
+    }
+    
+    /**
+     * Once more than {@code maxActiveRules} are active, drop the lowest-scoring rules
+     * down to 90% of the cap, so the rebuild is paid for rarely.
+     */
+    private void evictRules(long now) {
+        int active = getCorrectionsCount();
+        if (active <= maxActiveRules) {
+            return;
+        }
+        List<Map.Entry<String, Double>> scored = new ArrayList<>(active);
+        for (TermMap rules : List.of(wordCorrections, capitalizations, phraseCorrections)) {
+            for (int i = 0; i < rules.size(); i++) {
+                Observation observation = observations().get(ruleKey(rules.key(i)));
+                // Rules with no record (older profiles) count as just promoted
+                double score = observation != null ? observation.score(now, ruleHalfLifeDays) : minObservationsForRule;
+                scored.add(Map.entry(rules.key(i), score));
+            }
+        }
+        scored.sort(Map.Entry.comparingByValue());
+        
+        Set<String> evicted = new HashSet<>();
+        for (int i = 0; i < active - maxActiveRules * 9 / 10; i++) {
+            evicted.add(scored.get(i).getKey());
+        }
+        wordCorrections.removeKeys(evicted);
+        capitalizations.removeKeys(evicted);
+        phraseCorrections.removeKeys(evicted);
+        for (String key : evicted) {
+            observations().remove(ruleKey(key));
+        }
+        revision = REVISIONS.incrementAndGet();
+    }
+    
+    /**
+     * Keep at most twice the rule cap of sightings, dropping the lowest-scoring
+     * corrections that are not active.
+     */
+    private void evictObservations(long now) {
+        int limit = maxActiveRules * 2;
+        if (observations().size() <= limit) {
+            return;
+        }
+        List<Map.Entry<String, Observation>> candidates = new ArrayList<>();
+        for (Map.Entry<String, Observation> entry : observations().entrySet()) {
+            if (!isActive(entry.getKey(), entry.getValue().right)) {
+                candidates.add(entry);
+            }
+        }
+        candidates.sort(Comparator.comparingDouble(e -> e.getValue().score(now, ruleHalfLifeDays)));
+        int excess = observations().size() - limit * 9 / 10;
+        List<String> dropped = new ArrayList<>();
+        for (int i = 0; i < Math.min(excess, candidates.size()); i++) {
+            dropped.add(candidates.get(i).getKey());
+        }
+        observations().keySet().removeAll(dropped);
+    }
+    
+    /**
+     * Count a refinement that was learned from without a measured LLM call.
+     */
+    public void updateStatistics(int inputLength) {
         totalRefinements++;
         
         // Update rolling average
         averageInputLength = ((averageInputLength * (totalRefinements - 1)) + inputLength) / totalRefinements;
-        averageRefinementTime = ((averageRefinementTime * (totalRefinements - 1)) + refinementTimeMs) / totalRefinements;
         
-        updateTimestamp();
+        changed();
+    }
+    
+    /**
+     * Count a refinement together with the measured LLM response time.
+     */
+    public void updateStatistics(int inputLength, long refinementTimeMs) {
+        timedRefinements++;
+        averageRefinementTime = ((averageRefinementTime * (timedRefinements - 1)) + refinementTimeMs) / timedRefinements;
+        updateStatistics(inputLength);
+    }
+    
+    /**
+     * Record how much an LLM refinement of a clip changed the text (0 = nothing, 1 =
+     * everything) and move the duration threshold one second at a time: up while clips
+     * at the threshold are barely changed, down while they are changed a lot. The bar for
+     * "barely" scales with the average LLM latency, so a fast local model is used on
+     * shorter clips than a slow one.
+     */
+    public void recordRefinement(int durationSeconds, double editValue) {
+        if (durationSeconds <= 0) {
+            return;
+        }
+        if (editValueByDuration == null || editValueByDuration.length != DURATION_BUCKETS) {
+            editValueByDuration = new double[DURATION_BUCKETS];
+            refinementsByDuration = new int[DURATION_BUCKETS];
+        }
+        int bucket = durationBucket(durationSeconds);
+        double value = Math.max(0, Math.min(1, editValue));
+        editValueByDuration[bucket] = refinementsByDuration[bucket] == 0 ? value
+            : editValueByDuration[bucket] + VALUE_SMOOTHING * (value - editValueByDuration[bucket]);
+        refinementsByDuration[bucket]++;
+        
+        // Only clips at or above the threshold are refined, so judge the bucket it sits in
+        int current = durationBucket(minDurationForRefinement);
+        if (refinementsByDuration[current] >= MIN_BUCKET_SAMPLES) {
+            double minValue = getMinEditValue();
+            if (editValueByDuration[current] < minValue) {
+                minDurationForRefinement = Math.min(MAX_THRESHOLD_SECONDS, minDurationForRefinement + 1);
+            } else if (editValueByDuration[current] >= 2 * minValue) {
+                minDurationForRefinement = Math.max(MIN_THRESHOLD_SECONDS, minDurationForRefinement - 1);
+            }
+        }
+        changed();
+    }
+    
+    /**
+     * Edit value below which refining clips is not worth the wait: {@link #MIN_EDIT_VALUE}
+     * at {@link #REFERENCE_LATENCY_MS}, scaled with the average latency within 0.5x-2x.
+     */
+    public double getMinEditValue() {
+        double latency = timedRefinements > 0 ? averageRefinementTime / REFERENCE_LATENCY_MS : 1;
+        return MIN_EDIT_VALUE * Math.max(0.5, Math.min(2, latency));
+    }
+    
+    /**
+     * Calibrate the {@link RefinementPredictor} with a refinement that ran: it was worth
+     * it if it changed at least {@link #getMinEditValue()} of the words.
+     */
+    void calibrateRefinementValue(double[] features, double editValue) {
+        if (features == null) {
+            return;
+        }
+        if (refinementValueWeights == null || refinementValueWeights.length != RefinementPredictor.PRIOR_WEIGHTS.length) {
+            refinementValueWeights = RefinementPredictor.PRIOR_WEIGHTS.clone();
+        }
+        RefinementPredictor.calibrate(refinementValueWeights, features, editValue >= getMinEditValue());
+        changed();
+    }
+    
+    /**
+     * Current predictor weights, or the prior before the first calibration.
+     */
+    double[] copyRefinementValueWeights() {
+        boolean calibrated = refinementValueWeights != null
+            && refinementValueWeights.length == RefinementPredictor.PRIOR_WEIGHTS.length;
+        return (calibrated ? refinementValueWeights : RefinementPredictor.PRIOR_WEIGHTS).clone();
+    }
+    
+    /**
+     * Refinement is skipped when the predicted chance that it is worth it is lower.
+     */
+    public double getRefinementValueThreshold() {
+        return refinementValueThreshold;
+    }
+    
+    private static int durationBucket(int seconds) {
+        return Math.min(DURATION_BUCKETS - 1, Math.max(0, seconds) / DURATION_BUCKET_SECONDS);
     }
     
     public void updateThreshold(int newThreshold) {
         this.minDurationForRefinement = newThreshold;
-        updateTimestamp();
+        changed();
+    }
+    
+    /**
+     * Apply several changes and publish a single snapshot once they are all made.
+     */
+    public void update(Runnable changes) {
+        updateDepth++;
+        try {
+            changes.run();
+        } finally {
+            updateDepth--;
+            changed();
+        }
+    }
+    
+    /**
+     * The latest published snapshot. Never blocks and never copies; safe to call from
+     * any thread while a single writer keeps changing the profile.
+     */
+    public ProfileSnapshot snapshot() {
+        return snapshot.get();
     }
     
-    private void updateTimestamp() {
+    /**
+     * Stamp the change and, unless an {@link #update} is still running, publish it.
+     */
+    private void changed() {
         this.lastUpdated = LocalDateTime.now().toString();
+        if (updateDepth == 0) {
+            snapshot.set(ProfileSnapshot.of(this, snapshot.get()));
+        }
+    }
+    
+    // Tables ProfileSnapshot copies array by array; callers must not change them
+    TermMap wordCorrectionTable() {
+        return wordCorrections;
+    }
+    
+    TermMap capitalizationTable() {
+        return capitalizations;
+    }
+    
+    TermMap phraseCorrectionTable() {
+        return phraseCorrections;
     }
     
-    // Getters
+    TermSet technicalVocabularyTable() {
+        return technicalVocabulary;
+    }
+    
+    TermSet fillerWordTable() {
+        return fillerWords;
+    }
+    
+    // Getters return read-only views; nothing is copied
     public Map<String, String> getWordCorrections() {
-        return new HashMap<>(wordCorrections);
+        return Collections.unmodifiableMap(wordCorrections);
     }
     
     public Map<String, String> getCapitalizations() {
-        return new HashMap<>(capitalizations);
+        return Collections.unmodifiableMap(capitalizations);
     }
     
     public List<String> getTechnicalVocabulary() {
-        return new ArrayList<>(technicalVocabulary);
+        return technicalVocabulary.asList();
+    }
+    
+    public Map<String, String> getPhraseCorrections() {
+        return Collections.unmodifiableMap(phraseCorrections);
+    }
+    
+    public List<String> getFillerWords() {
+        return fillerWords.asList();
+    }
+    
+    public int getMinObservationsForRule() {
+        return minObservationsForRule;
+    }
+    
+    public int getMaxActiveRules() {
+        return maxActiveRules;
+    }
+    
+    /**
+     * Set how many sightings activate a learned correction and how many rules may be active.
+     */
+    public void setRuleLimits(int minObservations, int maxRules) {
+        this.minObservationsForRule = Math.max(1, minObservations);
+        this.maxActiveRules = Math.max(1, maxRules);
+        changed();
+    }
+    
+    /**
+     * Learned corrections seen so far but not yet active.
+     */
+    public int getCandidateCount() {
+        int candidates = 0;
+        for (Map.Entry<String, Observation> entry : observations().entrySet()) {
+            if (!isActive(entry.getKey(), entry.getValue().right)) {
+                candidates++;
+            }
+        }
+        return candidates;
     }
     
     public int getMinDurationForRefinement() {
@@ -92,28 +541,514 @@ public class UserProfile {
         return totalRefinements;
     }
     
+    /**
+     * Average measured LLM response time in milliseconds, or 0 before the first.
+     */
+    public double getAverageRefinementTime() {
+        return timedRefinements > 0 ? averageRefinementTime : 0;
+    }
+    
+    /**
+     * Counter that changes whenever word corrections, capitalizations, phrases, fillers or the vocabulary change.
+     */
+    public int getRevision() {
+        return revision;
+    }
+    
     public int getCorrectionsCount() {
-        return wordCorrections.size() + capitalizations.size();
+        return wordCorrections.size() + capitalizations.size() + phraseCorrections.size();
     }
     
+    /**
+     * Pretty-printed JSON, as {@link JsonCodec} writes it.
+     */
     public String toJson() {
-        Gson gson = new GsonBuilder().setPrettyPrinting().create();
-        return gson.toJson(this);
+        StringWriter out = new StringWriter();
+        try {
+            JsonWriter writer = new JsonWriter(out);
+            writer.setIndent("  ");
+            writer.setHtmlSafe(true);
+            JSON_CODEC.write(writer, this);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
     }
     
+    /**
+     * Read a profile from JSON; lenient, like the profiles earlier versions wrote.
+     *
+     * @return the profile, or null for an empty document
+     * @throws JsonParseException if the JSON is malformed or does not hold a profile
+     */
     public static UserProfile fromJson(String json) {
-        Gson gson = new Gson();
-        return gson.fromJson(json, UserProfile.class);
+        if (json == null || json.isBlank()) {
+            return null;
+        }
+        JsonReader reader = new JsonReader(new StringReader(json));
+        reader.setStrictness(Strictness.LENIENT);
+        try {
+            UserProfile profile = JSON_CODEC.read(reader);
+            return profile != null ? profile.loaded() : null;
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+    
+    /**
+     * Streams the profile to and from JSON field by field, in the order and format the
+     * reflective binding used to, so profiles written by either read back the same and
+     * nothing here needs reflection at run time.
+     */
+    private static final class JsonCodec extends TypeAdapter<UserProfile> {
+        
+        @Override
+        public void write(JsonWriter out, UserProfile profile) throws IOException {
+            if (profile == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            writeMap(out.name("wordCorrections"), profile.wordCorrections);
+            writeMap(out.name("capitalizations"), profile.capitalizations);
+            writeStrings(out.name("technicalVocabulary"), profile.technicalVocabulary);
+            writeMap(out.name("phraseCorrections"), profile.phraseCorrections);
+            writeStrings(out.name("fillerWords"), profile.fillerWords);
+            out.name("observations").beginObject();
+            for (Map.Entry<String, Observation> entry : profile.observations().entrySet()) {
+                Observation observation = entry.getValue();
+                out.name(entry.getKey()).beginObject();
+                if (observation.right != null) {
+                    out.name("right").value(observation.right);
+                }
+                out.name("count").value(observation.count);
+                out.name("lastSeen").value(observation.lastSeen);
+                out.endObject();
+            }
+            out.endObject();
+            out.name("averageInputLength").value(profile.averageInputLength);
+            out.name("averageRefinementTime").value(profile.averageRefinementTime);
+            out.name("totalRefinements").value(profile.totalRefinements);
+            out.name("timedRefinements").value(profile.timedRefinements);
+            out.name("minDurationForRefinement").value(profile.minDurationForRefinement);
+            out.name("refinementValueThreshold").value(profile.refinementValueThreshold);
+            writeDoubles(out, "refinementValueWeights", profile.refinementValueWeights);
+            writeDoubles(out, "editValueByDuration", profile.editValueByDuration);
+            if (profile.refinementsByDuration != null) {
+                out.name("refinementsByDuration").beginArray();
+                for (int count : profile.refinementsByDuration) {
+                    out.value(count);
+                }
+                out.endArray();
+            }
+            out.name("minObservationsForRule").value(profile.minObservationsForRule);
+            out.name("maxActiveRules").value(profile.maxActiveRules);
+            out.name("ruleHalfLifeDays").value(profile.ruleHalfLifeDays);
+            if (profile.lastUpdated != null) {
+                out.name("lastUpdated").value(profile.lastUpdated);
+            }
+            out.name("correctionsApplied").value(profile.correctionsApplied);
+            out.name("accuracyImprovement").value(profile.accuracyImprovement);
+            out.endObject();
+        }
+        
+        /**
+         * Read a profile object; unknown fields are skipped and null ones keep their
+         * defaults. The snapshot is left for the caller to publish.
+         */
+        @Override
+        public UserProfile read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            UserProfile profile = new UserProfile();
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    continue;
+                }
+                switch (name) {
+                    case "wordCorrections" -> profile.wordCorrections = readMap(in);
+                    case "capitalizations" -> profile.capitalizations = readMap(in);
+                    case "technicalVocabulary" -> profile.technicalVocabulary = readStrings(in);
+                    case "phraseCorrections" -> profile.phraseCorrections = readMap(in);
+                    case "fillerWords" -> profile.fillerWords = readStrings(in);
+                    case "observations" -> profile.observations = readObservations(in);
+                    case "averageInputLength" -> profile.averageInputLength = in.nextDouble();
+                    case "averageRefinementTime" -> profile.averageRefinementTime = in.nextDouble();
+                    case "totalRefinements" -> profile.totalRefinements = in.nextInt();
+                    case "timedRefinements" -> profile.timedRefinements = in.nextInt();
+                    case "minDurationForRefinement" -> profile.minDurationForRefinement = in.nextInt();
+                    case "refinementValueThreshold" -> profile.refinementValueThreshold = in.nextDouble();
+                    case "refinementValueWeights" -> profile.refinementValueWeights = readDoubles(in);
+                    case "editValueByDuration" -> profile.editValueByDuration = readDoubles(in);
+                    case "refinementsByDuration" -> profile.refinementsByDuration = readInts(in);
+                    case "minObservationsForRule" -> profile.minObservationsForRule = in.nextInt();
+                    case "maxActiveRules" -> profile.maxActiveRules = in.nextInt();
+                    case "ruleHalfLifeDays" -> profile.ruleHalfLifeDays = in.nextDouble();
+                    case "lastUpdated" -> profile.lastUpdated = readString(in);
+                    case "correctionsApplied" -> profile.correctionsApplied = in.nextInt();
+                    case "accuracyImprovement" -> profile.accuracyImprovement = in.nextDouble();
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return profile;
+        }
+        
+        private static void writeMap(JsonWriter out, TermMap map) throws IOException {
+            out.beginObject();
+            for (int i = 0; i < map.size(); i++) {
+                out.name(map.key(i)).value(map.value(i));
+            }
+            out.endObject();
+        }
+        
+        private static void writeStrings(JsonWriter out, TermSet terms) throws IOException {
+            out.beginArray();
+            for (int i = 0; i < terms.size(); i++) {
+                out.value(terms.get(i));
+            }
+            out.endArray();
+        }
+        
+        private static void writeDoubles(JsonWriter out, String name, double[] values) throws IOException {
+            if (values == null) {
+                return;
+            }
+            out.name(name).beginArray();
+            for (double value : values) {
+                out.value(value);
+            }
+            out.endArray();
+        }
+        
+        private static String readString(JsonReader in) throws IOException {
+            // Like the reflective binding, a boolean reads as its text
+            return in.peek() == JsonToken.BOOLEAN ? Boolean.toString(in.nextBoolean()) : in.nextString();
+        }
+        
+        private static TermMap readMap(JsonReader in) throws IOException {
+            TermMap map = new TermMap();
+            in.beginObject();
+            while (in.hasNext()) {
+                String key = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                } else {
+                    map.put(key, readString(in));
+                }
+            }
+            in.endObject();
+            return map;
+        }
+        
+        private static TermSet readStrings(JsonReader in) throws IOException {
+            TermSet terms = new TermSet();
+            in.beginArray();
+            while (in.hasNext()) {
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                } else {
+                    terms.add(readString(in));
+                }
+            }
+            in.endArray();
+            return terms;
+        }
+        
+        private static Map<String, Observation> readObservations(JsonReader in) throws IOException {
+            Map<String, Observation> observations = new LinkedHashMap<>();
+            in.beginObject();
+            while (in.hasNext()) {
+                String key = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    continue;
+                }
+                Observation observation = new Observation();
+                in.beginObject();
+                while (in.hasNext()) {
+                    String name = in.nextName();
+                    if (in.peek() == JsonToken.NULL) {
+                        in.nextNull();
+                        continue;
+                    }
+                    switch (name) {
+                        case "right" -> observation.right = readString(in);
+                        case "count" -> observation.count = in.nextInt();
+                        case "lastSeen" -> observation.lastSeen = in.nextLong();
+                        default -> in.skipValue();
+                    }
+                }
+                in.endObject();
+                observations.put(key, observation);
+            }
+            in.endObject();
+            return observations;
+        }
+        
+        private static double[] readDoubles(JsonReader in) throws IOException {
+            double[] values = new double[8];
+            int size = 0;
+            in.beginArray();
+            while (in.hasNext()) {
+                if (size == values.length) {
+                    values = Arrays.copyOf(values, size * 2);
+                }
+                values[size++] = in.nextDouble();
+            }
+            in.endArray();
+            return Arrays.copyOf(values, size);
+        }
+        
+        private static int[] readInts(JsonReader in) throws IOException {
+            int[] values = new int[16];
+            int size = 0;
+            in.beginArray();
+            while (in.hasNext()) {
+                if (size == values.length) {
+                    values = Arrays.copyOf(values, size * 2);
+                }
+                values[size++] = in.nextInt();
+            }
+            in.endArray();
+            return Arrays.copyOf(values, size);
+        }
+    }
+    
+    /**
+     * Number of bytes {@link #encode} will write.
+     */
+    long encodedSize() {
+        long size = wordCorrections.encodedSize() + capitalizations.encodedSize() + technicalVocabulary.encodedSize()
+            + phraseCorrections.encodedSize() + fillerWords.encodedSize() + Integer.BYTES + observationsSize();
+        size += 3L * Double.BYTES + 3L * Integer.BYTES;
+        size += doublesSize(refinementValueWeights) + doublesSize(editValueByDuration)
+            + Integer.BYTES + (refinementsByDuration != null ? (long) Integer.BYTES * refinementsByDuration.length : 0);
+        size += 2L * Integer.BYTES + Double.BYTES + stringSize(lastUpdated) + Integer.BYTES + Double.BYTES;
+        return size;
+    }
+    
+    /**
+     * Write every persisted field to a buffer. The rule tables are written with their
+     * hash tables, so {@link #decode} reads them back without rehashing a term.
+     */
+    void encode(ByteBuffer buf) {
+        wordCorrections.encode(buf);
+        capitalizations.encode(buf);
+        technicalVocabulary.encode(buf);
+        phraseCorrections.encode(buf);
+        fillerWords.encode(buf);
+        // Length-prefixed, so decode can set the section aside without reading it
+        buf.putInt((int) observationsSize());
+        if (encodedObservations != null) {
+            buf.put(encodedObservations);
+        } else {
+            buf.putInt(observations.size());
+            for (Map.Entry<String, Observation> entry : observations.entrySet()) {
+                putString(buf, entry.getKey());
+                putString(buf, entry.getValue().right);
+                buf.putInt(entry.getValue().count).putLong(entry.getValue().lastSeen);
+            }
+        }
+        buf.putDouble(averageInputLength).putDouble(averageRefinementTime).putInt(totalRefinements)
+            .putInt(timedRefinements).putInt(minDurationForRefinement).putDouble(refinementValueThreshold);
+        putDoubles(buf, refinementValueWeights);
+        putDoubles(buf, editValueByDuration);
+        if (refinementsByDuration == null) {
+            buf.putInt(-1);
+        } else {
+            buf.putInt(refinementsByDuration.length);
+            for (int count : refinementsByDuration) {
+                buf.putInt(count);
+            }
+        }
+        buf.putInt(minObservationsForRule).putInt(maxActiveRules).putDouble(ruleHalfLifeDays);
+        putString(buf, lastUpdated);
+        buf.putInt(correctionsApplied).putDouble(accuracyImprovement);
+    }
+    
+    /**
+     * Read a profile {@link #encode} wrote. Sightings are only needed to learn, so they
+     * are copied out as bytes and decoded on first use.
+     *
+     * @throws IllegalArgumentException if the buffer does not hold an encoded profile
+     */
+    static UserProfile decode(ByteBuffer buf) {
+        UserProfile profile = new UserProfile();
+        profile.wordCorrections = TermMap.decode(buf);
+        profile.capitalizations = TermMap.decode(buf);
+        profile.technicalVocabulary = TermSet.decode(buf);
+        profile.phraseCorrections = TermMap.decode(buf);
+        profile.fillerWords = TermSet.decode(buf);
+        int observationBytes = buf.getInt();
+        if (observationBytes < Integer.BYTES || observationBytes > buf.remaining()) {
+            throw new IllegalArgumentException("Corrupt profile observations");
+        }
+        profile.encodedObservations = new byte[observationBytes];
+        buf.get(profile.encodedObservations);
+        profile.averageInputLength = buf.getDouble();
+        profile.averageRefinementTime = buf.getDouble();
+        profile.totalRefinements = buf.getInt();
+        profile.timedRefinements = buf.getInt();
+        profile.minDurationForRefinement = buf.getInt();
+        profile.refinementValueThreshold = buf.getDouble();
+        profile.refinementValueWeights = getDoubles(buf);
+        profile.editValueByDuration = getDoubles(buf);
+        int buckets = buf.getInt();
+        if (buckets >= 0) {
+            if (buckets > buf.remaining() / Integer.BYTES) {
+                throw new IllegalArgumentException("Corrupt profile statistics");
+            }
+            profile.refinementsByDuration = new int[buckets];
+            for (int i = 0; i < buckets; i++) {
+                profile.refinementsByDuration[i] = buf.getInt();
+            }
+        }
+        profile.minObservationsForRule = buf.getInt();
+        profile.maxActiveRules = buf.getInt();
+        profile.ruleHalfLifeDays = buf.getDouble();
+        profile.lastUpdated = getString(buf);
+        profile.correctionsApplied = buf.getInt();
+        profile.accuracyImprovement = buf.getDouble();
+        return profile.loaded();
+    }
+    
+    /**
+     * Publish a profile whose fields were filled in after the constructor published an
+     * empty snapshot.
+     */
+    private UserProfile loaded() {
+        revision = REVISIONS.incrementAndGet();
+        snapshot.set(ProfileSnapshot.of(this, null));
+        return this;
+    }
+    
+    private long observationsSize() {
+        if (encodedObservations != null) {
+            return encodedObservations.length;
+        }
+        long size = Integer.BYTES;
+        for (Map.Entry<String, Observation> entry : observations.entrySet()) {
+            size += stringSize(entry.getKey()) + stringSize(entry.getValue().right) + Integer.BYTES + Long.BYTES;
+        }
+        return size;
+    }
+    
+    /**
+     * The sightings, decoding them first if the profile came from {@link #decode}.
+     */
+    private Map<String, Observation> observations() {
+        if (encodedObservations != null) {
+            ByteBuffer buf = ByteBuffer.wrap(encodedObservations);
+            int count = buf.getInt();
+            if (count < 0) {
+                throw new IllegalArgumentException("Corrupt profile observations");
+            }
+            Map<String, Observation> decoded = new LinkedHashMap<>(Math.max(16, count * 4 / 3 + 1));
+            for (int i = 0; i < count; i++) {
+                String key = getString(buf);
+                Observation observation = new Observation(getString(buf), 0);
+                observation.count = buf.getInt();
+                observation.lastSeen = buf.getLong();
+                decoded.put(key, observation);
+            }
+            observations = decoded;
+            encodedObservations = null;
+        }
+        return observations;
+    }
+    
+    private static long stringSize(String s) {
+        return Integer.BYTES + (s != null ? (long) Character.BYTES * s.length() : 0);
+    }
+    
+    private static long doublesSize(double[] values) {
+        return Integer.BYTES + (values != null ? (long) Double.BYTES * values.length : 0);
+    }
+    
+    private static void putString(ByteBuffer buf, String s) {
+        if (s == null) {
+            buf.putInt(-1);
+            return;
+        }
+        buf.putInt(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            buf.putChar(s.charAt(i));
+        }
+    }
+    
+    private static String getString(ByteBuffer buf) {
+        int length = buf.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > buf.remaining() / Character.BYTES) {
+            throw new IllegalArgumentException("Corrupt profile string");
+        }
+        char[] chars = new char[length];
+        buf.asCharBuffer().get(chars);
+        buf.position(buf.position() + Character.BYTES * length);
+        return new String(chars);
+    }
+    
+    private static void putDoubles(ByteBuffer buf, double[] values) {
+        if (values == null) {
+            buf.putInt(-1);
+            return;
+        }
+        buf.putInt(values.length);
+        for (double value : values) {
+            buf.putDouble(value);
+        }
+    }
+    
+    private static double[] getDoubles(ByteBuffer buf) {
+        int length = buf.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > buf.remaining() / Double.BYTES) {
+            throw new IllegalArgumentException("Corrupt profile statistics");
+        }
+        double[] values = new double[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = buf.getDouble();
+        }
+        return values;
     }
 
     /**
-     * Export vocabulary to Whisper-compatible format (comma-separated terms).
-     * Combines technical vocabulary and capitalization corrections for maximum benefit.
-     * Limits to 1000 words to stay within Whisper token limits.
+     * Export vocabulary to Whisper-compatible format (comma-separated terms), within
+     * Whisper's prompt limit. See {@link #exportVocabularyForWhisper(int)}.
      *
      * @return Comma-separated vocabulary string for Whisper INITIAL_PROMPT
      */
     public String exportVocabularyForWhisper() {
+        return exportVocabularyForWhisper(getDefaultVocabularyTokens());
+    }
+
+    /**
+     * Export the technical vocabulary and correction targets that fit in
+     * {@code tokenBudget} Whisper tokens. Terms learning saw most, and most recently,
+     * come first; terms it never saw keep their order (technical vocabulary,
+     * capitalizations, word corrections, then phrase targets) after them.
+     *
+     * @param tokenBudget estimated token limit for the whole prompt
+     * @return Comma-separated vocabulary string for Whisper INITIAL_PROMPT
+     */
+    public String exportVocabularyForWhisper(int tokenBudget) {
+        return String.join(WhisperVocabulary.SEPARATOR, rankVocabulary(tokenBudget, System.currentTimeMillis()));
+    }
+
+    /**
+     * The terms {@link #exportVocabularyForWhisper(int)} exports, ranked as of {@code now}.
+     */
+    List<String> rankVocabulary(int tokenBudget, long now) {
         Set<String> allTerms = new LinkedHashSet<>();
 
         // Add technical vocabulary (e.g., "GitHub", "VoxCore")
@@ -125,12 +1060,37 @@ public class UserProfile {
         // Add unique corrected words (e.g., "push to" from "pushto")
         allTerms.addAll(wordCorrections.values());
 
-        // Limit to ~1000 words (Whisper token limit)
-        List<String> limitedTerms = allTerms.stream()
-            .limit(1000)
-            .toList();
+        // Add phrase targets (e.g., "kubectl" from "cube cuddle")
+        allTerms.addAll(phraseCorrections.values());
 
-        return String.join(", ", limitedTerms);
+        // Decayed sightings of every correction to a term, summed
+        Map<String, Double> scores = new HashMap<>();
+        for (Observation observation : observations().values()) {
+            if (observation.right != null && allTerms.contains(observation.right)) {
+                scores.merge(observation.right, observation.score(now, ruleHalfLifeDays), Double::sum);
+            }
+        }
+        return WhisperVocabulary.select(new ArrayList<>(allTerms), scores, tokenBudget);
+    }
+
+    /**
+     * Token budget for {@link #exportVocabularyForWhisper()}: VOX_VOCAB_TOKENS if set,
+     * otherwise the most Whisper keeps of a prompt.
+     */
+    public static int getDefaultVocabularyTokens() {
+        String env = System.getenv("VOX_VOCAB_TOKENS");
+        if (env != null) {
+            try {
+                int tokens = Integer.parseInt(env.trim());
+                if (tokens > 0) {
+                    return tokens;
+                }
+            } catch (NumberFormatException e) {
+                // Fall through to the default
+            }
+            System.err.println("Ignoring invalid VOX_VOCAB_TOKENS: " + env);
+        }
+        return WhisperVocabulary.DEFAULT_TOKEN_BUDGET;
     }
 
     /**
@@ -140,8 +1100,20 @@ public class UserProfile {
      * @throws IOException if write fails
      */
     public void exportVocabularyToFile(java.nio.file.Path filePath) throws IOException {
-        String vocabulary = exportVocabularyForWhisper();
+        exportVocabularyToFile(filePath, getDefaultVocabularyTokens());
+    }
+
+    /**
+     * Export vocabulary within {@code tokenBudget} tokens to a file that VoxCore can read.
+     *
+     * @return the number of terms written
+     * @throws IOException if write fails
+     */
+    public int exportVocabularyToFile(java.nio.file.Path filePath, int tokenBudget) throws IOException {
+        List<String> terms = rankVocabulary(tokenBudget, System.currentTimeMillis());
+        String vocabulary = String.join(WhisperVocabulary.SEPARATOR, terms);
         java.nio.file.Files.createDirectories(filePath.getParent());
         java.nio.file.Files.writeString(filePath, vocabulary, java.nio.charset.StandardCharsets.UTF_8);
+        return terms.size();
     }
 }
\ No newline at end of file
@@ -0,0 +1,89 @@
+package dev.voxcompose.learning;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Picks the learned terms for Whisper's initial prompt. The prompt is cut to a fixed
+ * number of tokens, so terms are ranked by how often and how recently learning saw them
+ * and added, best first, while their estimated token cost fits the budget. Terms with
+ * the same score keep their order.
+ *
+ * <p>Token costs are estimates of Whisper's byte-level BPE: about four letters per
+ * token, a new token at each lower-to-upper case change ("GitHub") and at each symbol,
+ * and one per non-ASCII letter. They err on the high side, so the prompt is not
+ * truncated.
+ */
+final class WhisperVocabulary {
+    /** Whisper keeps the last 223 prompt tokens: half its text context, less one. */
+    static final int DEFAULT_TOKEN_BUDGET = 223;
+
+    static final String SEPARATOR = ", ";
+
+    private static final int LETTERS_PER_TOKEN = 4;
+    private static final int DIGITS_PER_TOKEN = 2;
+
+    private WhisperVocabulary() {
+    }
+
+    /**
+     * The highest-scoring {@code terms} that fit in {@code tokenBudget} tokens when joined
+     * with {@link #SEPARATOR}, best first.
+     *
+     * @param terms candidate terms without duplicates, in the order ties should keep
+     * @param scores usage score per term; missing terms score 0
+     */
+    static List<String> select(List<String> terms, Map<String, Double> scores, int tokenBudget) {
+        List<String> ranked = new ArrayList<>(terms);
+        // Stable, so equal scores keep their order
+        ranked.sort((a, b) -> Double.compare(scores.getOrDefault(b, 0.0), scores.getOrDefault(a, 0.0)));
+
+        List<String> selected = new ArrayList<>();
+        int remaining = tokenBudget;
+        for (String term : ranked) {
+            // The comma before every term after the first is a token of its own
+            int cost = estimateTokens(term) + (selected.isEmpty() ? 0 : 1);
+            if (cost > remaining) {
+                continue;   // a cheaper term further down may still fit
+            }
+            selected.add(term);
+            remaining -= cost;
+        }
+        return selected;
+    }
+
+    /**
+     * Estimated number of Whisper tokens {@code term} takes after a separator.
+     */
+    static int estimateTokens(String term) {
+        int tokens = 0;
+        int i = 0;
+        int n = term.length();
+        while (i < n) {
+            char c = term.charAt(i);
+            if (c == ' ') {
+                // A space joins the token that follows it
+                i++;
+            } else if (c < 0x80 && Character.isLetter(c)) {
+                int start = i;
+                do {
+                    i++;
+                } while (i < n && term.charAt(i) < 0x80 && Character.isLetter(term.charAt(i))
+                    && !(Character.isUpperCase(term.charAt(i)) && Character.isLowerCase(term.charAt(i - 1))));
+                tokens += (i - start + LETTERS_PER_TOKEN - 1) / LETTERS_PER_TOKEN;
+            } else if (c >= '0' && c <= '9') {
+                int start = i;
+                do {
+                    i++;
+                } while (i < n && term.charAt(i) >= '0' && term.charAt(i) <= '9');
+                tokens += (i - start + DIGITS_PER_TOKEN - 1) / DIGITS_PER_TOKEN;
+            } else {
+                // Symbols and non-ASCII characters, which take several UTF-8 bytes
+                i += Character.charCount(term.codePointAt(i));
+                tokens++;
+            }
+        }
+        return Math.max(1, tokens);
+    }
+}
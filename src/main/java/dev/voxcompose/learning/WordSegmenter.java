@@ -0,0 +1,304 @@
+package dev.voxcompose.learning;
+
+import dev.voxcompose.text.TermDictionary;
+import dev.voxcompose.text.TokenSpans;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Splits run-together words ("pushto", "Iwould") using a word-frequency dictionary.
+ *
+ * <p>Only words that are not in the English dictionary or the learned vocabulary are
+ * considered. A dynamic-programming pass finds the cheapest split into known words,
+ * with Zipf costs taken from the dictionary rank. To keep real words such as
+ * "carpet" intact, a split is only accepted when it has at most three pieces and at
+ * least one of them is a function word ("to", "this", "would", ...).
+ */
+final class WordSegmenter {
+    private static final String WORDS_RESOURCE = "/dev/voxcompose/learning/words.txt";
+
+    private static final int MIN_LENGTH = 4;
+    private static final int MAX_LENGTH = 32;
+    private static final int MAX_PIECES = 3;
+
+    private static final Set<String> FUNCTION_WORDS = Set.of(
+        "a", "i", "an", "the", "this", "that", "these", "those",
+        "my", "your", "his", "her", "its", "our", "their", "me", "him", "us", "them",
+        "you", "he", "she", "it", "we", "they", "what", "which", "who",
+        "to", "of", "in", "on", "at", "by", "for", "with", "from", "into", "onto", "about", "as", "than",
+        "and", "or", "but", "so", "if", "then", "not", "no",
+        "is", "are", "was", "were", "be", "been", "have", "has", "had", "do", "does", "did",
+        "will", "would", "shall", "should", "can", "could", "may", "might", "must"
+    );
+
+    private static volatile Lexicon english;
+
+    private final Lexicon lexicon;
+    private final TermDictionary learned;
+
+    private WordSegmenter(Lexicon lexicon, TermDictionary learned) {
+        this.lexicon = lexicon;
+        this.learned = learned;
+    }
+
+    /**
+     * Segmenter over the bundled English dictionary plus learned terms (technical
+     * vocabulary, correction targets). Learned terms are never split.
+     */
+    @SafeVarargs
+    static WordSegmenter withVocabulary(Collection<String>... learnedTerms) {
+        int expected = 0;
+        for (Collection<String> terms : learnedTerms) {
+            expected += terms.size();
+        }
+        TermDictionary learned = new TermDictionary(expected);
+        for (Collection<String> terms : learnedTerms) {
+            for (String term : terms) {
+                if (term != null && !term.isEmpty()) {
+                    learned.add(term.toLowerCase());
+                }
+            }
+        }
+        return new WordSegmenter(english(), learned);
+    }
+
+    boolean isKnown(CharSequence text, int start, int end) {
+        return lexicon.words.findFolded(text, start, end) >= 0 || learned.findFolded(text, start, end) >= 0;
+    }
+
+    /**
+     * Split {@code text[start, end)} into known words.
+     *
+     * @param cuts receives the start offset of every piece after the first
+     * @return number of cuts written, or 0 if the word is known or has no acceptable split
+     */
+    int segment(CharSequence text, int start, int end, int[] cuts) {
+        int n = end - start;
+        if (n < MIN_LENGTH || n > MAX_LENGTH || !isAsciiLetters(text, start, end) || isKnown(text, start, end)) {
+            return 0;
+        }
+
+        // cost[(pieces * (n + 1) + position) * 2 + hasFunctionWord]
+        float[] cost = new float[(MAX_PIECES + 1) * (n + 1) * 2];
+        int[] back = new int[cost.length];
+        Arrays.fill(cost, Float.POSITIVE_INFINITY);
+        cost[0] = 0;
+
+        for (int pieces = 0; pieces < MAX_PIECES; pieces++) {
+            for (int i = 0; i < n; i++) {
+                for (int flag = 0; flag < 2; flag++) {
+                    int from = state(pieces, i, flag, n);
+                    if (cost[from] == Float.POSITIVE_INFINITY) {
+                        continue;
+                    }
+                    int maxEnd = Math.min(n, i + lexicon.maxLength);
+                    for (int j = i + 1; j <= maxEnd; j++) {
+                        float pieceCost;
+                        boolean function;
+                        int id = lexicon.words.findFolded(text, start + i, start + j);
+                        if (id >= 0) {
+                            pieceCost = lexicon.cost[id];
+                            function = lexicon.function[id];
+                        } else if (learned.findFolded(text, start + i, start + j) >= 0) {
+                            pieceCost = lexicon.learnedCost;
+                            function = false;
+                        } else {
+                            continue;
+                        }
+                        // Single letters only as a leading "a" or "I"
+                        if (j - i == 1 && (i != 0 || !function)) {
+                            continue;
+                        }
+                        int to = state(pieces + 1, j, function ? 1 : flag, n);
+                        float total = cost[from] + pieceCost;
+                        if (total < cost[to]) {
+                            cost[to] = total;
+                            back[to] = from;
+                        }
+                    }
+                }
+            }
+        }
+
+        int best = -1;
+        for (int pieces = 2; pieces <= MAX_PIECES; pieces++) {
+            int candidate = state(pieces, n, 1, n);
+            if (cost[candidate] < Float.POSITIVE_INFINITY && (best < 0 || cost[candidate] < cost[best])) {
+                best = candidate;
+            }
+        }
+        if (best < 0) {
+            return 0;
+        }
+
+        int count = 0;
+        for (int s = best; s != 0; s = back[s]) {
+            int position = (s / 2) % (n + 1);
+            if (position != n) {
+                cuts[count++] = start + position;
+            }
+        }
+        // Walked back from the end, so the cuts come out reversed
+        for (int a = 0, b = count - 1; a < b; a++, b--) {
+            int tmp = cuts[a];
+            cuts[a] = cuts[b];
+            cuts[b] = tmp;
+        }
+        return count;
+    }
+
+    static int maxCuts() {
+        return MAX_PIECES - 1;
+    }
+
+    private static int state(int pieces, int position, int flag, int n) {
+        return (pieces * (n + 1) + position) * 2 + flag;
+    }
+
+    private static boolean isAsciiLetters(CharSequence text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (!((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z'))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Lexicon english() {
+        Lexicon lexicon = english;
+        if (lexicon == null) {
+            synchronized (WordSegmenter.class) {
+                lexicon = english;
+                if (lexicon == null) {
+                    lexicon = Lexicon.load();
+                    english = lexicon;
+                }
+            }
+        }
+        return lexicon;
+    }
+
+    /**
+     * The bundled dictionary with a cost per word. Regular inflections (-s, -ed,
+     * -ing) are derived at load time so the resource only lists base forms.
+     */
+    private static final class Lexicon {
+        final TermDictionary words;
+        final float[] cost;
+        final boolean[] function;
+        final float learnedCost;
+        final int maxLength;
+
+        private Lexicon(TermDictionary words, float[] cost, boolean[] function, float learnedCost, int maxLength) {
+            this.words = words;
+            this.cost = cost;
+            this.function = function;
+            this.learnedCost = learnedCost;
+            this.maxLength = maxLength;
+        }
+
+        static Lexicon load() {
+            TermDictionary words = new TermDictionary(16384);
+            float[] rank = new float[16384];
+            int baseCount = 0;
+
+            try (InputStream in = WordSegmenter.class.getResourceAsStream(WORDS_RESOURCE)) {
+                if (in == null) {
+                    System.err.println("Word list not found: " + WORDS_RESOURCE);
+                } else {
+                    BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        line = line.trim();
+                        if (line.isEmpty() || line.startsWith("#")) {
+                            continue;
+                        }
+                        baseCount++;
+                        rank = put(words, rank, line, baseCount);
+                        if (line.length() >= 3 && !FUNCTION_WORDS.contains(line)) {
+                            // Inflected forms rank a little below their base word
+                            for (String form : inflections(line)) {
+                                rank = put(words, rank, form, baseCount * 2);
+                            }
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Failed to load word list: " + e.getMessage());
+            }
+            for (String word : FUNCTION_WORDS) {
+                rank = put(words, rank, word, 1);
+            }
+
+            // Zipf's law: p(word) ~ 1 / (rank * ln N)
+            int size = words.size();
+            double logN = Math.log(Math.max(2, size));
+            float[] cost = new float[size];
+            boolean[] function = new boolean[size];
+            int maxLength = 1;
+            for (int id = 0; id < size; id++) {
+                cost[id] = (float) Math.log(rank[id] * logN);
+                function[id] = FUNCTION_WORDS.contains(words.term(id));
+                maxLength = Math.max(maxLength, words.termLength(id));
+            }
+            float learnedCost = (float) Math.log(1000 * logN);
+            return new Lexicon(words, cost, function, learnedCost, maxLength);
+        }
+
+        private static float[] put(TermDictionary words, float[] rank, String word, int wordRank) {
+            int before = words.size();
+            int id = words.add(word);
+            if (id >= rank.length) {
+                rank = Arrays.copyOf(rank, rank.length * 2);
+            }
+            if (id == before || wordRank < rank[id]) {
+                rank[id] = wordRank;
+            }
+            return rank;
+        }
+
+        private static String[] inflections(String word) {
+            int n = word.length();
+            char last = word.charAt(n - 1);
+            boolean consonantY = last == 'y' && !isVowel(word.charAt(n - 2));
+            String stem = consonantY ? word.substring(0, n - 1) : word;
+
+            String plural;
+            if (word.endsWith("s") || word.endsWith("x") || word.endsWith("z")
+                || word.endsWith("ch") || word.endsWith("sh")) {
+                plural = word + "es";
+            } else {
+                plural = consonantY ? stem + "ies" : word + "s";
+            }
+
+            String past;
+            String progressive;
+            if (last == 'e') {
+                past = word + "d";
+                progressive = word.endsWith("ee") || word.endsWith("ye") || word.endsWith("oe")
+                    ? word + "ing" : word.substring(0, n - 1) + "ing";
+            } else {
+                past = consonantY ? stem + "ied" : word + "ed";
+                progressive = word + "ing";
+            }
+
+            // stop -> stopped/stopping; the undoubled form above covers visit -> visited
+            if (n <= 5 && !isVowel(last) && last != 'w' && last != 'x' && last != 'y'
+                && isVowel(word.charAt(n - 2)) && !isVowel(word.charAt(n - 3))) {
+                return new String[] {plural, past, progressive, word + last + "ed", word + last + "ing"};
+            }
+            return new String[] {plural, past, progressive};
+        }
+
+        private static boolean isVowel(char c) {
+            return c == 'a' || c == 'e' || c == 'i' || c == 'o' || c == 'u';
+        }
+    }
+}
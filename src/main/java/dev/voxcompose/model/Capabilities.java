@@ -1,10 +1,11 @@
 package dev.voxcompose.model;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonWriter;
 import dev.voxcompose.learning.LearningService;
-import dev.voxcompose.learning.UserProfile;
+import dev.voxcompose.learning.ProfileSnapshot;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 
@@ -27,7 +28,6 @@ public class Capabilities {
     }
 
     public static class Activation {
-        @SerializedName("long_form")
         private LongForm longForm;
 
         public Activation() {
@@ -35,14 +35,16 @@ public class Capabilities {
         }
 
         public static class LongForm {
-            @SerializedName("min_duration")
             private int minDuration = 21;
             
-            @SerializedName("optimal_duration")
             private int optimalDuration = 30;
             
             private double confidence = 0.85;
             
+            private long avgRefineMs = 0;
+            
+            private double minEditValue = 0;
+            
             private String description = "Minimum seconds for LLM refinement";
 
             // Getters and setters
@@ -55,6 +57,10 @@ public class Capabilities {
             public double getConfidence() { return confidence; }
             public void setConfidence(double confidence) { this.confidence = confidence; }
             
+            public long getAvgRefineMs() { return avgRefineMs; }
+            
+            public double getMinEditValue() { return minEditValue; }
+            
             public String getDescription() { return description; }
         }
 
@@ -64,10 +70,8 @@ public class Capabilities {
     public static class Learning {
         private boolean enabled = false;  // Will be true once implemented
         
-        @SerializedName("corrections_learned")
         private int correctionsLearned = 0;
         
-        @SerializedName("last_updated")
         private String lastUpdated = null;
 
         // Getters and setters
@@ -82,13 +86,10 @@ public class Capabilities {
     }
 
     public static class Preferences {
-        @SerializedName("whisper_model")
         private String whisperModel = "medium.en";
         
-        @SerializedName("whisper_impl")
         private String whisperImpl = "whisper-cpp";
         
-        @SerializedName("refine_aggressiveness")
         private String refineAggressiveness = "moderate";
 
         // Getters and setters
@@ -116,11 +117,13 @@ public class Capabilities {
         
         // Load from learning service
         LearningService learner = LearningService.getInstance();
-        UserProfile profile = learner.getProfile();
+        ProfileSnapshot profile = learner.getProfile().snapshot();
         
         if (profile != null) {
             // Update threshold from learned profile
             caps.activation.longForm.minDuration = profile.getMinDurationForRefinement();
+            caps.activation.longForm.avgRefineMs = Math.round(profile.getAverageRefinementTime());
+            caps.activation.longForm.minEditValue = profile.getMinEditValue();
             
             // Update learning stats
             caps.learning.enabled = true;
@@ -141,12 +144,49 @@ public class Capabilities {
     }
 
     /**
-     * Convert to JSON string for output.
+     * Convert to JSON string for output. Written field by field rather than bound by
+     * reflection, so it works unchanged in a native image.
      */
     public String toJson() {
-        Gson gson = new GsonBuilder()
-            .setPrettyPrinting()
-            .create();
-        return gson.toJson(this);
+        StringWriter out = new StringWriter();
+        try {
+            JsonWriter json = new JsonWriter(out);
+            json.setIndent("  ");
+            json.setHtmlSafe(true);
+            json.beginObject();
+            string(json, "version", version);
+            json.name("activation").beginObject();
+            Activation.LongForm longForm = activation.longForm;
+            json.name("long_form").beginObject();
+            json.name("min_duration").value(longForm.minDuration);
+            json.name("optimal_duration").value(longForm.optimalDuration);
+            json.name("confidence").value(longForm.confidence);
+            json.name("avg_refine_ms").value(longForm.avgRefineMs);
+            json.name("min_edit_value").value(longForm.minEditValue);
+            string(json, "description", longForm.description);
+            json.endObject();
+            json.endObject();
+            json.name("learning").beginObject();
+            json.name("enabled").value(learning.enabled);
+            json.name("corrections_learned").value(learning.correctionsLearned);
+            string(json, "last_updated", learning.lastUpdated);
+            json.endObject();
+            json.name("preferences").beginObject();
+            string(json, "whisper_model", preferences.whisperModel);
+            string(json, "whisper_impl", preferences.whisperImpl);
+            string(json, "refine_aggressiveness", preferences.refineAggressiveness);
+            json.endObject();
+            json.endObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+
+    // Null fields are left out
+    private static void string(JsonWriter json, String name, String value) throws IOException {
+        if (value != null) {
+            json.name(name).value(value);
+        }
     }
-}
\ No newline at end of file
+}
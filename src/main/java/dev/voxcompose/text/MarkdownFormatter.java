@@ -0,0 +1,416 @@
+package dev.voxcompose.text;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rule-based Markdown structuring for dictated text, the tier between plain
+ * corrections and an LLM refinement.
+ *
+ * <p>Sentences are grouped into short paragraphs, spoken list cues ("first", "second",
+ * "next point") become list items and spoken heading cues ("heading: deployment")
+ * become headings. Blank lines in the input always break paragraphs, and lines that
+ * already look like Markdown are kept as they are. Every sentence is looked at a fixed
+ * number of times, so formatting is linear in the length of the text.
+ */
+public final class MarkdownFormatter {
+    private static final int MAX_PARAGRAPH_SENTENCES = 4;
+
+    private static final int NOT_A_CUE = 0;
+    private static final int ORDINAL = 1;        // numbered item
+    private static final int BULLET = 2;         // unnumbered item
+    private static final int CONTINUATION = 3;   // item only inside a list ("finally")
+
+    // Cue, kind, and whether it may start a list. Single words need a comma or colon after them.
+    private static final Cue[] LIST_CUES = {
+        new Cue("first of all", ORDINAL, true),
+        new Cue("firstly", ORDINAL, true),
+        new Cue("first", ORDINAL, true),
+        new Cue("number one", ORDINAL, true),
+        new Cue("step one", ORDINAL, true),
+        new Cue("secondly", ORDINAL, false),
+        new Cue("second", ORDINAL, false),
+        new Cue("number two", ORDINAL, false),
+        new Cue("step two", ORDINAL, false),
+        new Cue("thirdly", ORDINAL, false),
+        new Cue("third", ORDINAL, false),
+        new Cue("number three", ORDINAL, false),
+        new Cue("step three", ORDINAL, false),
+        new Cue("fourth", ORDINAL, false),
+        new Cue("fifth", ORDINAL, false),
+        new Cue("sixth", ORDINAL, false),
+        new Cue("seventh", ORDINAL, false),
+        new Cue("eighth", ORDINAL, false),
+        new Cue("ninth", ORDINAL, false),
+        new Cue("tenth", ORDINAL, false),
+        new Cue("next point", BULLET, true),
+        new Cue("another point", BULLET, true),
+        new Cue("one more point", BULLET, false),
+        new Cue("and finally", CONTINUATION, false),
+        new Cue("finally", CONTINUATION, false),
+        new Cue("lastly", CONTINUATION, false),
+        new Cue("next", CONTINUATION, false),
+        new Cue("also", CONTINUATION, false),
+    };
+
+    private static final Cue[] HEADING_CUES = {
+        new Cue("new section", 2, false),
+        new Cue("heading", 2, false),
+        new Cue("section", 2, false),
+        new Cue("topic", 2, false),
+        new Cue("title", 1, false),
+    };
+
+    private static final String[] TOPIC_SHIFTS = {
+        "anyway", "moving on", "on another note", "in summary", "to summarize", "to sum up", "in conclusion"
+    };
+
+    private static final String NEW_PARAGRAPH = "new paragraph";
+
+    private MarkdownFormatter() {
+    }
+
+    public static String format(String text) {
+        if (text == null || text.isBlank()) {
+            return text;
+        }
+        List<Sentence> sentences = split(text);
+
+        // Whether sentence i or a later one in the same block of text has a list cue, so
+        // "First, ..." only opens a list that is continued, and a plain sentence between
+        // two items belongs to the first
+        boolean[] cueAhead = new boolean[sentences.size() + 1];
+        for (int i = sentences.size() - 1; i >= 0; i--) {
+            Sentence s = sentences.get(i);
+            boolean barrier = i + 1 < sentences.size() && sentences.get(i + 1).endsBlock();
+            cueAhead[i] = s.cueKind != NOT_A_CUE || !barrier && cueAhead[i + 1];
+        }
+
+        Writer out = new Writer(text.length() + 64);
+        for (int i = 0; i < sentences.size(); i++) {
+            Sentence s = sentences.get(i);
+            boolean moreItems = i + 1 < sentences.size() && !sentences.get(i + 1).endsBlock() && cueAhead[i + 1];
+            if (s.breakBefore) {
+                out.close();
+            }
+            if (s.markdown) {
+                out.markdownLine(s.text);
+            } else if (s.headingLevel > 0) {
+                out.heading(s.headingLevel, s.text.substring(s.cueEnd));
+            } else if (s.newParagraph) {
+                out.close();
+                if (s.cueEnd < s.text.length()) {
+                    out.sentence(s.text.substring(s.cueEnd), false);
+                }
+            } else if (s.cueKind != NOT_A_CUE && (out.inList() || s.startsList && moreItems)) {
+                out.item(s.cueKind == ORDINAL, s.text.substring(s.cueEnd));
+            } else if (out.inList() && s.cueKind == NOT_A_CUE && moreItems) {
+                out.continueItem(s.text);
+            } else {
+                out.sentence(s.text, startsWithAny(s.text, TOPIC_SHIFTS));
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * Number of sentences that open with a spoken structure cue: a list item, a heading,
+     * "new paragraph" or a topic shift.
+     */
+    public static int countCues(String text) {
+        if (text == null || text.isBlank()) {
+            return 0;
+        }
+        int cues = 0;
+        for (Sentence s : split(text)) {
+            if (!s.markdown && (s.cueKind != NOT_A_CUE || s.headingLevel > 0 || s.newParagraph
+                    || startsWithAny(s.text, TOPIC_SHIFTS))) {
+                cues++;
+            }
+        }
+        return cues;
+    }
+
+    /**
+     * Split text into sentences at . ! ? followed by a space and a capital letter or
+     * digit, and at line breaks. Lines that already look like Markdown stay whole.
+     */
+    private static List<Sentence> split(String text) {
+        List<Sentence> sentences = new ArrayList<>();
+        boolean blankLine = false;
+        int lineStart = 0;
+        while (lineStart <= text.length()) {
+            int lineEnd = text.indexOf('\n', lineStart);
+            if (lineEnd < 0) {
+                lineEnd = text.length();
+            }
+            int start = skipSpace(text, lineStart, lineEnd);
+            int end = trimEnd(text, start, lineEnd);
+            if (start == end) {
+                blankLine = true;
+            } else if (isMarkdownLine(text, start, end)) {
+                sentences.add(Sentence.markdown(text.substring(start, end), blankLine));
+                blankLine = false;
+            } else {
+                int from = start;
+                for (int p = start; p < end; p++) {
+                    if (endsSentenceAt(text, p, end)) {
+                        sentences.add(Sentence.of(text.substring(from, p + 1), blankLine));
+                        blankLine = false;
+                        from = skipSpace(text, p + 1, end);
+                        p = from - 1;
+                    }
+                }
+                if (from < end) {
+                    sentences.add(Sentence.of(text.substring(from, end), blankLine));
+                    blankLine = false;
+                }
+            }
+            lineStart = lineEnd + 1;
+        }
+        return sentences;
+    }
+
+    private static boolean endsSentenceAt(String text, int p, int end) {
+        char c = text.charAt(p);
+        if (c != '.' && c != '!' && c != '?') {
+            return false;
+        }
+        if (p + 1 == end) {
+            return true;
+        }
+        if (!Character.isWhitespace(text.charAt(p + 1))) {
+            return false;
+        }
+        // "e.g. this", "U.S. Army": a single letter before the dot is an abbreviation
+        if (c == '.' && p >= 1 && Character.isLetter(text.charAt(p - 1))
+                && (p < 2 || !Character.isLetter(text.charAt(p - 2)))) {
+            return false;
+        }
+        int next = skipSpace(text, p + 1, end);
+        return next == end || !Character.isLowerCase(text.charAt(next));
+    }
+
+    private static boolean isMarkdownLine(String text, int start, int end) {
+        char c = text.charAt(start);
+        if (c == '#' || c == '>' || c == '|' || c == '`') {
+            return true;
+        }
+        if ((c == '-' || c == '*' || c == '+') && start + 1 < end && text.charAt(start + 1) == ' ') {
+            return true;
+        }
+        int p = start;
+        while (p < end && Character.isDigit(text.charAt(p))) {
+            p++;
+        }
+        return p > start && p + 1 < end && text.charAt(p) == '.' && text.charAt(p + 1) == ' ';
+    }
+
+    /**
+     * Offset just past {@code cue} and any comma or colon after it, if the text starts
+     * with it as whole words; -1 otherwise. With {@code needsMark} the comma or colon is
+     * required, since a bare "First" or "Next" usually starts an ordinary sentence.
+     */
+    private static int matchCue(String text, String cue, boolean needsMark) {
+        int n = cue.length();
+        if (text.length() < n || !text.regionMatches(true, 0, cue, 0, n)
+                || n < text.length() && TokenSpans.isWordChar(text.charAt(n))) {
+            return -1;
+        }
+        int p = n;
+        boolean mark = p < text.length() && (text.charAt(p) == ',' || text.charAt(p) == ':');
+        if (mark) {
+            p++;
+        } else if (needsMark) {
+            return -1;
+        }
+        return skipSpace(text, p, text.length());
+    }
+
+    private static boolean startsWithAny(String text, String[] phrases) {
+        for (String phrase : phrases) {
+            if (matchCue(text, phrase, false) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int skipSpace(String text, int from, int to) {
+        while (from < to && Character.isWhitespace(text.charAt(from))) {
+            from++;
+        }
+        return from;
+    }
+
+    private static int trimEnd(String text, int from, int to) {
+        while (to > from && Character.isWhitespace(text.charAt(to - 1))) {
+            to--;
+        }
+        return to;
+    }
+
+    private static String capitalize(String text) {
+        if (text.isEmpty() || !Character.isLowerCase(text.charAt(0))) {
+            return text;
+        }
+        return Character.toUpperCase(text.charAt(0)) + text.substring(1);
+    }
+
+    private record Cue(String phrase, int kind, boolean startsList) {
+        boolean needsMark() {
+            return phrase.indexOf(' ') < 0;
+        }
+    }
+
+    private static final class Sentence {
+        final String text;
+        final boolean breakBefore;
+        boolean markdown;
+        boolean newParagraph;
+        int headingLevel;
+        int cueKind = NOT_A_CUE;
+        boolean startsList;
+        int cueEnd;
+
+        private Sentence(String text, boolean breakBefore) {
+            this.text = text;
+            this.breakBefore = breakBefore;
+        }
+
+        boolean endsBlock() {
+            return breakBefore || markdown || newParagraph || headingLevel > 0;
+        }
+
+        static Sentence markdown(String text, boolean breakBefore) {
+            Sentence s = new Sentence(text, breakBefore);
+            s.markdown = true;
+            return s;
+        }
+
+        static Sentence of(String text, boolean breakBefore) {
+            Sentence s = new Sentence(text, breakBefore);
+            int end = matchCue(text, NEW_PARAGRAPH, false);
+            if (end >= 0) {
+                while (end < text.length() && ".,;:!? ".indexOf(text.charAt(end)) >= 0) {
+                    end++;
+                }
+                s.newParagraph = true;
+                s.cueEnd = end;
+                return s;
+            }
+            for (Cue cue : HEADING_CUES) {
+                end = matchCue(text, cue.phrase, true);
+                if (end >= 0 && end < text.length()) {
+                    s.headingLevel = cue.kind;
+                    s.cueEnd = end;
+                    return s;
+                }
+            }
+            for (Cue cue : LIST_CUES) {
+                end = matchCue(text, cue.phrase, cue.needsMark());
+                if (end >= 0 && end < text.length()) {
+                    s.cueKind = cue.kind;
+                    s.startsList = cue.startsList;
+                    s.cueEnd = end;
+                    return s;
+                }
+            }
+            return s;
+        }
+    }
+
+    /**
+     * Markdown output: blocks separated by blank lines, lines within a list or a run of
+     * Markdown lines separated by single newlines.
+     */
+    private static final class Writer {
+        private static final int NONE = 0;
+        private static final int PARAGRAPH = 1;
+        private static final int LIST = 2;
+        private static final int MARKDOWN = 3;
+
+        private final StringBuilder out;
+        private int block = NONE;
+        private int sentences;
+        private int items;
+        private boolean numbered;
+
+        Writer(int capacity) {
+            out = new StringBuilder(capacity);
+        }
+
+        boolean inList() {
+            return block == LIST;
+        }
+
+        void close() {
+            block = NONE;
+        }
+
+        void heading(int level, String title) {
+            startBlock(NONE);
+            out.append("#".repeat(level)).append(' ').append(capitalize(stripEndPunctuation(title)));
+            block = NONE;
+        }
+
+        void item(boolean ordinal, String text) {
+            if (block != LIST) {
+                startBlock(LIST);
+                items = 0;
+                numbered = ordinal;
+            } else {
+                out.append('\n');
+            }
+            items++;
+            out.append(numbered ? items + ". " : "- ").append(capitalize(text));
+        }
+
+        void continueItem(String text) {
+            out.append(' ').append(capitalize(text));
+        }
+
+        void sentence(String text, boolean topicShift) {
+            if (block == PARAGRAPH && (sentences >= MAX_PARAGRAPH_SENTENCES || topicShift)) {
+                block = NONE;
+            }
+            if (block != PARAGRAPH) {
+                startBlock(PARAGRAPH);
+                sentences = 0;
+            } else {
+                out.append(' ');
+            }
+            sentences++;
+            out.append(capitalize(text));
+        }
+
+        void markdownLine(String line) {
+            if (block == MARKDOWN) {
+                out.append('\n');
+            } else {
+                startBlock(MARKDOWN);
+            }
+            out.append(line);
+        }
+
+        private void startBlock(int kind) {
+            if (!out.isEmpty()) {
+                out.append("\n\n");
+            }
+            block = kind;
+        }
+
+        private static String stripEndPunctuation(String text) {
+            int end = text.length();
+            while (end > 0 && (text.charAt(end - 1) == '.' || text.charAt(end - 1) == ',')) {
+                end--;
+            }
+            return text.substring(0, end);
+        }
+
+        @Override
+        public String toString() {
+            return out.toString();
+        }
+    }
+}
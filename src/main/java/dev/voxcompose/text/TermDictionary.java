@@ -0,0 +1,268 @@
+package dev.voxcompose.text;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Compact string-to-id dictionary.
+ *
+ * <p>Terms are packed back to back into one char arena and found through an
+ * open-addressing table of int ids, so an entry costs a few ints plus its
+ * characters instead of a String and a HashMap node. Ids are dense (0 to
+ * {@code size() - 1}) and stable, so callers can keep per-term data in
+ * parallel primitive arrays. Lookups can run directly over a region of a
+ * larger {@link CharSequence} without copying it out.
+ *
+ * <p>The arena, offsets and hash table are flat arrays, so {@link #encode} writes
+ * them as they are and {@link #decode} reads them back without hashing a term.
+ */
+public final class TermDictionary {
+    private char[] arena;
+    private int arenaSize;
+    private int[] offsets;   // term id -> start in arena; offsets[size] == arenaSize
+    private int[] hashes;    // term id -> hash
+    private int[] slots;     // open-addressing table of (id + 1); 0 marks an empty slot
+    private int size;
+
+    public TermDictionary() {
+        this(16);
+    }
+
+    public TermDictionary(int expectedTerms) {
+        int capacity = Math.max(4, expectedTerms);
+        arena = new char[capacity * 8];
+        offsets = new int[capacity + 1];
+        hashes = new int[capacity];
+        slots = new int[tableSizeFor(capacity)];
+    }
+
+    private TermDictionary(char[] arena, int[] offsets, int[] hashes, int[] slots, int size) {
+        this.arena = arena;
+        this.arenaSize = offsets[size];
+        this.offsets = offsets;
+        this.hashes = hashes;
+        this.slots = slots;
+        this.size = size;
+    }
+
+    /**
+     * Independent copy; copies the arrays, not the terms one by one.
+     */
+    public TermDictionary copy() {
+        return new TermDictionary(Arrays.copyOf(arena, arenaSize), Arrays.copyOf(offsets, size + 1),
+            Arrays.copyOf(hashes, size + 1), slots.clone(), size);
+    }
+
+    /**
+     * Add a term if absent.
+     *
+     * @return the id of the new or existing term
+     */
+    public int add(CharSequence term) {
+        int hash = hash(term, 0, term.length(), false);
+        int id = find(term, 0, term.length(), hash, false);
+        if (id >= 0) {
+            return id;
+        }
+
+        id = size;
+        int length = term.length();
+        if (size + 1 >= offsets.length) {
+            int capacity = offsets.length * 2;
+            offsets = Arrays.copyOf(offsets, capacity);
+            hashes = Arrays.copyOf(hashes, capacity);
+        }
+        if (arenaSize + length > arena.length) {
+            arena = Arrays.copyOf(arena, Math.max(arena.length * 2, arenaSize + length));
+        }
+        for (int i = 0; i < length; i++) {
+            arena[arenaSize + i] = term.charAt(i);
+        }
+        arenaSize += length;
+        hashes[id] = hash;
+        size++;
+        offsets[size] = arenaSize;
+
+        if (size * 2 > slots.length) {
+            rehash(slots.length * 2);
+        } else {
+            insertSlot(id);
+        }
+        return id;
+    }
+
+    public int find(CharSequence term) {
+        return find(term, 0, term.length());
+    }
+
+    /**
+     * Look up {@code text[start, end)} exactly.
+     *
+     * @return the term id, or -1 if absent
+     */
+    public int find(CharSequence text, int start, int end) {
+        return find(text, start, end, hash(text, start, end, false), false);
+    }
+
+    /**
+     * Look up {@code text[start, end)} with case folded on the fly. Only finds
+     * terms that were added in folded (lower-case) form.
+     */
+    public int findFolded(CharSequence text, int start, int end) {
+        return find(text, start, end, hash(text, start, end, true), true);
+    }
+
+    public boolean contains(CharSequence term) {
+        return find(term) >= 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public String term(int id) {
+        return new String(arena, offsets[id], offsets[id + 1] - offsets[id]);
+    }
+
+    public int termLength(int id) {
+        return offsets[id + 1] - offsets[id];
+    }
+
+    /**
+     * Number of bytes {@link #encode} will write.
+     */
+    public long encodedSize() {
+        return 3L * Integer.BYTES + (long) Character.BYTES * arenaSize
+            + (long) Integer.BYTES * (2L * size + 1 + slots.length);
+    }
+
+    /**
+     * Write the terms and the hash table to a buffer.
+     */
+    public void encode(ByteBuffer buf) {
+        buf.putInt(size).putInt(arenaSize).putInt(slots.length);
+        buf.asCharBuffer().put(arena, 0, arenaSize);
+        buf.position(buf.position() + Character.BYTES * arenaSize);
+        putInts(buf, offsets, size + 1);
+        putInts(buf, hashes, size);
+        putInts(buf, slots, slots.length);
+    }
+
+    /**
+     * Read a dictionary {@link #encode} wrote, table included.
+     *
+     * @throws IllegalArgumentException if the encoded sizes are inconsistent
+     */
+    public static TermDictionary decode(ByteBuffer buf) {
+        int size = buf.getInt();
+        int arenaSize = buf.getInt();
+        int tableSize = buf.getInt();
+        long needed = (long) Character.BYTES * arenaSize + (long) Integer.BYTES * (2L * size + 1 + tableSize);
+        if (size < 0 || arenaSize < 0 || tableSize < 8 || Integer.bitCount(tableSize) != 1 || size * 2L > tableSize
+                || needed > buf.remaining()) {
+            throw new IllegalArgumentException("Corrupt term dictionary header");
+        }
+        char[] arena = new char[arenaSize];
+        buf.asCharBuffer().get(arena);
+        buf.position(buf.position() + Character.BYTES * arenaSize);
+        int[] offsets = getInts(buf, size + 1, size + 1);
+        int[] hashes = getInts(buf, size, size + 1);
+        int[] slots = getInts(buf, tableSize, tableSize);
+        if (offsets[0] != 0 || offsets[size] != arenaSize) {
+            throw new IllegalArgumentException("Corrupt term dictionary offsets");
+        }
+        // Every id in the table exactly once, so lookups always reach an empty slot
+        int used = 0;
+        for (int slot : slots) {
+            if (slot < 0 || slot > size) {
+                throw new IllegalArgumentException("Corrupt term dictionary table");
+            }
+            if (slot != 0) {
+                used++;
+            }
+        }
+        if (used != size) {
+            throw new IllegalArgumentException("Corrupt term dictionary table");
+        }
+        return new TermDictionary(arena, offsets, hashes, slots, size);
+    }
+
+    private static void putInts(ByteBuffer buf, int[] values, int count) {
+        buf.asIntBuffer().put(values, 0, count);
+        buf.position(buf.position() + Integer.BYTES * count);
+    }
+
+    private static int[] getInts(ByteBuffer buf, int count, int capacity) {
+        int[] values = new int[capacity];
+        buf.asIntBuffer().get(values, 0, count);
+        buf.position(buf.position() + Integer.BYTES * count);
+        return values;
+    }
+
+    private int find(CharSequence text, int start, int end, int hash, boolean fold) {
+        int mask = slots.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int entry = slots[slot];
+            if (entry == 0) {
+                return -1;
+            }
+            int id = entry - 1;
+            if (hashes[id] == hash && regionEquals(id, text, start, end, fold)) {
+                return id;
+            }
+        }
+    }
+
+    private boolean regionEquals(int id, CharSequence text, int start, int end, boolean fold) {
+        int offset = offsets[id];
+        if (offsets[id + 1] - offset != end - start) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (fold) {
+                c = TokenSpans.fold(c);
+            }
+            if (arena[offset++] != c) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void insertSlot(int id) {
+        int mask = slots.length - 1;
+        int slot = hashes[id] & mask;
+        while (slots[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = id + 1;
+    }
+
+    private void rehash(int capacity) {
+        slots = new int[capacity];
+        for (int id = 0; id < size; id++) {
+            insertSlot(id);
+        }
+    }
+
+    private static int hash(CharSequence text, int start, int end, boolean fold) {
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            h = 31 * h + (fold ? TokenSpans.fold(c) : c);
+        }
+        // Spread the bits so linear probing over the low bits stays short
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static int tableSizeFor(int terms) {
+        int n = Integer.highestOneBit(Math.max(2, terms) * 2 - 1) << 1;
+        return Math.max(8, n);
+    }
+}
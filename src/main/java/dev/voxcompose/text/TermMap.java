@@ -0,0 +1,192 @@
+package dev.voxcompose.text;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Insertion-ordered string map backed by two {@link TermDictionary} arenas.
+ *
+ * <p>Keys and values are packed into their own arenas and linked by an int array,
+ * so repeated values ("push to", "JSON") are stored once. Replacing a value keeps the
+ * old one in the value arena; {@link #removeKeys} rebuilds both arenas.
+ */
+public final class TermMap extends AbstractMap<String, String> {
+    private TermDictionary keys;
+    private TermDictionary values;
+    private int[] valueIds;   // key id -> value id
+
+    public TermMap() {
+        this(16);
+    }
+
+    public TermMap(int expectedEntries) {
+        keys = new TermDictionary(expectedEntries);
+        values = new TermDictionary(expectedEntries);
+        valueIds = new int[Math.max(4, expectedEntries)];
+    }
+
+    private TermMap(TermDictionary keys, TermDictionary values, int[] valueIds) {
+        this.keys = keys;
+        this.values = values;
+        this.valueIds = valueIds;
+    }
+
+    /**
+     * Independent copy, made array by array.
+     */
+    public TermMap copy() {
+        return new TermMap(keys.copy(), values.copy(), Arrays.copyOf(valueIds, Math.max(4, keys.size())));
+    }
+
+    /**
+     * Number of bytes {@link #encode} will write.
+     */
+    public long encodedSize() {
+        return keys.encodedSize() + values.encodedSize() + (long) Integer.BYTES * keys.size();
+    }
+
+    /**
+     * Write both arenas and their hash tables; {@link #decode} reads them back without rehashing.
+     */
+    public void encode(ByteBuffer buf) {
+        keys.encode(buf);
+        values.encode(buf);
+        buf.asIntBuffer().put(valueIds, 0, keys.size());
+        buf.position(buf.position() + Integer.BYTES * keys.size());
+    }
+
+    /**
+     * @throws IllegalArgumentException if the encoded map is inconsistent
+     */
+    public static TermMap decode(ByteBuffer buf) {
+        TermDictionary keys = TermDictionary.decode(buf);
+        TermDictionary values = TermDictionary.decode(buf);
+        int size = keys.size();
+        if ((long) Integer.BYTES * size > buf.remaining()) {
+            throw new IllegalArgumentException("Corrupt term map");
+        }
+        int[] valueIds = new int[Math.max(4, size)];
+        buf.asIntBuffer().get(valueIds, 0, size);
+        buf.position(buf.position() + Integer.BYTES * size);
+        for (int id = 0; id < size; id++) {
+            if (valueIds[id] < 0 || valueIds[id] >= values.size()) {
+                throw new IllegalArgumentException("Corrupt term map");
+            }
+        }
+        return new TermMap(keys, values, valueIds);
+    }
+
+    @Override
+    public String put(String key, String value) {
+        Objects.requireNonNull(key, "key");
+        Objects.requireNonNull(value, "value");
+        int before = keys.size();
+        int id = keys.add(key);
+        String previous = id < before ? values.term(valueIds[id]) : null;
+        if (id >= valueIds.length) {
+            valueIds = Arrays.copyOf(valueIds, valueIds.length * 2);
+        }
+        valueIds[id] = values.add(value);
+        return previous;
+    }
+
+    @Override
+    public String get(Object key) {
+        int id = key instanceof String s ? keys.find(s) : -1;
+        return id < 0 ? null : values.term(valueIds[id]);
+    }
+
+    /**
+     * Look up {@code text[start, end)} without copying it out.
+     */
+    public String get(CharSequence text, int start, int end) {
+        int id = keys.find(text, start, end);
+        return id < 0 ? null : values.term(valueIds[id]);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof String s && keys.find(s) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return keys.size();
+    }
+
+    /**
+     * Key of the entry at {@code index}, in insertion order.
+     */
+    public String key(int index) {
+        return keys.term(index);
+    }
+
+    /**
+     * Value of the entry at {@code index}, in insertion order.
+     */
+    public String value(int index) {
+        return values.term(valueIds[index]);
+    }
+
+    /**
+     * Remove every entry whose key is in {@code remove}, keeping insertion order.
+     * Linear in the size of the map.
+     *
+     * @return the number of entries removed
+     */
+    public int removeKeys(Collection<String> remove) {
+        int size = keys.size();
+        TermDictionary keptKeys = new TermDictionary(size);
+        TermDictionary keptValues = new TermDictionary(size);
+        int[] keptIds = new int[valueIds.length];
+        for (int id = 0; id < size; id++) {
+            String key = keys.term(id);
+            if (!remove.contains(key)) {
+                keptIds[keptKeys.add(key)] = keptValues.add(value(id));
+            }
+        }
+        keys = keptKeys;
+        values = keptValues;
+        valueIds = keptIds;
+        return size - keys.size();
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, String>> iterator() {
+                int size = keys.size();
+                return new Iterator<>() {
+                    private int next;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < size;
+                    }
+
+                    @Override
+                    public Entry<String, String> next() {
+                        if (next >= size) {
+                            throw new NoSuchElementException();
+                        }
+                        int id = next++;
+                        return new SimpleImmutableEntry<>(key(id), value(id));
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return keys.size();
+            }
+        };
+    }
+}
@@ -0,0 +1,135 @@
+package dev.voxcompose.text;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * Insertion-ordered string set backed by a {@link TermDictionary}, with O(1)
+ * {@code add} and {@code contains}. Terms cannot be removed.
+ */
+public final class TermSet extends AbstractSet<String> {
+    private final TermDictionary terms;
+
+    public TermSet() {
+        this(16);
+    }
+
+    public TermSet(int expectedTerms) {
+        terms = new TermDictionary(expectedTerms);
+    }
+
+    private TermSet(TermDictionary terms) {
+        this.terms = terms;
+    }
+
+    /**
+     * Independent copy, made array by array.
+     */
+    public TermSet copy() {
+        return new TermSet(terms.copy());
+    }
+
+    /**
+     * Number of bytes {@link #encode} will write.
+     */
+    public long encodedSize() {
+        return terms.encodedSize();
+    }
+
+    /**
+     * Write the terms and their hash table; {@link #decode} reads them back without rehashing.
+     */
+    public void encode(ByteBuffer buf) {
+        terms.encode(buf);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the encoded set is inconsistent
+     */
+    public static TermSet decode(ByteBuffer buf) {
+        return new TermSet(TermDictionary.decode(buf));
+    }
+
+    @Override
+    public boolean add(String term) {
+        Objects.requireNonNull(term, "term");
+        int before = terms.size();
+        return terms.add(term) == before;
+    }
+
+    @Override
+    public boolean contains(Object term) {
+        return term instanceof String s && terms.find(s) >= 0;
+    }
+
+    /**
+     * Look up {@code text[start, end)} without copying it out.
+     */
+    public boolean contains(CharSequence text, int start, int end) {
+        return terms.find(text, start, end) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return terms.size();
+    }
+
+    /**
+     * Term at {@code index}, in insertion order.
+     */
+    public String get(int index) {
+        return terms.term(index);
+    }
+
+    /**
+     * Read-only list view in insertion order; nothing is copied.
+     */
+    public List<String> asList() {
+        return new ListView();
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        int size = terms.size();
+        return new Iterator<>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public String next() {
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                return terms.term(next++);
+            }
+        };
+    }
+
+    private final class ListView extends AbstractList<String> implements RandomAccess {
+        @Override
+        public String get(int index) {
+            Objects.checkIndex(index, terms.size());
+            return terms.term(index);
+        }
+
+        @Override
+        public int size() {
+            return terms.size();
+        }
+
+        @Override
+        public boolean contains(Object term) {
+            return TermSet.this.contains(term);
+        }
+    }
+}
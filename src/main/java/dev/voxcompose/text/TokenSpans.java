@@ -0,0 +1,180 @@
+package dev.voxcompose.text;
+
+import java.util.Arrays;
+
+/**
+ * Word, punctuation and whitespace spans over a piece of text.
+ *
+ * <p>Tokens are contiguous and cover the whole text, so only their start offsets
+ * are stored. Nothing is copied out of the source {@link CharSequence}: comparisons
+ * and hashing fold case one character at a time, and a token is only materialized
+ * as a String when a caller asks for one.
+ *
+ * <p>Word characters are letters, digits and underscore. A word boundary (as in
+ * regex {@code \b}) therefore always falls on a token edge.
+ */
+public final class TokenSpans {
+    public static final byte WORD = 0;
+    public static final byte PUNCT = 1;
+    public static final byte SPACE = 2;
+
+    private final CharSequence text;
+    private final int[] starts;  // starts[count] == text.length()
+    private final byte[] kinds;
+    private final int count;
+
+    private TokenSpans(CharSequence text, int[] starts, byte[] kinds, int count) {
+        this.text = text;
+        this.starts = starts;
+        this.kinds = kinds;
+        this.count = count;
+    }
+
+    /**
+     * Split text into spans. Adjacent characters of the same class form one token.
+     */
+    public static TokenSpans tokenize(CharSequence text) {
+        int n = text.length();
+        int[] starts = new int[Math.max(4, n / 3 + 2)];
+        byte[] kinds = new byte[starts.length];
+        int count = 0;
+
+        byte previous = -1;
+        for (int i = 0; i < n; i++) {
+            byte kind = classify(text.charAt(i));
+            // Punctuation never merges: "?!" is two tokens, so rules can match either one
+            if (kind != previous || kind == PUNCT) {
+                if (count + 1 >= starts.length) {
+                    int capacity = starts.length * 2;
+                    starts = Arrays.copyOf(starts, capacity);
+                    kinds = Arrays.copyOf(kinds, capacity);
+                }
+                starts[count] = i;
+                kinds[count] = kind;
+                count++;
+                previous = kind;
+            }
+        }
+        starts[count] = n;
+        return new TokenSpans(text, starts, kinds, count);
+    }
+
+    public static byte classify(char c) {
+        if (isWordChar(c)) {
+            return WORD;
+        }
+        return Character.isWhitespace(c) ? SPACE : PUNCT;
+    }
+
+    public static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    public static char fold(char c) {
+        return Character.toLowerCase(c);
+    }
+
+    public CharSequence text() {
+        return text;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public byte kind(int i) {
+        return kinds[i];
+    }
+
+    public boolean isWord(int i) {
+        return kinds[i] == WORD;
+    }
+
+    public boolean isSpace(int i) {
+        return kinds[i] == SPACE;
+    }
+
+    public int start(int i) {
+        return starts[i];
+    }
+
+    public int end(int i) {
+        return starts[i + 1];
+    }
+
+    public int length(int i) {
+        return starts[i + 1] - starts[i];
+    }
+
+    /**
+     * True if a word boundary sits at the start of token {@code i}.
+     */
+    public boolean startsOnBoundary(int i) {
+        boolean left = i > 0 && kinds[i - 1] == WORD;
+        return left != (kinds[i] == WORD);
+    }
+
+    /**
+     * True if a word boundary sits at the end of token {@code i}.
+     */
+    public boolean endsOnBoundary(int i) {
+        boolean right = i + 1 < count && kinds[i + 1] == WORD;
+        return (kinds[i] == WORD) != right;
+    }
+
+    public boolean equalsIgnoreCase(int i, CharSequence other) {
+        int start = starts[i];
+        int length = starts[i + 1] - start;
+        if (length != other.length()) {
+            return false;
+        }
+        for (int k = 0; k < length; k++) {
+            if (fold(text.charAt(start + k)) != fold(other.charAt(k))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean equalsIgnoreCase(int i, TokenSpans other, int j) {
+        int start = starts[i];
+        int otherStart = other.starts[j];
+        int length = starts[i + 1] - start;
+        if (length != other.starts[j + 1] - otherStart) {
+            return false;
+        }
+        for (int k = 0; k < length; k++) {
+            if (fold(text.charAt(start + k)) != fold(other.text.charAt(otherStart + k))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Case-insensitive hash of a token, consistent with {@link #equalsIgnoreCase}.
+     */
+    public int foldedHash(int i) {
+        int h = 0;
+        for (int p = starts[i]; p < starts[i + 1]; p++) {
+            h = 31 * h + fold(text.charAt(p));
+        }
+        return h;
+    }
+
+    public String toString(int i) {
+        return text.subSequence(starts[i], starts[i + 1]).toString();
+    }
+
+    public String folded(int i) {
+        char[] chars = new char[length(i)];
+        for (int k = 0; k < chars.length; k++) {
+            chars[k] = fold(text.charAt(starts[i] + k));
+        }
+        return new String(chars);
+    }
+
+    public void appendTo(int i, StringBuilder out) {
+        out.append(text, starts[i], starts[i + 1]);
+    }
+}
@@ -54,6 +54,34 @@ class ConfigurationTest {
         assertEquals(7200000, config.getCacheTtlMs());
     }
 
+    @Test
+    void parseStreamFlag() {
+        assertFalse(Configuration.parse(new String[]{}).isStreamMode());
+        assertTrue(Configuration.parse(new String[]{"--stream"}).isStreamMode());
+    }
+
+    @Test
+    void parseTierFlag() {
+        assertEquals(Configuration.Tier.FORMAT, Configuration.parse(new String[]{"--tier", "format"}).getTier());
+        assertEquals(Configuration.Tier.CORRECTIONS, Configuration.parse(new String[]{"--tier", "Corrections"}).getTier());
+        assertEquals(Configuration.Tier.LLM, Configuration.parse(new String[]{"--tier", "fast"}).getTier());
+    }
+
+    @Test
+    void parseLearnFlushFlag() {
+        assertEquals(500, Configuration.parse(new String[]{"--learn-flush-ms", "500"}).getLearnFlushMs());
+        assertEquals(0, Configuration.parse(new String[]{"--learn-flush-ms", "0"}).getLearnFlushMs());
+        assertEquals(2000, Configuration.parse(new String[]{"--learn-flush-ms", "-5"}).getLearnFlushMs());
+        assertEquals(2000, Configuration.parse(new String[]{"--learn-flush-ms", "soon"}).getLearnFlushMs());
+    }
+
+    @Test
+    void parseLearnFromFlag() {
+        assertNull(Configuration.parse(new String[]{}).getLearnFromPath());
+        assertEquals("history.jsonl",
+            Configuration.parse(new String[]{"--learn-from", "history.jsonl"}).getLearnFromPath().toString());
+    }
+
     @Test
     void parseHelpFlag() {
         Configuration config = Configuration.parse(new String[]{"--help"});
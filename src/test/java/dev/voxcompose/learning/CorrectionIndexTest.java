@@ -0,0 +1,80 @@
+package dev.voxcompose.learning;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+class CorrectionIndexTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static final CorrectionMatcher MATCHER = CorrectionMatcher.compile(
+        Map.of("kubernetis", "kubernetes", "pushto", "push to"),
+        Map.of("github", "GitHub", "json", "JSON"));
+
+    private static byte[] hashOf(String content) {
+        return CorrectionIndex.hash(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void roundTripPreservesBehaviour() {
+        CorrectionIndex index = new CorrectionIndex(tempDir.resolve(CorrectionIndex.FILE_NAME));
+        byte[] hash = hashOf("{}");
+        index.save(hash, MATCHER);
+
+        CorrectionMatcher loaded = index.load(hash);
+        assertNotNull(loaded);
+        assertEquals(MATCHER.ruleCount(), loaded.ruleCount());
+        String input = "pushto github and parse json on kubernetis";
+        assertEquals(MATCHER.apply(input), loaded.apply(input));
+    }
+
+    @Test
+    void staleHashIsIgnored() {
+        CorrectionIndex index = new CorrectionIndex(tempDir.resolve(CorrectionIndex.FILE_NAME));
+        index.save(hashOf("{\"a\":1}"), MATCHER);
+        assertNull(index.load(hashOf("{\"a\":2}")));
+    }
+
+    @Test
+    void missingFileIsIgnored() {
+        CorrectionIndex index = new CorrectionIndex(tempDir.resolve(CorrectionIndex.FILE_NAME));
+        assertNull(index.load(hashOf("{}")));
+    }
+
+    @Test
+    void corruptPayloadIsIgnored() throws IOException {
+        Path file = tempDir.resolve(CorrectionIndex.FILE_NAME);
+        CorrectionIndex index = new CorrectionIndex(file);
+        byte[] hash = hashOf("{}");
+        index.save(hash, MATCHER);
+
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 1] ^= 0x5A;
+        Files.write(file, bytes);
+
+        assertNull(index.load(hash));
+    }
+
+    @Test
+    void learningWritesIndexNextToProfile() {
+        Path profilePath = tempDir.resolve("learned_profile.json");
+        LearningService service = new LearningService(profilePath);
+        // Seen twice, so the correction is active
+        service.learn("deploy to kubernetis today", "deploy to kubernetes today");
+        service.learn("deploy to kubernetis now", "deploy to kubernetes now");
+
+        assertTrue(Files.exists(profilePath));
+        assertTrue(Files.exists(tempDir.resolve(CorrectionIndex.FILE_NAME)));
+
+        LearningService reloaded = new LearningService(profilePath);
+        assertEquals("deploy on kubernetes", reloaded.applyCorrections("deploy on kubernetis"));
+    }
+}
@@ -0,0 +1,139 @@
+package dev.voxcompose.learning;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+class CorrectionMatcherTest {
+
+    private static CorrectionMatcher compile(Map<String, String> words, Map<String, String> caps) {
+        return CorrectionMatcher.compile(words, caps);
+    }
+
+    @Test
+    void emptyMatcherReturnsInput() {
+        CorrectionMatcher matcher = compile(Map.of(), Map.of());
+        String input = "nothing to do here";
+        assertTrue(matcher.isEmpty());
+        assertSame(input, matcher.apply(input));
+    }
+
+    @Test
+    void mentionsOnlyCharactersOfKeys() {
+        CorrectionMatcher matcher = CorrectionMatcher.compile(Map.of("e.g.", "for example"), Map.of(),
+            Map.of("get hub", "GitHub"));
+        assertTrue(matcher.mentions('.'));
+        assertTrue(matcher.mentions('G'));
+        assertTrue(matcher.mentions('\t'));
+        assertFalse(matcher.mentions('!'));
+        assertFalse(matcher.mentions('\n'));
+        assertFalse(compile(Map.of(), Map.of()).mentions('.'));
+    }
+
+    @Test
+    void wordCorrectionRespectsBoundaries() {
+        CorrectionMatcher matcher = compile(Map.of("teh", "the"), Map.of());
+        assertEquals("the cat", matcher.apply("teh cat"));
+        assertEquals("tehran the", matcher.apply("tehran teh"));
+        assertEquals("(the)", matcher.apply("(teh)"));
+    }
+
+    @Test
+    void wordCorrectionIsCaseSensitive() {
+        CorrectionMatcher matcher = compile(Map.of("teh", "the"), Map.of());
+        assertEquals("Teh cat", matcher.apply("Teh cat"));
+    }
+
+    @Test
+    void capitalizationIsCaseInsensitive() {
+        CorrectionMatcher matcher = compile(Map.of(), Map.of("github", "GitHub"));
+        assertEquals("GitHub, GitHub and GitHub", matcher.apply("github, GITHUB and Github"));
+        assertEquals("githubby", matcher.apply("githubby"));
+    }
+
+    @Test
+    void wordCorrectionOutputIsCapitalized() {
+        CorrectionMatcher matcher = compile(Map.of("jsn", "json"), Map.of("json", "JSON"));
+        assertEquals("parse JSON", matcher.apply("parse jsn"));
+    }
+
+    @Test
+    void longestMatchWins() {
+        Map<String, String> words = new HashMap<>();
+        words.put("push", "PUSH");
+        words.put("push to", "push-to");
+        CorrectionMatcher matcher = compile(words, Map.of());
+        assertEquals("push-to main", matcher.apply("push to main"));
+        assertEquals("PUSH it", matcher.apply("push it"));
+    }
+
+    @Test
+    void phraseSpansAnyHorizontalWhitespace() {
+        CorrectionMatcher matcher = CorrectionMatcher.compile(Map.of(), Map.of(), Map.of("get hub", "GitHub"));
+        assertEquals("push to GitHub.", matcher.apply("push to get hub."));
+        assertEquals("GitHub now", matcher.apply("Get  Hub now"));
+        assertEquals("GitHub", matcher.apply("get\thub"));
+        assertEquals("get\nhub", matcher.apply("get\nhub"));
+        assertEquals("forget hub", matcher.apply("forget hub"));
+        assertEquals("get hubs", matcher.apply("get hubs"));
+    }
+
+    @Test
+    void longestPhraseWins() {
+        Map<String, String> phrases = new HashMap<>();
+        phrases.put("pie test", "pytest");
+        phrases.put("pie test dash v", "pytest -v");
+        CorrectionMatcher matcher = CorrectionMatcher.compile(Map.of(), Map.of("pytest", "pytest"), phrases);
+        assertEquals("run pytest -v now", matcher.apply("run pie test dash v now"));
+        assertEquals("run pytest dash now", matcher.apply("run pie test dash now"));
+    }
+
+    @Test
+    void phraseReplacementIsCapitalized() {
+        CorrectionMatcher matcher = CorrectionMatcher.compile(Map.of(), Map.of("kubectl", "Kubectl"),
+            Map.of("cube cuddle", "kubectl"));
+        assertEquals("Kubectl apply", matcher.apply("cube cuddle apply"));
+    }
+
+    @Test
+    void wordRulesStillNeedExactWhitespace() {
+        CorrectionMatcher matcher = compile(Map.of("push to", "push-to"), Map.of("node js", "Node.js"));
+        assertEquals("push-to main", matcher.apply("push to main"));
+        assertEquals("push  to main", matcher.apply("push  to main"));
+        assertEquals("Node.js or node\tjs", matcher.apply("NODE JS or node\tjs"));
+    }
+
+    @Test
+    void replacementIsLiteral() {
+        CorrectionMatcher matcher = compile(Map.of("cost", "$1 cost"), Map.of());
+        assertEquals("the $1 cost", matcher.apply("the cost"));
+    }
+
+    @Test
+    void matchesRegexReplacementForNonOverlappingRules() {
+        Map<String, String> words = new HashMap<>();
+        words.put("kubernetis", "kubernetes");
+        words.put("dokker", "docker");
+        words.put("recieve", "receive");
+        Map<String, String> caps = new HashMap<>();
+        caps.put("api", "API");
+        caps.put("postgresql", "PostgreSQL");
+        caps.put("docker", "Docker");
+
+        String input = "recieve the api call, deploy dokker to kubernetis; postgresql_db and API-gateway "
+            + "apis recieved Api.";
+
+        String expected = input;
+        for (Map.Entry<String, String> e : words.entrySet()) {
+            expected = expected.replaceAll("\\b" + Pattern.quote(e.getKey()) + "\\b", e.getValue());
+        }
+        for (Map.Entry<String, String> e : caps.entrySet()) {
+            expected = expected.replaceAll("\\b(?i)" + Pattern.quote(e.getKey()) + "\\b", e.getValue());
+        }
+
+        assertEquals(expected, compile(words, caps).apply(input));
+    }
+}
@@ -0,0 +1,101 @@
+package dev.voxcompose.learning;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+class DisfluencyFilterTest {
+
+    private static final WordSegmenter SEGMENTER = WordSegmenter.withVocabulary(List.of());
+
+    private static String clean(String text) {
+        return DisfluencyFilter.of(List.of(), SEGMENTER).apply(text);
+    }
+
+    @Test
+    void removesFillers() {
+        assertEquals("so the build failed", clean("so um the build uh failed"));
+        assertEquals("The build failed.", clean("Um, the build failed."));
+        assertEquals("it works.", clean("it works, um."));
+        assertEquals("it works", clean("it works uh"));
+        assertEquals("", clean("um"));
+        assertEquals("GitHub", clean("GitHub, um "));
+        assertEquals("engine", clean("engine\nuh"));
+    }
+
+    @Test
+    void removesBackToBackFillers() {
+        assertEquals("So we start the deploy.", clean("Um, uh, so we start the deploy."));
+        assertEquals("Hello", clean("Uh um hello"));
+        assertEquals("x", clean("x\nUh um"));
+        assertEquals("so the build failed", clean("so um uh the build failed"));
+        assertEquals("it works.", clean("it works, um, uh."));
+        DisfluencyFilter filter = DisfluencyFilter.of(List.of("basically"), SEGMENTER);
+        assertEquals("Like", filter.apply("Basically, uh\tLike"));
+    }
+
+    @Test
+    void removesDiscourseFillersOnlyWhenSetOff() {
+        assertEquals("It was huge.", clean("You know, it was huge."));
+        assertEquals("it was, huge", clean("it was, like, huge"));
+        assertEquals("do you know the way", clean("do you know the way"));
+        assertEquals("I like, pizza", clean("I like, pizza"));
+        assertEquals("so I mean, it", clean("so I mean, it"));
+    }
+
+    @Test
+    void collapsesRepeats() {
+        assertEquals("the cat", clean("the the cat"));
+        assertEquals("The cat", clean("The the the cat"));
+        assertEquals("I went", clean("I I went"));
+        assertEquals("the. The end", clean("the. The end"));
+        assertEquals("the\nthe end", clean("the\nthe end"));
+    }
+
+    @Test
+    void keepsIntendedRepeats() {
+        assertEquals("I knew that that was it", clean("I knew that that was it"));
+        assertEquals("we had had enough", clean("we had had enough"));
+        assertEquals("call 555 555 1234", clean("call 555 555 1234"));
+    }
+
+    @Test
+    void dropsFalseStarts() {
+        assertEquals("I went home", clean("I wen- I went home"));
+        assertEquals("a follow-up", clean("a follow-up"));
+        assertEquals("pages 10- 20", clean("pages 10- 20"));
+        assertEquals("We need a test", clean("We sh- we need a test"));
+        assertEquals("it went fine", clean("it wen- went fine"));
+    }
+
+    @Test
+    void keepsSuspendedHyphensAndDashes() {
+        assertEquals("Both pre- and post-processing", clean("Both pre- and post-processing"));
+        assertEquals("Use first- and second-order", clean("Use first- and second-order"));
+        assertEquals("I was going to— well", clean("I was going to— well"));
+        assertEquals("a self- or peer review", clean("a self- or peer review"));
+    }
+
+    @Test
+    void removesErAndAhOnlyBetweenCommas() {
+        assertEquals("So, the build passed", clean("So, er, the build passed"));
+        assertEquals("The build passed", clean("Ah, the build passed"));
+        assertEquals("draw the er diagram", clean("draw the er diagram"));
+        assertEquals("Say ah", clean("Say ah"));
+    }
+
+    @Test
+    void removesLearnedFillers() {
+        DisfluencyFilter filter = DisfluencyFilter.of(List.of("mmhmm", "basically"), SEGMENTER);
+        assertEquals("ok then", filter.apply("ok mmhmm then"));
+        assertEquals("It works.", filter.apply("Basically, it works."));
+        assertEquals("it basically works", filter.apply("it basically works"));
+    }
+
+    @Test
+    void leavesCleanTextAlone() {
+        String text = "Push to GitHub, then run the tests.";
+        assertSame(text, clean(text));
+    }
+}
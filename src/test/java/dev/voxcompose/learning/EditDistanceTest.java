@@ -0,0 +1,93 @@
+package dev.voxcompose.learning;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+class EditDistanceTest {
+
+    @Test
+    void computesSmallDistances() {
+        assertEquals(3, EditDistance.levenshtein("kitten", "sitting", 5));
+        assertEquals(2, EditDistance.levenshtein("kuberentes", "kubernetes", 5));
+        assertEquals(1, EditDistance.withTranspositions("kuberentes", "kubernetes", 5));
+        assertEquals(4, EditDistance.levenshtein("", "json", 5));
+        assertEquals(1, EditDistance.levenshtein("café", "cafe", 5));
+    }
+
+    @Test
+    void stopsAtTheBound() {
+        assertEquals(3, EditDistance.levenshtein("kitten", "sitting", 2));
+        assertEquals(2, EditDistance.levenshtein("abcdef", "uvwxyz", 1));
+        assertEquals(2, EditDistance.levenshtein("a", "abc", 1));
+    }
+
+    @Test
+    void matchesReferenceForShortAndLongStrings() {
+        Random random = new Random(11);
+        for (int round = 0; round < 2000; round++) {
+            // Lengths either side of the 64-char bit-parallel limit
+            String a = randomString(random, random.nextInt(round % 2 == 0 ? 20 : 90));
+            String b = mutate(random, a);
+            int max = random.nextInt(8);
+            for (boolean transpositions : new boolean[] {false, true}) {
+                int expected = Math.min(reference(a, b, transpositions), max + 1);
+                int actual = transpositions
+                    ? EditDistance.withTranspositions(a, b, max)
+                    : EditDistance.levenshtein(a, b, max);
+                assertEquals(expected, actual, a + " / " + b + " max " + max + " transpositions " + transpositions);
+            }
+        }
+    }
+
+    private static String randomString(Random random, int length) {
+        StringBuilder s = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            s.append(random.nextInt(10) == 0 ? 'é' : (char) ('a' + random.nextInt(4)));
+        }
+        return s.toString();
+    }
+
+    private static String mutate(Random random, String text) {
+        StringBuilder s = new StringBuilder(text);
+        int edits = random.nextInt(6);
+        for (int e = 0; e < edits; e++) {
+            int p = s.isEmpty() ? 0 : random.nextInt(s.length());
+            switch (random.nextInt(4)) {
+                case 0 -> s.insert(p, (char) ('a' + random.nextInt(4)));
+                case 1 -> { if (!s.isEmpty()) s.deleteCharAt(p); }
+                case 2 -> { if (!s.isEmpty()) s.setCharAt(p, (char) ('a' + random.nextInt(4))); }
+                default -> {
+                    if (p + 1 < s.length()) {
+                        char c = s.charAt(p);
+                        s.setCharAt(p, s.charAt(p + 1));
+                        s.setCharAt(p + 1, c);
+                    }
+                }
+            }
+        }
+        return s.toString();
+    }
+
+    private static int reference(String a, String b, boolean transpositions) {
+        int[][] d = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) {
+            d[i][0] = i;
+        }
+        for (int j = 0; j <= b.length(); j++) {
+            d[0][j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                d[i][j] = Math.min(Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1), d[i - 1][j - 1] + cost);
+                if (transpositions && i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2)
+                        && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    d[i][j] = Math.min(d[i][j], d[i - 2][j - 2] + 1);
+                }
+            }
+        }
+        return d[a.length()][b.length()];
+    }
+}
@@ -0,0 +1,70 @@
+package dev.voxcompose.learning;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+class FuzzyIndexTest {
+
+    private static String lookup(FuzzyIndex index, String word) {
+        return index.lookup(word, 0, word.length(), 0.5);
+    }
+
+    @Test
+    void findsTermsWithinTwoEdits() {
+        FuzzyIndex index = FuzzyIndex.build(List.of("Kubernetes", "VoxCompose", "PostgreSQL"));
+        assertEquals("Kubernetes", lookup(index, "kuberentes"));
+        assertEquals("VoxCompose", lookup(index, "voxcomposs"));
+        assertEquals("PostgreSQL", lookup(index, "postgresqel"));
+        assertEquals("PostgreSQL", lookup(index, "Postgrsql"));
+    }
+
+    @Test
+    void shortWordsAllowOneEdit() {
+        FuzzyIndex index = FuzzyIndex.build(List.of("nginx", "redis"));
+        assertEquals("nginx", lookup(index, "ngnix"));
+        assertNull(lookup(index, "nnix"));
+        assertNull(lookup(index, "rds"));
+    }
+
+    @Test
+    void exactAndUnrelatedWordsAreNotCorrected() {
+        FuzzyIndex index = FuzzyIndex.build(List.of("Kubernetes"));
+        assertNull(lookup(index, "kubernetes"));
+        assertNull(lookup(index, "governance"));
+    }
+
+    @Test
+    void inflectionsAndLastLetterChangesAreOtherWords() {
+        FuzzyIndex index = FuzzyIndex.build(List.of("Rust", "Docker", "Helm", "Linux", "Kubernetes", "Container"));
+        assertNull(lookup(index, "rusty"));
+        assertNull(lookup(index, "docket"));
+        assertNull(lookup(index, "helms"));
+        assertNull(lookup(index, "linus"));
+        assertNull(lookup(index, "containers"));
+        assertEquals("Docker", lookup(index, "dokcer"));
+        assertEquals("Kubernetes", lookup(index, "kubernetis"));
+    }
+
+    @Test
+    void tiesAreAmbiguous() {
+        FuzzyIndex index = FuzzyIndex.build(List.of("mysql", "mssql"));
+        assertNull(lookup(index, "mzsql"));
+    }
+
+    @Test
+    void lookupWorksOnRegions() {
+        FuzzyIndex index = FuzzyIndex.build(List.of("Kubernetes"));
+        String text = "deploy to kubernetis now";
+        assertEquals("Kubernetes", index.lookup(text, 10, 20, 0.5));
+    }
+
+    @Test
+    void distanceCountsTranspositionsAsOneEdit() {
+        assertEquals(0, FuzzyIndex.distance("kubectl", "kubectl", 2));
+        assertEquals(1, FuzzyIndex.distance("kuberentes", "kubernetes", 2));
+        assertEquals(2, FuzzyIndex.distance("kitten", "sittin", 2));
+        assertEquals(3, FuzzyIndex.distance("kitten", "sitting", 2));
+    }
+}
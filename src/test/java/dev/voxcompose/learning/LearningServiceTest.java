@@ -2,12 +2,19 @@ package dev.voxcompose.learning;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.io.TempDir;
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.nio.file.Path;
+import java.util.List;
+
 class LearningServiceTest {
 
     private LearningService service;
 
+    @TempDir
+    Path tempDir;
+
     @BeforeEach
     void setUp() {
         service = new LearningService();
@@ -79,9 +86,8 @@ class LearningServiceTest {
 
     @Test
     void fixConcatenationWithInto() {
-        // The regex splits "into" as "in" + "to", so "Gointo" becomes "Go in to"
         String result = service.applyCorrections("Gointo the folder");
-        assertEquals("Go in to the folder", result);
+        assertEquals("Go into the folder", result);
     }
 
     @Test
@@ -107,4 +113,463 @@ class LearningServiceTest {
     void getProfileNotNull() {
         assertNotNull(service.getProfile());
     }
+
+    @Test
+    void learnsAcrossPunctuation() {
+        LearningService learner = new LearningService(tempDir.resolve("learned_profile.json"));
+        learner.learn("ship it to kubernetis, then relax", "Ship it to kubernetes, then relax.");
+        learner.learn("ship it to kubernetis, then relax", "Ship it to kubernetes, then relax.");
+
+        assertEquals("kubernetes", learner.getProfile().getWordCorrections().get("kubernetis"));
+        assertEquals("on kubernetes, today", learner.applyCorrections("on kubernetis, today"));
+    }
+
+    @Test
+    void flushSavesBackgroundLearning() throws Exception {
+        Path profilePath = tempDir.resolve("learned_profile.json");
+        LearningService learner = new LearningService(profilePath);
+        learner.learnAsync("deploy to kubernetis", "deploy to kubernetes");
+        learner.learnAsync("ship the postgress dump", "ship the postgres dump");
+
+        assertTrue(learner.flushLearning());
+        String saved = java.nio.file.Files.readString(profilePath);
+        assertTrue(saved.contains("kubernetis"));
+        assertTrue(saved.contains("postgress"));
+        assertEquals(2, learner.getLearningStats().processed);
+    }
+
+    @Test
+    void mergesLearningFromConcurrentProcesses() throws Exception {
+        Path profilePath = tempDir.resolve("learned_profile.json");
+        LearningService first = new LearningService(profilePath);
+        LearningService second = new LearningService(profilePath);
+
+        first.learn("ship the postgress dump", "ship the postgres dump");
+        first.learn("ship the postgress dump", "ship the postgres dump");
+        first.learn("deploy to kubernetis", "deploy to kubernetes");
+        second.learn("deploy to kubernetis", "deploy to kubernetes");
+
+        // One sighting each only activates once both are merged
+        assertEquals("deploy to kubernetes", second.applyCorrections("deploy to kubernetis"));
+        assertEquals("ship the postgres dump", second.applyCorrections("ship the postgress dump"));
+
+        UserProfile saved = new LearningService(profilePath).getProfile();
+        assertEquals("postgres", saved.getWordCorrections().get("postgress"));
+        assertEquals("kubernetes", saved.getWordCorrections().get("kubernetis"));
+        try (var files = java.nio.file.Files.list(tempDir)) {
+            assertTrue(files.noneMatch(file -> file.toString().endsWith(".tmp")));
+        }
+    }
+
+    @Test
+    void overwritesUnreadableProfile() throws Exception {
+        Path profilePath = tempDir.resolve("learned_profile.json");
+        java.nio.file.Files.writeString(profilePath, "{\"wordCorrections\": {");
+        LearningService learner = new LearningService(profilePath);
+        learner.learn("deploy to kubernetis", "deploy to kubernetes");
+        learner.learn("deploy to kubernetis", "deploy to kubernetes");
+
+        assertNotNull(UserProfile.fromJson(java.nio.file.Files.readString(profilePath)));
+        UserProfile saved = new LearningService(profilePath).getProfile();
+        assertEquals("kubernetes", saved.getWordCorrections().get("kubernetis"));
+    }
+
+    @Test
+    void appendsLearningToJournalAndReplaysItOnLoad() throws Exception {
+        Path profilePath = tempDir.resolve("learned_profile.json");
+        Path journalPath = tempDir.resolve("learned_profile.json" + ProfileStore.JOURNAL_SUFFIX);
+        LearningService learner = new LearningService(profilePath);
+        learner.learn("restart the server", "Restart the server.");
+        String snapshot = java.nio.file.Files.readString(profilePath);
+
+        learner.learn("deploy to kubernetis", "deploy to kubernetes");
+        learner.learn("deploy to kubernetis", "deploy to kubernetes");
+
+        assertEquals(snapshot, java.nio.file.Files.readString(profilePath));
+        assertEquals(1 + 2 * 2, java.nio.file.Files.readAllLines(journalPath).size());
+        LearningService reloaded = new LearningService(profilePath);
+        assertEquals("deploy on kubernetes", reloaded.applyCorrections("deploy on kubernetis"));
+        assertEquals(3, reloaded.getTotalRefinements());
+    }
+
+    @Test
+    void compactionFoldsTheJournalIntoTheSnapshot() throws Exception {
+        Path profilePath = tempDir.resolve("learned_profile.json");
+        Path journalPath = tempDir.resolve("learned_profile.json" + ProfileStore.JOURNAL_SUFFIX);
+        LearningService learner = new LearningService(profilePath);
+        learner.learn("restart the server", "Restart the server.");
+        learner.learn("deploy to kubernetis", "deploy to kubernetes");
+        learner.learn("deploy to kubernetis", "deploy to kubernetes");
+
+        learner.compactProfile();
+
+        assertEquals(1, java.nio.file.Files.readAllLines(journalPath).size());
+        UserProfile saved = UserProfile.fromJson(java.nio.file.Files.readString(profilePath));
+        assertEquals("kubernetes", saved.getWordCorrections().get("kubernetis"));
+        assertEquals(3, saved.getTotalRefinements());
+    }
+
+    @Test
+    void skipsATornJournalEntry() throws Exception {
+        Path profilePath = tempDir.resolve("learned_profile.json");
+        Path journalPath = tempDir.resolve("learned_profile.json" + ProfileStore.JOURNAL_SUFFIX);
+        LearningService learner = new LearningService(profilePath);
+        learner.learn("restart the server", "Restart the server.");
+        learner.learn("deploy to kubernetis", "deploy to kubernetes");
+        java.nio.file.Files.writeString(journalPath, "{\"type\":\"correction\",\"wro",
+            java.nio.file.StandardOpenOption.APPEND);
+
+        LearningService reloaded = new LearningService(profilePath);
+        assertEquals(2, reloaded.getTotalRefinements());
+        reloaded.learn("deploy to kubernetis", "deploy to kubernetes");
+
+        LearningService again = new LearningService(profilePath);
+        assertEquals(3, again.getTotalRefinements());
+        assertEquals("deploy on kubernetes", again.applyCorrections("deploy on kubernetis"));
+    }
+
+    @Test
+    void learnsCorrectionsAfterAnAddedWord() {
+        LearningService learner = new LearningService(tempDir.resolve("learned_profile.json"));
+        for (int i = 0; i < 2; i++) {
+            learner.learn("deploy it to kubernetis and the postgress database",
+                "Now deploy it to Kubernetes and the Postgres database.");
+        }
+
+        UserProfile profile = learner.getProfile();
+        assertEquals("Kubernetes", profile.getWordCorrections().get("kubernetis"));
+        assertEquals("Postgres", profile.getWordCorrections().get("postgress"));
+        assertFalse(profile.getCapitalizations().containsKey("now"));
+    }
+
+    @Test
+    void learnsSplitsJoinsAndCapitalizations() {
+        LearningService learner = new LearningService(tempDir.resolve("learned_profile.json"));
+        for (int i = 0; i < 2; i++) {
+            learner.learn("Push the json change to get hub with nodejs", "Push the JSON change to GitHub with Node.js");
+        }
+
+        UserProfile profile = learner.getProfile();
+        assertEquals("JSON", profile.getCapitalizations().get("json"));
+        assertEquals("GitHub", profile.getPhraseCorrections().get("get hub"));
+        assertEquals("Node.js", profile.getWordCorrections().get("nodejs"));
+        assertFalse(profile.getCapitalizations().containsKey("push"));
+    }
+
+    @Test
+    void correctsWhileLearningConcurrently() throws Exception {
+        LearningService learner = new LearningService(tempDir.resolve("learned_profile.json"));
+        java.util.concurrent.ExecutorService readers = java.util.concurrent.Executors.newFixedThreadPool(4);
+        try {
+            List<java.util.concurrent.Future<String>> results = new java.util.ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                int n = i;
+                if (n % 20 == 0) {
+                    learner.learnAsync("deploy term" + n + "x now", "deploy term" + n + " now");
+                }
+                results.add(readers.submit(() -> learner.applyCorrections("pushto github and term" + n + "x")));
+            }
+            for (java.util.concurrent.Future<String> result : results) {
+                assertTrue(result.get().startsWith("push to GitHub and term"));
+            }
+        } finally {
+            readers.shutdown();
+        }
+        assertTrue(learner.flushLearning());
+    }
+
+    @Test
+    void editValueIsShareOfWordsChanged() {
+        assertEquals(0, LearningService.editValue("push to GitHub", "push to GitHub."), 1e-9);
+        assertEquals(0.5, LearningService.editValue("a b c d", "a b x y"), 1e-9);
+        assertEquals(1, LearningService.editValue("", "new text"), 1e-9);
+        assertEquals(0.5, LearningService.editValue("use json", "use JSON"), 1e-9);
+    }
+
+    @Test
+    void measuredRefinementsAreRecordedEvenIfUnchanged() {
+        LearningService learner = new LearningService(tempDir.resolve("learned_profile.json"));
+        learner.learnAsync("ship it", "ship it", "Ship it.", 30, 1200);
+        learner.learnAsync("ship it", "ship it", "Ship it.", 30, 800);
+        assertTrue(learner.flushLearning());
+
+        assertEquals(2, learner.getTotalRefinements());
+        assertEquals(1000, learner.getProfile().getAverageRefinementTime(), 0.001);
+    }
+
+    @Test
+    void defaultProfileDoesNotSkipCleanInput() {
+        LearningService learner = new LearningService(tempDir.resolve("learned_profile.json"));
+        for (String text : new String[] {"Testing input with duration 30s",
+                "The build passed. I merged the change and deployed it to staging."}) {
+            LearningService.RefinementEstimate estimate = learner.estimateRefinementValue(text);
+            assertTrue(estimate.isWorthRefining(), text + " scored " + estimate.score);
+            assertEquals("refine", estimate.decision());
+        }
+    }
+
+    @Test
+    void unchangedRefinementsLowerThePredictedValue() {
+        LearningService learner = new LearningService(tempDir.resolve("learned_profile.json"));
+        String text = "so we should refactor the parser and then update the tests and ship it without waiting for "
+            + "the review because it is late and nobody else is around to look at it today";
+        LearningService.RefinementEstimate before = learner.estimateRefinementValue(text);
+        assertTrue(before.isWorthRefining());
+
+        for (int i = 0; i < 30; i++) {
+            learner.learnAsync(text, text, text, 30, 1000);
+        }
+        assertTrue(learner.flushLearning());
+        LearningService.RefinementEstimate after = learner.estimateRefinementValue(text);
+        assertTrue(after.score < before.score);
+        assertFalse(after.isWorthRefining());
+    }
+
+    @Test
+    void learnsFromCorpusInParallel() throws Exception {
+        Path corpus = tempDir.resolve("history");
+        java.nio.file.Files.createDirectories(corpus.resolve("notes"));
+        StringBuilder jsonl = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            jsonl.append("{\"input\": \"deploy ").append(i).append(" to kubernetis now\", ")
+                .append("\"refined\": \"Deploy ").append(i).append(" to Kubernetes now.\"}\n");
+        }
+        jsonl.append("not json\n");
+        jsonl.append("{\"raw\": \"the postgress dump\", \"output\": \"the Postgres dump\"}\n");
+        java.nio.file.Files.writeString(corpus.resolve("history.jsonl"), jsonl);
+        java.nio.file.Files.writeString(corpus.resolve("notes/a.txt"), "restart the postgress server");
+        java.nio.file.Files.writeString(corpus.resolve("notes/a.md"), "Restart the Postgres server.");
+        java.nio.file.Files.writeString(corpus.resolve("notes/b.txt"), "no refinement for this one");
+
+        Path profilePath = tempDir.resolve("learned_profile.json");
+        LearningService learner = new LearningService(profilePath);
+        List<Integer> progress = java.util.Collections.synchronizedList(new java.util.ArrayList<>());
+        LearningService.CorpusStats stats = learner.learnFromCorpus(corpus, (done, total) -> progress.add(done));
+
+        assertEquals(202, stats.pairs);
+        assertEquals(1, stats.skipped);
+        assertEquals(2, stats.promoted);
+        assertTrue(progress.contains(202));
+        assertEquals("Kubernetes", learner.getProfile().getWordCorrections().get("kubernetis"));
+        assertEquals("Postgres", learner.getProfile().getWordCorrections().get("postgress"));
+        assertTrue(java.nio.file.Files.readString(profilePath).contains("kubernetis"));
+    }
+
+    @Test
+    void parallelCorrectionMatchesSingleThreaded() {
+        LearningService learner = new LearningService(tempDir.resolve("learned_profile.json"));
+        UserProfile profile = learner.getProfile();
+        profile.addCorrection("kubernetis", "kubernetes");
+        profile.addCorrection("push to", "push-to");
+        profile.addCorrection("e.g. this", "for example this");
+        profile.addCorrection("postgresql", "PostgreSQL");
+        profile.addCorrection("etc.", "and so on");
+        profile.addPhraseCorrection("get hub", "GitHub");
+
+        String[] pieces = {
+            "pushto github", "kubernetis", "push to", "e.g. this", "postgresql", "Iwould", "Carpet", "Gointo",
+            "json", ". ", "! ", "? ", "\n", ", ", " ", "  ", "e.g.", "etc.", "this", "get", "hub", "\t"
+        };
+        java.util.Random random = new java.util.Random(42);
+        StringBuilder input = new StringBuilder();
+        while (input.length() < 20_000) {
+            input.append(pieces[random.nextInt(pieces.length)]).append(' ');
+        }
+        String text = input.toString();
+
+        String expected = learner.applyCorrections(text);
+        for (int chunk : new int[] {16, 64, 257, 4096}) {
+            assertEquals(expected, learner.applyCorrectionsParallel(text, chunk), "chunk size " + chunk);
+        }
+    }
+
+    @Test
+    void appliesPhraseCorrections() {
+        LearningService learner = new LearningService(tempDir.resolve("learned_profile.json"));
+        learner.getProfile().addPhraseCorrection("get hub", "GitHub");
+        learner.getProfile().addPhraseCorrection("pie test", "pytest");
+
+        assertEquals("Push to GitHub and run pytest.", learner.applyCorrections("Push to get hub and run pie test."));
+    }
+
+    @Test
+    void correctsNearMissesOfLearnedVocabulary() {
+        LearningService learner = new LearningService(tempDir.resolve("learned_profile.json"));
+        learner.getProfile().addTechnicalTerm("VoxCompose");
+        learner.getProfile().addCorrection("kubernetes", "Kubernetes");
+
+        assertEquals("install VoxCompose on Kubernetes", learner.applyCorrections("install voxcomposs on kuberentes"));
+        assertEquals("compose the governance notes", learner.applyCorrections("compose the governance notes"));
+    }
+
+    @Test
+    void correctsSoundAlikesOfLearnedVocabulary() {
+        LearningService learner = new LearningService(tempDir.resolve("learned_profile.json"));
+        learner.getProfile().addTechnicalTerm("nginx");
+        learner.getProfile().addTechnicalTerm("kubectl");
+
+        assertEquals("restart nginx, then kubectl apply",
+            learner.applyCorrections("restart engine x, then cube cuddle apply"));
+        assertEquals("the engine is fine", learner.applyCorrections("the engine is fine"));
+    }
+
+    @Test
+    void keepsOrdinaryWordsAndNamesNearLearnedVocabulary() {
+        LearningService learner = new LearningService(tempDir.resolve("learned_profile.json"));
+        for (String term : List.of("Rust", "Jest", "Docker", "Deno", "Vite", "Helm", "Linux", "Kotlin", "JSON")) {
+            learner.getProfile().addTechnicalTerm(term);
+        }
+
+        assertEquals("the rusty docket", learner.applyCorrections("the rusty docket"));
+        assertEquals("ask Jess and Jason", learner.applyCorrections("ask Jess and Jason"));
+        assertEquals("two helms for Dena", learner.applyCorrections("two helms for Dena"));
+        assertEquals("call Vito and Linus", learner.applyCorrections("call Vito and Linus"));
+        assertEquals("meet catalin today", learner.applyCorrections("meet catalin today"));
+        assertEquals("run jest on the JSON", learner.applyCorrections("run jest on the json"));
+    }
+
+    @Test
+    void keepsNumbersNextToSoundAlikes() {
+        LearningService learner = new LearningService(tempDir.resolve("learned_profile.json"));
+        learner.getProfile().addTechnicalTerm("Redis");
+        learner.getProfile().addTechnicalTerm("VoxCompose");
+
+        assertEquals("use 2 redis nodes", learner.applyCorrections("use 2 redis nodes"));
+        assertEquals("we run 5 VoxCompose instances", learner.applyCorrections("we run 5 voxcomposs instances"));
+        assertEquals("release 3.5 voxcompose", learner.applyCorrections("release 3.5 voxcompose"));
+        assertEquals("v2 voxcompose", learner.applyCorrections("v2 voxcompose"));
+    }
+
+    @Test
+    void activatesCorrectionsOnlyAfterRepeatedSightings() {
+        LearningService learner = new LearningService(tempDir.resolve("learned_profile.json"));
+        learner.learn("deploy to kubernetis", "deploy to kubernetes");
+        assertEquals("deploy to kubernetis", learner.applyCorrections("deploy to kubernetis"));
+        assertEquals(1, learner.getProfile().getCandidateCount());
+
+        learner.learn("deploy to kubernetis", "deploy to kubernetes");
+        assertEquals("deploy to kubernetes", learner.applyCorrections("deploy to kubernetis"));
+        assertEquals(0, learner.getProfile().getCandidateCount());
+    }
+
+    @Test
+    void learnsSoundAlikeCorrections() {
+        LearningService learner = new LearningService(tempDir.resolve("learned_profile.json"));
+        learner.learn("that was kwik", "that was quick");
+        learner.learn("that was kwik", "that was quick");
+        assertEquals("quick", learner.getProfile().getWordCorrections().get("kwik"));
+    }
+
+    @Test
+    void removesDisfluenciesBeforeCorrecting() {
+        LearningService learner = new LearningService(tempDir.resolve("learned_profile.json"));
+        learner.getProfile().addPhraseCorrection("get hub", "GitHub");
+        assertEquals("push to the GitHub", learner.applyCorrections("um pushto the the get uh hub"));
+    }
+
+    @Test
+    void learnsDroppedFillers() {
+        LearningService learner = new LearningService(tempDir.resolve("learned_profile.json"));
+        learner.learn("mmhmm the tests pass mmhmm", "The tests pass.");
+        assertEquals(List.of("mmhmm"), learner.getProfile().getFillerWords());
+        assertEquals("the tests pass", learner.applyCorrections("the mmhmm tests pass"));
+    }
+
+    @Test
+    void streamingMatchesBufferedCorrection() throws Exception {
+        LearningService learner = new LearningService(tempDir.resolve("learned_profile.json"));
+        UserProfile profile = learner.getProfile();
+        profile.addCorrection("kubernetis", "kubernetes");
+        profile.addCorrection("e.g. this", "for example this");
+
+        String input = "  \n Iwould pushto github.  Carpet kubernetis e.g. this\n\nIt works! json? "
+            + "Um, gointo the the folder e.g. this.\n \n";
+        String expected = learner.applyCorrections(input.trim());
+
+        for (int step : new int[] {1, 3, 7, 1000}) {
+            java.io.StringWriter out = new java.io.StringWriter();
+            learner.applyCorrections(new TrickleReader(input, step), out);
+            assertEquals(expected, out.toString(), "read size " + step);
+        }
+    }
+
+    @Test
+    void streamingMatchesBufferedCorrectionAtTheEndOfInput() throws Exception {
+        LearningService learner = new LearningService(tempDir.resolve("learned_profile.json"));
+        String[] inputs = {"engine\nuh\n", "GitHub, um ", "GitHub, um", "it works, um.", "it works, uh.\n",
+            "so um\n\n", "Done. Um, uh ", "done!  \t", "done,", "wait, um\nuh, ok\n", "um",
+            "it works, um\n", "The deploy is done, uh\n", "it works, um\nnext"};
+        for (String input : inputs) {
+            String expected = learner.applyCorrections(input.trim());
+            for (int step : new int[] {1, 4, 1000}) {
+                java.io.StringWriter out = new java.io.StringWriter();
+                learner.applyCorrections(new TrickleReader(input, step), out);
+                assertEquals(expected, out.toString(), "\"" + input + "\" read size " + step);
+            }
+        }
+    }
+
+    @Test
+    void streamingFlushesCompletedSentences() throws Exception {
+        LearningService learner = new LearningService(tempDir.resolve("learned_profile.json"));
+        java.util.List<String> flushed = new java.util.ArrayList<>();
+        java.io.StringWriter out = new java.io.StringWriter() {
+            @Override
+            public void flush() {
+                flushed.add(toString());
+            }
+        };
+
+        learner.applyCorrections(new TrickleReader("pushto github. And then", 16), out);
+
+        assertEquals("push to GitHub.", flushed.get(0));
+        assertEquals("push to GitHub. And then", out.toString());
+    }
+
+    @Test
+    void streamingCutsLongTextWithoutSentenceEnds() throws Exception {
+        LearningService learner = new LearningService(tempDir.resolve("learned_profile.json"));
+        java.util.List<String> flushed = new java.util.ArrayList<>();
+        java.io.StringWriter out = new java.io.StringWriter() {
+            @Override
+            public void flush() {
+                flushed.add(toString());
+            }
+        };
+        String input = "pushto the code and ".repeat(10_000);
+
+        learner.applyCorrections(new TrickleReader(input, 4096), out);
+
+        assertTrue(flushed.size() > 2, "flushed " + flushed.size() + " times");
+        assertEquals(learner.applyCorrections(input.trim()), out.toString());
+    }
+
+    /**
+     * Returns at most {@code step} chars per read, like a pipe that is still being written.
+     */
+    private static final class TrickleReader extends java.io.Reader {
+        private final String text;
+        private final int step;
+        private int position;
+
+        TrickleReader(String text, int step) {
+            this.text = text;
+            this.step = step;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) {
+            if (position >= text.length()) {
+                return -1;
+            }
+            int n = Math.min(Math.min(len, step), text.length() - position);
+            text.getChars(position, position + n, cbuf, off);
+            position += n;
+            return n;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
 }
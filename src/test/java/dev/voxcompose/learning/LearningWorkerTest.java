@@ -0,0 +1,72 @@
+package dev.voxcompose.learning;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class LearningWorkerTest {
+
+    @Test
+    void batchesEventsIntoOneSave() {
+        List<String> learned = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger saves = new AtomicInteger();
+        LearningWorker worker = new LearningWorker(events -> events.forEach(e -> learned.add(e.input())),
+            saves::incrementAndGet, 16, 60_000, 5_000);
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(worker.submit("in" + i, "out" + i));
+        }
+        assertTrue(worker.flush());
+
+        assertEquals(10, learned.size());
+        assertEquals("in0", learned.get(0));
+        assertEquals(1, saves.get());
+        assertEquals(10, worker.stats().processed);
+        assertEquals(0, worker.stats().queueDepth);
+    }
+
+    @Test
+    void savesAfterDebounce() throws Exception {
+        CountDownLatch saved = new CountDownLatch(1);
+        LearningWorker worker = new LearningWorker(events -> { }, saved::countDown, 16, 20, 5_000);
+        worker.submit("a", "b");
+        assertTrue(saved.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void dropsWhenQueueIsFullAndFlushTimesOut() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        LearningWorker worker = new LearningWorker(events -> {
+            blocked.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, () -> { }, 2, 60_000, 50);
+
+        worker.submit("first", "x");
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        assertTrue(worker.submit("second", "x"));
+        assertTrue(worker.submit("third", "x"));
+        assertFalse(worker.submit("fourth", "x"));
+
+        assertFalse(worker.flush());
+        LearningService.LearningStats stats = worker.stats();
+        assertEquals(1, stats.dropped);
+        assertEquals(2, stats.queueDepth);
+        assertTrue(stats.lastFlushTimedOut);
+
+        release.countDown();
+        worker.setFlushTimeoutMs(5_000);
+        assertTrue(worker.flush());
+        assertEquals(3, worker.stats().processed);
+    }
+}
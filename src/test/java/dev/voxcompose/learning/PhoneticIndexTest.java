@@ -0,0 +1,49 @@
+package dev.voxcompose.learning;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+class PhoneticIndexTest {
+
+    private static String key(String text) {
+        return PhoneticIndex.key(text, 0, text.length());
+    }
+
+    @Test
+    void misHeardTermsShareKeys() {
+        assertEquals(key("JSON"), key("jason"));
+        assertEquals(key("nginx"), key("engine x"));
+        assertEquals(key("kubectl"), key("cube cuddle"));
+        assertEquals(key("pytest"), key("pie test"));
+        assertEquals(key("GitHub"), key("get hub"));
+        assertEquals(key("quick"), key("kwik"));
+    }
+
+    @Test
+    void differentSoundsHaveDifferentKeys() {
+        assertNotEquals(key("nginx"), key("engine"));
+        assertNotEquals(key("docker"), key("darker"));
+        assertNotEquals(key("redis"), key("rest"));
+    }
+
+    @Test
+    void lookupFindsTermAcrossSpaces() {
+        PhoneticIndex index = PhoneticIndex.build(List.of("nginx", "kubectl"));
+        String text = "restart engine x now";
+        assertEquals("nginx", index.lookup(text, 8, 16));
+        assertEquals("kubectl", index.lookup("cube cuddle", 0, 11));
+        assertNull(index.lookup("nginx", 0, 5));
+        assertNull(index.lookup(text, 0, 7));
+    }
+
+    @Test
+    void ambiguousKeysNeverMatch() {
+        PhoneticIndex index = PhoneticIndex.build(List.of("Kafka"), List.of("kafka"));
+        assertEquals("Kafka", index.lookup("kafca", 0, 5));
+
+        PhoneticIndex ambiguous = PhoneticIndex.build(List.of("Rust", "Roast"));
+        assertNull(ambiguous.lookup("rost", 0, 4));
+    }
+}
@@ -0,0 +1,115 @@
+package dev.voxcompose.learning;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+
+class ProfileImageTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static UserProfile sampleProfile() {
+        UserProfile profile = new UserProfile();
+        profile.addCorrection("kubernetis", "kubernetes");
+        profile.addCorrection("github", "GitHub");
+        profile.addPhraseCorrection("cube cuddle", "kubectl");
+        profile.addTechnicalTerm("nginx");
+        profile.addFillerWord("umm");
+        profile.observeCorrection("postgress", "postgres", 1, 1_000L);
+        profile.updateStatistics(120, 1500);
+        profile.recordRefinement(25, 0.3);
+        profile.calibrateRefinementValue(new double[] {0.1, 0.2, 0.3, 0.4, 0.5}, 0.3);
+        return profile;
+    }
+
+    private Path writeJson(UserProfile profile) throws IOException {
+        Path json = tempDir.resolve("learned_profile.json");
+        Files.writeString(json, profile.toJson());
+        return json;
+    }
+
+    @Test
+    void encodingRoundTripsEveryField() {
+        UserProfile profile = sampleProfile();
+        ByteBuffer buf = ByteBuffer.allocate((int) profile.encodedSize());
+        profile.encode(buf);
+        assertEquals(0, buf.remaining());
+        buf.flip();
+
+        UserProfile decoded = UserProfile.decode(buf);
+        // Re-encoded before the sightings were decoded, then compared
+        ByteBuffer again = ByteBuffer.allocate((int) decoded.encodedSize());
+        decoded.encode(again);
+        again.flip();
+        assertEquals(buf.flip(), again);
+        assertEquals(profile.toJson(), decoded.toJson());
+        assertEquals(1, decoded.getCandidateCount());
+        assertEquals("kubernetes", decoded.snapshot().getWordCorrections().get("kubernetis"));
+        assertNotEquals(profile.getRevision(), decoded.getRevision());
+    }
+
+    @Test
+    void loadsImageWrittenForTheSameJson() throws IOException {
+        UserProfile profile = sampleProfile();
+        Path json = writeJson(profile);
+        ProfileImage image = ProfileImage.forProfile(json);
+        byte[] hash = CorrectionIndex.hash(Files.readAllBytes(json));
+        image.save(Files.readAttributes(json, BasicFileAttributes.class), hash, profile);
+
+        ProfileImage.Loaded loaded = image.load(Files.readAttributes(json, BasicFileAttributes.class));
+        assertNotNull(loaded);
+        assertArrayEquals(hash, loaded.jsonHash());
+        assertEquals(profile.toJson(), loaded.profile().toJson());
+    }
+
+    @Test
+    void editedJsonMakesTheImageStale() throws IOException {
+        UserProfile profile = sampleProfile();
+        Path json = writeJson(profile);
+        ProfileImage image = ProfileImage.forProfile(json);
+        image.save(Files.readAttributes(json, BasicFileAttributes.class), new byte[32], profile);
+
+        Files.writeString(json, profile.toJson().replace("kubernetes", "Kubernetes"));
+        Files.setLastModifiedTime(json, FileTime.fromMillis(System.currentTimeMillis() + 60_000));
+        assertNull(image.load(Files.readAttributes(json, BasicFileAttributes.class)));
+    }
+
+    @Test
+    void corruptImageIsIgnored() throws IOException {
+        UserProfile profile = sampleProfile();
+        Path json = writeJson(profile);
+        ProfileImage image = ProfileImage.forProfile(json);
+        image.save(Files.readAttributes(json, BasicFileAttributes.class), new byte[32], profile);
+
+        Path file = tempDir.resolve("learned_profile.json" + ProfileImage.SUFFIX);
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 1] ^= 0x5A;
+        Files.write(file, bytes);
+        assertNull(image.load(Files.readAttributes(json, BasicFileAttributes.class)));
+    }
+
+    @Test
+    void learningLoadsTheImageAndFallsBackToEditedJson() throws IOException {
+        Path profilePath = tempDir.resolve("learned_profile.json");
+        LearningService learner = new LearningService(profilePath);
+        learner.learn("deploy to kubernetis", "deploy to kubernetes");
+        learner.learn("deploy to kubernetis", "deploy to kubernetes");
+        learner.compactProfile();
+        assertTrue(Files.exists(tempDir.resolve("learned_profile.json" + ProfileImage.SUFFIX)));
+        assertEquals("deploy on kubernetes", new LearningService(profilePath).applyCorrections("deploy on kubernetis"));
+
+        String edited = Files.readString(profilePath, StandardCharsets.UTF_8).replace("\"kubernetes\"", "\"Kubernetes\"");
+        Files.writeString(profilePath, edited);
+        Files.setLastModifiedTime(profilePath, FileTime.fromMillis(System.currentTimeMillis() + 60_000));
+        assertEquals("deploy on Kubernetes", new LearningService(profilePath).applyCorrections("deploy on kubernetis"));
+    }
+}
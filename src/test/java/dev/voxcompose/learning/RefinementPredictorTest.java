@@ -0,0 +1,53 @@
+package dev.voxcompose.learning;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class RefinementPredictorTest {
+
+    private static final String CLEAN = "The build passed. I merged the change.";
+    private static final String MESSY = "um so I was thinking uh we should refactor the parser and then update the tests "
+        + "and ship it to kubernetis and the postgress database without waiting for the review because it is late";
+
+    private final LearnedVocabulary vocabulary = LearnedVocabulary.of(new UserProfile().snapshot());
+
+    @Test
+    void cleanTextScoresBelowMessyText() {
+        double[] clean = RefinementPredictor.features(CLEAN, vocabulary);
+        double[] messy = RefinementPredictor.features(MESSY, vocabulary);
+
+        assertArrayEquals(new double[]{0, clean[1], 0, 0, 0}, clean, 1e-9);
+        assertTrue(messy[0] > 0, "fillers");
+        assertEquals(1, messy[2], 1e-9, "one run-on sentence");
+        assertTrue(messy[3] > 0, "unknown words");
+
+        double[] weights = RefinementPredictor.PRIOR_WEIGHTS;
+        // Clean text is not skipped before calibration
+        assertTrue(RefinementPredictor.score(weights, clean) >= 0.6);
+        assertTrue(RefinementPredictor.score(weights, clean) < RefinementPredictor.score(weights, messy));
+        assertTrue(RefinementPredictor.score(weights, messy) > 0.9);
+    }
+
+    @Test
+    void countsStructureCuesAndIgnoresDotsInsideWords() {
+        double[] x = RefinementPredictor.features("First, install Node.js. Second, run the tests.", vocabulary);
+        assertEquals(1, x[4], 1e-9);
+        assertEquals(0, x[1], 1e-9);
+    }
+
+    @Test
+    void calibrationMovesTheScoreTowardsOutcomes() {
+        double[] weights = RefinementPredictor.PRIOR_WEIGHTS.clone();
+        double[] messy = RefinementPredictor.features(MESSY, vocabulary);
+        double before = RefinementPredictor.score(weights, messy);
+        for (int i = 0; i < 100; i++) {
+            RefinementPredictor.calibrate(weights, messy, false);
+        }
+        assertTrue(RefinementPredictor.score(weights, messy) < Math.min(before, 0.6));
+    }
+
+    @Test
+    void emptyTextHasNoFeatures() {
+        assertArrayEquals(new double[5], RefinementPredictor.features("", vocabulary), 0);
+    }
+}
@@ -0,0 +1,70 @@
+package dev.voxcompose.learning;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+class TokenDiffTest {
+
+    @Test
+    void alignsAroundInsertionsAndDeletions() {
+        int[] a = {1, 2, 3, 4, 5};
+        int[] b = {1, 9, 2, 3, 5, 6};
+        assertArrayEquals(new int[] {0, 2, 3, -1, 4}, TokenDiff.align(a, b, 10));
+    }
+
+    @Test
+    void handlesEmptyAndIdenticalSequences() {
+        assertArrayEquals(new int[] {-1, -1}, TokenDiff.align(new int[] {1, 2}, new int[0], 10));
+        assertArrayEquals(new int[] {0, 1, 2}, TokenDiff.align(new int[] {1, 2, 3}, new int[] {1, 2, 3}, 0));
+    }
+
+    @Test
+    void givesUpBeyondTheEditBudget() {
+        int[] a = {1, 2, 3, 4};
+        int[] b = {5, 6, 7, 8};
+        assertNull(TokenDiff.align(a, b, 7));
+        assertNotNull(TokenDiff.align(a, b, 8));
+    }
+
+    @Test
+    void findsALongestCommonSubsequence() {
+        Random random = new Random(7);
+        for (int round = 0; round < 200; round++) {
+            int[] a = randomTokens(random);
+            int[] b = randomTokens(random);
+            int[] match = TokenDiff.align(a, b, a.length + b.length);
+
+            int matched = 0;
+            int previous = -1;
+            for (int i = 0; i < a.length; i++) {
+                if (match[i] >= 0) {
+                    assertTrue(match[i] > previous, "alignment is monotonic");
+                    assertEquals(a[i], b[match[i]]);
+                    previous = match[i];
+                    matched++;
+                }
+            }
+            assertEquals(lcsLength(a, b), matched);
+        }
+    }
+
+    private static int[] randomTokens(Random random) {
+        int[] tokens = new int[random.nextInt(12)];
+        for (int i = 0; i < tokens.length; i++) {
+            tokens[i] = random.nextInt(4);
+        }
+        return tokens;
+    }
+
+    private static int lcsLength(int[] a, int[] b) {
+        int[][] lcs = new int[a.length + 1][b.length + 1];
+        for (int i = 1; i <= a.length; i++) {
+            for (int j = 1; j <= b.length; j++) {
+                lcs[i][j] = a[i - 1] == b[j - 1] ? lcs[i - 1][j - 1] + 1 : Math.max(lcs[i - 1][j], lcs[i][j - 1]);
+            }
+        }
+        return lcs[a.length][b.length];
+    }
+}
@@ -256,4 +256,253 @@ class UserProfileTest {
         // Should have content
         assertFalse(result.isEmpty());
     }
+
+    @Test
+    @DisplayName("JSON round trip keeps corrections, vocabulary and their order")
+    void testJsonRoundTrip() {
+        profile.addCorrection("kubernetis", "kubernetes");
+        profile.addCorrection("github", "GitHub");
+        profile.addTechnicalTerm("VoxCore");
+        profile.addTechnicalTerm("nginx");
+
+        String json = profile.toJson();
+        assertTrue(json.contains("\"kubernetis\": \"kubernetes\""));
+        assertTrue(json.contains("\"technicalVocabulary\": [\n    \"VoxCore\",\n    \"nginx\"\n  ]"));
+
+        UserProfile loaded = UserProfile.fromJson(json);
+        assertEquals("kubernetes", loaded.getWordCorrections().get("kubernetis"));
+        assertEquals("GitHub", loaded.getCapitalizations().get("github"));
+        assertEquals(java.util.List.of("VoxCore", "nginx"), loaded.getTechnicalVocabulary());
+
+        loaded.addTechnicalTerm("nginx");
+        assertEquals(2, loaded.getTechnicalVocabulary().size());
+    }
+
+    @Test
+    @DisplayName("Variants of one text share one rule")
+    void testAddCorrectionNormalizesKey() {
+        profile.addCorrection("Git Hub", "GitHub");
+        profile.addCorrection("git  hub", "GitHub");
+        profile.addCorrection(" kubernetis ", "kubernetes");
+        profile.addCorrection("kubernetis", "kubernetes");
+
+        assertEquals(java.util.Map.of("git hub", "GitHub"), profile.getPhraseCorrections());
+        assertEquals(java.util.Map.of("kubernetis", "kubernetes"), profile.getWordCorrections());
+        assertEquals(2, profile.getCorrectionsCount());
+    }
+
+    @Test
+    @DisplayName("Word corrections keep the case of the wrong word")
+    void testAddCorrectionKeepsWordCase() {
+        profile.addCorrection("Kubernetis", "Kubernetes");
+
+        assertEquals("Kubernetes", profile.getWordCorrections().get("Kubernetis"));
+        LearningService learner = new LearningService(tempDir.resolve("learned_profile.json"));
+        learner.getProfile().addCorrection("Kubernetis", "Kubernetes");
+        assertEquals("deploy to Kubernetes", learner.applyCorrections("deploy to Kubernetis"));
+    }
+
+    @Test
+    @DisplayName("Getters are read-only views")
+    void testGettersAreViews() {
+        java.util.List<String> vocabulary = profile.getTechnicalVocabulary();
+        profile.addTechnicalTerm("GitHub");
+        assertEquals(java.util.List.of("GitHub"), vocabulary);
+        assertThrows(UnsupportedOperationException.class, () -> vocabulary.add("x"));
+        assertThrows(UnsupportedOperationException.class, () -> profile.getWordCorrections().put("a", "b"));
+    }
+
+    @Test
+    @DisplayName("Phrase corrections are normalized and exported")
+    void testAddPhraseCorrection() {
+        profile.addPhraseCorrection("  Cube   Cuddle ", "kubectl");
+        profile.addPhraseCorrection("get hub", "get hub");
+        profile.addPhraseCorrection(null, "x");
+
+        assertEquals(java.util.Map.of("cube cuddle", "kubectl"), profile.getPhraseCorrections());
+        assertEquals(1, profile.getCorrectionsCount());
+        assertEquals("kubectl", profile.exportVocabularyForWhisper());
+    }
+
+    @Test
+    @DisplayName("Observed corrections activate after repeated consistent sightings")
+    void testObserveCorrectionPromotes() {
+        long now = System.currentTimeMillis();
+        assertFalse(profile.observeCorrection("kubernetis", "kubernetes", now));
+        assertFalse(profile.observeCorrection("kubernetis", "Kubernetes", now));
+        assertTrue(profile.getWordCorrections().isEmpty());
+        assertTrue(profile.observeCorrection("kubernetis", "Kubernetes", now));
+        assertEquals("Kubernetes", profile.getWordCorrections().get("kubernetis"));
+
+        assertFalse(profile.observeCorrection("Get  Hub", "GitHub", now));
+        assertTrue(profile.observeCorrection("get hub", "GitHub", now));
+        assertEquals("GitHub", profile.getPhraseCorrections().get("get hub"));
+    }
+
+    @Test
+    @DisplayName("Active rules are capped, evicting the least used and oldest")
+    void testActiveRulesAreCapped() {
+        long day = 86_400_000L;
+        long now = System.currentTimeMillis();
+        profile.setRuleLimits(1, 10);
+        // Old but frequent, recent but rare, and recent and frequent
+        for (int i = 0; i < 10; i++) {
+            profile.observeCorrection("old" + i + "x", "old" + i, now - 365 * day);
+            profile.observeCorrection("old" + i + "x", "old" + i, now - 365 * day);
+        }
+        profile.observeCorrection("newx", "new", now);
+        profile.observeCorrection("hotx", "hot", now);
+        profile.observeCorrection("hotx", "hot", now);
+
+        assertTrue(profile.getCorrectionsCount() <= 10);
+        assertEquals("new", profile.getWordCorrections().get("newx"));
+        assertEquals("hot", profile.getWordCorrections().get("hotx"));
+        assertNull(profile.getWordCorrections().get("old0x"));
+    }
+
+    @Test
+    @DisplayName("Sightings survive a JSON round trip")
+    void testObservationsRoundTrip() {
+        profile.observeCorrection("kubernetis", "kubernetes");
+        UserProfile loaded = UserProfile.fromJson(profile.toJson());
+        assertTrue(loaded.observeCorrection("kubernetis", "kubernetes"));
+    }
+
+    @Test
+    @DisplayName("Threshold rises while refinements at it barely change the text")
+    void testThresholdRisesForLowValueRefinements() {
+        for (int i = 0; i < 5; i++) {
+            profile.updateStatistics(100, 2000);
+            profile.recordRefinement(21, 0.01);
+        }
+        assertEquals(22, profile.getMinDurationForRefinement());
+        assertEquals(2000, profile.getAverageRefinementTime(), 0.001);
+
+        // Unmeasured refinements do not move the latency average
+        profile.updateStatistics(100);
+        assertEquals(2000, profile.getAverageRefinementTime(), 0.001);
+    }
+
+    @Test
+    @DisplayName("Threshold falls with a fast model and valuable refinements")
+    void testThresholdFallsForFastValuableRefinements() {
+        for (int i = 0; i < 6; i++) {
+            profile.updateStatistics(100, 500);
+            profile.recordRefinement(22, 0.2);
+        }
+        assertEquals(0.025, profile.getMinEditValue(), 1e-9);
+        assertEquals(19, profile.getMinDurationForRefinement());
+
+        // No samples below 20s yet, so it waits there
+        profile.recordRefinement(40, 0.2);
+        assertEquals(19, profile.getMinDurationForRefinement());
+
+        UserProfile loaded = UserProfile.fromJson(profile.toJson());
+        assertEquals(19, loaded.getMinDurationForRefinement());
+        assertEquals(500, loaded.getAverageRefinementTime(), 0.001);
+    }
+
+    @Test
+    @DisplayName("Snapshots are immutable and replaced on every change")
+    void testSnapshotsAreCopyOnWrite() {
+        profile.addCorrection("kubernetis", "Kubernetes");
+        ProfileSnapshot before = profile.snapshot();
+
+        profile.addCorrection("postgress", "Postgres");
+        assertEquals(1, before.getCorrectionsCount());
+        assertFalse(before.getWordCorrections().containsKey("postgress"));
+        assertThrows(UnsupportedOperationException.class, () -> before.getWordCorrections().put("a", "b"));
+
+        ProfileSnapshot after = profile.snapshot();
+        assertEquals("Postgres", after.getWordCorrections().get("postgress"));
+        assertTrue(after.getRevision() > before.getRevision());
+
+        // Statistics alone reuse the rule copies
+        profile.updateStatistics(10, 500);
+        assertSame(after.getWordCorrections(), profile.snapshot().getWordCorrections());
+        assertEquals(1, profile.snapshot().getTotalRefinements());
+    }
+
+    @Test
+    @DisplayName("A group of changes is published once, at the end")
+    void testUpdatePublishesOnce() {
+        ProfileSnapshot before = profile.snapshot();
+        profile.update(() -> {
+            profile.addCorrection("kubernetis", "Kubernetes");
+            profile.addTechnicalTerm("VoxCore");
+            assertSame(before, profile.snapshot());
+        });
+        assertEquals(1, profile.snapshot().getCorrectionsCount());
+        assertEquals(java.util.List.of("VoxCore"), profile.snapshot().getTechnicalVocabulary());
+
+        UserProfile loaded = UserProfile.fromJson(profile.toJson());
+        assertEquals("Kubernetes", loaded.snapshot().getWordCorrections().get("kubernetis"));
+    }
+
+    @Test
+    @DisplayName("JSON codec escapes like Gson, skips unknown fields and rejects malformed input")
+    void testJsonCodecCompatibility() {
+        profile.addCorrection("a<b", "a & b's");
+        String json = profile.toJson();
+        assertTrue(json.contains("\"a\\u003cb\": \"a \\u0026 b\\u0027s\""));
+        assertFalse(json.contains("refinementValueWeights"));
+
+        UserProfile loaded = UserProfile.fromJson(
+            "{\"futureField\": {\"x\": [1, 2]}, \"wordCorrections\": {\"a<b\": \"a & b's\"},"
+                + " \"capitalizations\": null, \"totalRefinements\": 7}");
+        assertEquals("a & b's", loaded.getWordCorrections().get("a<b"));
+        assertTrue(loaded.getCapitalizations().isEmpty());
+        assertEquals(7, loaded.getTotalRefinements());
+        assertEquals(21, loaded.getMinDurationForRefinement());
+
+        assertNull(UserProfile.fromJson(""));
+        assertThrows(com.google.gson.JsonParseException.class, () -> UserProfile.fromJson("{\"wordCorrections\": ["));
+        assertThrows(com.google.gson.JsonParseException.class, () -> UserProfile.fromJson("[1, 2]"));
+    }
+
+    @Test
+    @DisplayName("Export ranks terms by decayed sightings, unseen terms last in order")
+    void testExportRanksByUsage() {
+        long now = 1_000L * 86_400_000L;
+        profile.addTechnicalTerm("VoxCore");
+        // 5 sightings two half-lives ago score 1.25, 2 sightings today score 2
+        profile.observeCorrection("kubernetis", "kubernetes", 5, now - 60L * 86_400_000L);
+        profile.observeCorrection("postgress", "postgres", 2, now);
+        profile.addTechnicalTerm("nginx");
+
+        assertEquals(java.util.List.of("postgres", "kubernetes", "VoxCore", "nginx"),
+            profile.rankVocabulary(100, now));
+    }
+
+    @Test
+    @DisplayName("Export fills the token budget and skips terms that no longer fit")
+    void testExportFillsTokenBudget() {
+        profile.addTechnicalTerm("Supercalifragilistic");   // 5 tokens
+        profile.addTechnicalTerm("API");                    // 1 token, plus the comma
+        assertEquals("API", profile.exportVocabularyForWhisper(3));
+        assertEquals("Supercalifragilistic, API", profile.exportVocabularyForWhisper(7));
+
+        for (int i = 0; i < 1500; i++) {
+            profile.addTechnicalTerm("term" + i);
+        }
+        String[] terms = profile.exportVocabularyForWhisper(WhisperVocabulary.DEFAULT_TOKEN_BUDGET).split(", ");
+        int tokens = terms.length - 1;
+        for (String term : terms) {
+            tokens += WhisperVocabulary.estimateTokens(term);
+        }
+        assertTrue(tokens <= WhisperVocabulary.DEFAULT_TOKEN_BUDGET, "Estimated " + tokens + " tokens");
+        assertTrue(tokens > WhisperVocabulary.DEFAULT_TOKEN_BUDGET - 5, "Budget left unused: " + tokens);
+    }
+
+    @Test
+    @DisplayName("Token estimates split case changes, digits, symbols and non-ASCII letters")
+    void testEstimateTokens() {
+        assertEquals(2, WhisperVocabulary.estimateTokens("kubectl"));
+        assertEquals(2, WhisperVocabulary.estimateTokens("GitHub"));
+        assertEquals(1, WhisperVocabulary.estimateTokens("JSON"));
+        assertEquals(2, WhisperVocabulary.estimateTokens("push to"));
+        assertEquals(3, WhisperVocabulary.estimateTokens("C++"));
+        assertEquals(3, WhisperVocabulary.estimateTokens("term123"));
+        assertEquals(2, WhisperVocabulary.estimateTokens("caf\u00e9"));
+    }
 }
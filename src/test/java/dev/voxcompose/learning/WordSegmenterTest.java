@@ -0,0 +1,46 @@
+package dev.voxcompose.learning;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+class WordSegmenterTest {
+
+    private static String split(WordSegmenter segmenter, String word) {
+        int[] cuts = new int[WordSegmenter.maxCuts()];
+        int count = segmenter.segment(word, 0, word.length(), cuts);
+        StringBuilder out = new StringBuilder();
+        int start = 0;
+        for (int k = 0; k < count; k++) {
+            out.append(word, start, cuts[k]).append(' ');
+            start = cuts[k];
+        }
+        return out.append(word, start, word.length()).toString();
+    }
+
+    @Test
+    void splitsRunTogetherWords() {
+        WordSegmenter segmenter = WordSegmenter.withVocabulary(List.of());
+        assertEquals("push to", split(segmenter, "pushto"));
+        assertEquals("commit this", split(segmenter, "committhis"));
+        assertEquals("I would", split(segmenter, "Iwould"));
+        assertEquals("Go into", split(segmenter, "Gointo"));
+    }
+
+    @Test
+    void keepsRealWords() {
+        WordSegmenter segmenter = WordSegmenter.withVocabulary(List.of());
+        assertEquals("potato", split(segmenter, "potato"));
+        assertEquals("onto", split(segmenter, "onto"));
+        assertEquals("carpet", split(segmenter, "carpet"));
+        assertEquals("into", split(segmenter, "into"));
+    }
+
+    @Test
+    void learnedVocabularyIsKnown() {
+        WordSegmenter segmenter = WordSegmenter.withVocabulary(List.of("kubectl"));
+        assertEquals("kubectl", split(segmenter, "kubectl"));
+        assertEquals("kubectl to", split(segmenter, "kubectlto"));
+    }
+}
@@ -0,0 +1,59 @@
+package dev.voxcompose.text;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class MarkdownFormatterTest {
+
+    @Test
+    void groupsSentencesIntoParagraphs() {
+        String text = "One. Two. Three. Four. Five.";
+        assertEquals("One. Two. Three. Four.\n\nFive.", MarkdownFormatter.format(text));
+        assertEquals("Intro here.\n\nAnyway, next topic.", MarkdownFormatter.format("Intro here. Anyway, next topic."));
+        assertEquals("First part.\n\nSecond part.", MarkdownFormatter.format("First part.\n\nSecond part."));
+    }
+
+    @Test
+    void turnsSpokenCuesIntoNumberedList() {
+        String text = "There are three steps. First, install Java. Second, run the build. "
+            + "It takes a minute. Third, ship it. That is all.";
+        assertEquals("There are three steps.\n\n"
+            + "1. Install Java.\n"
+            + "2. Run the build. It takes a minute.\n"
+            + "3. Ship it.\n\n"
+            + "That is all.", MarkdownFormatter.format(text));
+    }
+
+    @Test
+    void turnsPointCuesIntoBullets() {
+        String text = "Next point, the cache is cold. Another point: logs are noisy. Finally, we ship.";
+        assertEquals("- The cache is cold.\n- Logs are noisy.\n- We ship.", MarkdownFormatter.format(text));
+    }
+
+    @Test
+    void ignoresCuesThatDoNotFormAList() {
+        assertEquals("First, thanks for coming. We start now.",
+            MarkdownFormatter.format("First, thanks for coming. We start now."));
+        assertEquals("First time I saw it. Second guessing is fine.",
+            MarkdownFormatter.format("First time I saw it. Second guessing is fine."));
+        assertEquals("Finally, it works.", MarkdownFormatter.format("Finally, it works."));
+    }
+
+    @Test
+    void turnsSpokenHeadingsIntoHeadings() {
+        String text = "Title: release notes. Heading, deployment. We deploy on Fridays.";
+        assertEquals("# Release notes\n\n## Deployment\n\nWe deploy on Fridays.", MarkdownFormatter.format(text));
+        assertEquals("Section two covers it.", MarkdownFormatter.format("Section two covers it."));
+    }
+
+    @Test
+    void breaksOnSpokenNewParagraph() {
+        assertEquals("Hello there.\n\nNext thing.", MarkdownFormatter.format("Hello there. New paragraph. Next thing."));
+    }
+
+    @Test
+    void keepsAbbreviationsAndMarkdownLines() {
+        assertEquals("Use a tool, e.g. this one. Done.", MarkdownFormatter.format("Use a tool, e.g. this one. Done."));
+        assertEquals("# Notes\n- one\n- two", MarkdownFormatter.format("# Notes\n- one\n- two"));
+    }
+}
@@ -0,0 +1,128 @@
+package dev.voxcompose.text;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+
+class TermDictionaryTest {
+
+    @Test
+    void addReturnsStableDenseIds() {
+        TermDictionary dictionary = new TermDictionary(2);
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(i, dictionary.add("term" + i));
+        }
+        assertEquals(42, dictionary.add("term42"));
+        assertEquals(10_000, dictionary.size());
+        assertEquals("term9999", dictionary.term(9999));
+        assertEquals(-1, dictionary.find("term10000"));
+    }
+
+    @Test
+    void findsRegionsWithoutCopying() {
+        TermDictionary dictionary = new TermDictionary();
+        int id = dictionary.add("json");
+        String text = "parse the JSON file";
+        assertEquals(-1, dictionary.find(text, 10, 14));
+        assertEquals(id, dictionary.findFolded(text, 10, 14));
+        assertEquals(-1, dictionary.findFolded(text, 10, 13));
+    }
+
+    @Test
+    void emptyTermIsAllowed() {
+        TermDictionary dictionary = new TermDictionary();
+        int id = dictionary.add("");
+        assertTrue(dictionary.contains(""));
+        assertEquals(0, dictionary.termLength(id));
+    }
+
+    @Test
+    void termMapKeepsInsertionOrderAndSharesValues() {
+        TermMap map = new TermMap();
+        assertNull(map.put("pushto", "push to"));
+        assertNull(map.put("puhsto", "push to"));
+        assertNull(map.put("jsn", "json"));
+        assertEquals("json", map.put("jsn", "JSON"));
+
+        assertEquals(3, map.size());
+        assertEquals("JSON", map.get("jsn"));
+        assertEquals("push to", map.get("xpushtox", 1, 7));
+        assertNull(map.get("missing"));
+        assertTrue(map.containsKey("puhsto"));
+        assertEquals(List.of("pushto", "puhsto", "jsn"), List.copyOf(map.keySet()));
+        assertEquals(Map.of("pushto", "push to", "puhsto", "push to", "jsn", "JSON"), map);
+    }
+
+    @Test
+    void termMapRemovesKeysAndKeepsOrder() {
+        TermMap map = new TermMap();
+        map.put("a", "1");
+        map.put("b", "2");
+        map.put("c", "1");
+        assertEquals(1, map.removeKeys(List.of("a", "missing")));
+        assertEquals(List.of("b", "c"), List.copyOf(map.keySet()));
+        assertEquals("1", map.get("c"));
+        assertNull(map.get("a"));
+        assertNull(map.put("d", "3"));
+        assertEquals(3, map.size());
+    }
+
+    @Test
+    void termSetIgnoresDuplicates() {
+        TermSet set = new TermSet();
+        assertTrue(set.add("GitHub"));
+        assertTrue(set.add("nginx"));
+        assertFalse(set.add("GitHub"));
+
+        assertEquals(List.of("GitHub", "nginx"), set.asList());
+        assertTrue(set.contains("nginx"));
+        assertFalse(set.contains("github"));
+        assertTrue(set.contains("use nginx", 4, 9));
+    }
+
+    @Test
+    void encodedTablesDecodeWithoutRehashing() {
+        TermMap map = new TermMap();
+        for (int i = 0; i < 1000; i++) {
+            map.put("term" + i, i % 2 == 0 ? "even" : "odd");
+        }
+        ByteBuffer buf = ByteBuffer.allocate((int) map.encodedSize());
+        map.encode(buf);
+        assertEquals(0, buf.remaining());
+        buf.flip();
+
+        TermMap decoded = TermMap.decode(buf);
+        assertEquals(map, decoded);
+        assertEquals("odd", decoded.get("xterm999x", 1, 8));
+        assertNull(decoded.put("term1000", "even"));
+        assertEquals(1001, decoded.size());
+        assertEquals(1000, map.size());
+    }
+
+    @Test
+    void copiesAreIndependent() {
+        TermSet set = new TermSet();
+        set.add("GitHub");
+        TermSet copy = set.copy();
+        assertTrue(copy.add("nginx"));
+        assertTrue(set.add("kubectl"));
+
+        assertEquals(List.of("GitHub", "nginx"), copy.asList());
+        assertEquals(List.of("GitHub", "kubectl"), set.asList());
+        assertFalse(set.contains("nginx"));
+    }
+
+    @Test
+    void corruptEncodingIsRejected() {
+        TermSet set = new TermSet();
+        set.add("GitHub");
+        ByteBuffer buf = ByteBuffer.allocate((int) set.encodedSize());
+        set.encode(buf);
+        buf.flip();
+        buf.putInt(0, 5);
+        assertThrows(IllegalArgumentException.class, () -> TermSet.decode(buf));
+    }
+}
@@ -0,0 +1,65 @@
+package dev.voxcompose.text;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenSpansTest {
+
+    @Test
+    void emptyTextHasNoTokens() {
+        assertEquals(0, TokenSpans.tokenize("").size());
+    }
+
+    @Test
+    void splitsWordsPunctuationAndWhitespace() {
+        TokenSpans tokens = TokenSpans.tokenize("push github,  now");
+        assertEquals(6, tokens.size());
+        assertEquals("push", tokens.toString(0));
+        assertEquals(TokenSpans.SPACE, tokens.kind(1));
+        assertEquals("github", tokens.toString(2));
+        assertEquals(TokenSpans.PUNCT, tokens.kind(3));
+        assertEquals("  ", tokens.toString(4));
+        assertEquals("now", tokens.toString(5));
+    }
+
+    @Test
+    void spansCoverOriginalText() {
+        String text = "Hello, world!? It's 42_x\tdone";
+        TokenSpans tokens = TokenSpans.tokenize(text);
+        StringBuilder rebuilt = new StringBuilder();
+        for (int i = 0; i < tokens.size(); i++) {
+            assertTrue(tokens.length(i) > 0);
+            tokens.appendTo(i, rebuilt);
+        }
+        assertEquals(text, rebuilt.toString());
+    }
+
+    @Test
+    void punctuationIsOneTokenPerCharacter() {
+        TokenSpans tokens = TokenSpans.tokenize("wait?!");
+        assertEquals(3, tokens.size());
+        assertEquals("?", tokens.toString(1));
+        assertEquals("!", tokens.toString(2));
+    }
+
+    @Test
+    void boundariesFollowWordEdges() {
+        TokenSpans tokens = TokenSpans.tokenize("a, b");
+        assertTrue(tokens.startsOnBoundary(0));
+        assertTrue(tokens.endsOnBoundary(0));
+        assertTrue(tokens.startsOnBoundary(1));   // "," after a word
+        assertFalse(tokens.startsOnBoundary(2));  // " " after ","
+        assertTrue(tokens.endsOnBoundary(2));     // " " before "b"
+    }
+
+    @Test
+    void caseFoldingIsLazy() {
+        TokenSpans a = TokenSpans.tokenize("GitHub");
+        TokenSpans b = TokenSpans.tokenize("github");
+        assertTrue(a.equalsIgnoreCase(0, b, 0));
+        assertTrue(a.equalsIgnoreCase(0, "GITHUB"));
+        assertFalse(a.equalsIgnoreCase(0, "gitlab"));
+        assertEquals(a.foldedHash(0), b.foldedHash(0));
+        assertEquals("github", a.folded(0));
+    }
+}